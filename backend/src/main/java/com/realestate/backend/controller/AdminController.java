@@ -2,9 +2,7 @@ package com.realestate.backend.controller;
 
 import com.realestate.backend.dto.AppointmentDTO;
 import com.realestate.backend.dto.AgencyDTO;
-import com.realestate.backend.dto.ChatMessageDTO;
 import com.realestate.backend.dto.PropertyDetailDTO;
-import com.realestate.backend.dto.PropertyListDTO;
 import com.realestate.backend.dto.UserSummaryDTO;
 import com.realestate.backend.dto.DeletedUserDTO;
 import com.realestate.backend.entity.AppUser;
@@ -19,8 +17,16 @@ import com.realestate.backend.repository.PropertyViewRepository;
 import com.realestate.backend.repository.AgentProfileRepository;
 import com.realestate.backend.entity.AgentProfile;
 import com.realestate.backend.service.EmailService;
+import com.realestate.backend.service.HeatmapRecomputeScheduler;
+import com.realestate.backend.service.ListingCursor;
+import com.realestate.backend.service.ListingQueryService;
+import com.realestate.backend.service.PincodeResolver;
 import com.realestate.backend.repository.ChatMessageRepository;
 import com.realestate.backend.dto.ApiResponse;
+import com.realestate.backend.util.JsonStreamWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -28,6 +34,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.UUID;
@@ -70,6 +77,21 @@ public class AdminController {
     @Autowired
     private com.realestate.backend.repository.AgencyRepository agencyRepository;
 
+    @Autowired
+    private ListingQueryService listingQueryService;
+
+    @Autowired
+    private JsonStreamWriter jsonStreamWriter;
+
+    @Autowired
+    private PincodeResolver pincodeResolver;
+
+    @Autowired
+    private HeatmapRecomputeScheduler heatmapRecomputeScheduler;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     // ============================================================
     // ============================================================
 
@@ -211,13 +233,23 @@ public class AdminController {
     // PROPERTY MANAGEMENT
     // ============================================================
 
-    /** GET /api/admin/properties — Get ALL properties including inactive/deleted */
-    @GetMapping(value = {"/properties", "/properties/"})
+    /**
+     * GET /api/admin/properties — Get ALL properties including inactive/deleted.
+     * Optional sort + keyset paging (limit, cursor); next cursor in X-Next-Cursor.
+     * One page by default; {@code all=true} returns every row.
+     * Streamed row by row from the database.
+     */
+    @GetMapping(value = {"/properties", "/properties/"}, produces = MediaType.APPLICATION_JSON_VALUE)
     @Transactional(readOnly = true)
-    public ResponseEntity<ApiResponse<java.util.List<PropertyListDTO>>> getAllProperties() {
-        java.util.List<PropertyListDTO> properties = propertyRepository.findAll().stream()
-                .map(PropertyListDTO::from).toList();
-        return ResponseEntity.ok(ApiResponse.success(properties));
+    public void getAllProperties(
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean all,
+            HttpServletResponse response) throws IOException {
+        ListingQueryService.CardPage<?> page = listingQueryService.findInDatabase(null, false, false, sort, cursor, limit, all);
+        if (page.getNext() != null) response.setHeader(ListingCursor.HEADER, page.getNext().encode());
+        jsonStreamWriter.writeSuccess(response, page.getCards());
     }
 
     /** PUT /api/admin/properties/{id} — Admin update any property */
@@ -279,30 +311,64 @@ public class AdminController {
         return ResponseEntity.ok(ApiResponse.success(PropertyDetailDTO.from(property)));
     }
 
+    /**
+     * POST /api/admin/properties/resolve-pincodes
+     * Re-derive every listing's pincode from its coordinates (see PincodeResolver)
+     */
+    @PostMapping("/properties/resolve-pincodes")
+    public ResponseEntity<ApiResponse<Map<String, Integer>>> resolvePincodes() {
+        int changed = pincodeResolver.backfill();
+        return ResponseEntity.ok(ApiResponse.success(Map.of("updated", changed)));
+    }
+
+    /**
+     * POST /api/admin/properties/backfill-filter-keys
+     * One-off migration: fill the lower-cased filter keys on listings written before
+     * those columns existed (see RUN_MIGRATION.md)
+     */
+    @PostMapping("/properties/backfill-filter-keys")
+    public ResponseEntity<ApiResponse<Map<String, Integer>>> backfillFilterKeys() {
+        int updated = propertyRepository.backfillFilterKeys();
+        return ResponseEntity.ok(ApiResponse.success(Map.of("updated", updated)));
+    }
+
+    /** GET /api/admin/analytics/recompute — Heatmap recompute queue depth, lag and totals */
+    @GetMapping("/analytics/recompute")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> recomputeQueue() {
+        return ResponseEntity.ok(ApiResponse.success(heatmapRecomputeScheduler.stats()));
+    }
+
+    /** POST /api/admin/analytics/recompute — Recompute every city in parallel; returns the run's progress */
+    @PostMapping("/analytics/recompute")
+    public ResponseEntity<ApiResponse<HeatmapRecomputeScheduler.FullRecompute>> recomputeAll() {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(heatmapRecomputeScheduler.recomputeAll()));
+    }
+
     // ============================================================
     // APPOINTMENT MANAGEMENT
     // ============================================================
 
-    /** GET /api/admin/appointments — Get all appointments */
-    @GetMapping("/appointments")
+    /** GET /api/admin/appointments — Get all appointments (streamed) */
+    @GetMapping(value = "/appointments", produces = MediaType.APPLICATION_JSON_VALUE)
     @Transactional(readOnly = true)
-    public ResponseEntity<ApiResponse<java.util.List<AppointmentDTO>>> getAllAppointments() {
-        java.util.List<AppointmentDTO> appointments = appointmentRepository.findAll().stream()
-                .map(AppointmentDTO::from).toList();
-        return ResponseEntity.ok(ApiResponse.success(appointments));
+    public void getAllAppointments(HttpServletResponse response) throws IOException {
+        jsonStreamWriter.writeSuccess(response, appointmentRepository.streamAllWithBuyer().map(appt -> {
+            AppointmentDTO dto = AppointmentDTO.from(appt);
+            entityManager.detach(appt);
+            return dto;
+        }));
     }
 
     // ============================================================
     // CHAT MANAGEMENT
     // ============================================================
 
-    /** GET /api/admin/chats — Get all system chat messages */
-    @GetMapping("/chats")
+    /** GET /api/admin/chats — Get all system chat messages (streamed) */
+    @GetMapping(value = "/chats", produces = MediaType.APPLICATION_JSON_VALUE)
     @Transactional(readOnly = true)
-    public ResponseEntity<ApiResponse<java.util.List<ChatMessageDTO>>> getAllChats() {
-        java.util.List<ChatMessageDTO> chats = chatMessageRepository.findAll().stream()
-                .map(ChatMessageDTO::from).toList();
-        return ResponseEntity.ok(ApiResponse.success(chats));
+    public void getAllChats(HttpServletResponse response) throws IOException {
+        jsonStreamWriter.writeSuccess(response, chatMessageRepository.streamAllDtos());
     }
 
     // ============================================================
@@ -1,6 +1,10 @@
 package com.realestate.backend.controller;
 
 import com.realestate.backend.service.AnalyticsService;
+import com.realestate.backend.service.HeatmapRecomputeScheduler;
+import com.realestate.backend.service.HeatmapSnapshotService;
+import com.realestate.backend.service.HeatmapSnapshotService.HeatmapDelta;
+import com.realestate.backend.service.HeatmapSnapshotService.HeatmapSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -20,6 +24,12 @@ public class AnalyticsController {
     @Autowired
     private AnalyticsService analyticsService;
 
+    @Autowired
+    private HeatmapRecomputeScheduler heatmapRecomputeScheduler;
+
+    @Autowired
+    private HeatmapSnapshotService heatmapSnapshotService;
+
     /** GET /api/analytics/heatmap/{city} — Heatmap data for a city */
     @GetMapping("/heatmap/{city}")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getHeatmapData(
@@ -28,21 +38,48 @@ public class AnalyticsController {
             @RequestParam(required = false) String userType,
             @RequestParam(required = false) String type,
             @RequestParam(required = false) String purpose) {
-        // Dynamic heatmap fetch based on city, mode, and optional property filters
-        List<Map<String, Object>> heatmapData = analyticsService.getHeatmapData(city, mode, type, purpose);
+        // Unfiltered maps come pre-serialised from the city's snapshot; type/purpose filters are computed per request
+        if (analyticsService.hasFilters(type, purpose)) {
+            return ResponseEntity.ok(ApiResponse.success(Map.of(
+                    "city", city,
+                    "mode", mode,
+                    "data", analyticsService.getHeatmapData(city, mode, type, purpose))));
+        }
+        HeatmapSnapshot snapshot = heatmapSnapshotService.snapshot(city);
+        return ResponseEntity.ok(ApiResponse.success(Map.of(
+                "city", city,
+                "mode", mode,
+                "version", snapshot.getVersion(),
+                "data", snapshot.data(mode))));
+    }
 
+    /**
+     * GET /api/analytics/heatmap/{city}/changes?since= — Unfiltered heatmap entries changed
+     * after the version the client holds, plus pincodes to drop; the whole map
+     * (full = true) when that version is too old to diff against.
+     */
+    @GetMapping("/heatmap/{city}/changes")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getHeatmapChanges(
+            @PathVariable String city,
+            @RequestParam long since,
+            @RequestParam(required = false, defaultValue = "price") String mode) {
+        HeatmapDelta delta = heatmapSnapshotService.changes(city, mode, since);
         return ResponseEntity.ok(ApiResponse.success(Map.of(
                 "city", city,
                 "mode", mode,
-                "data", heatmapData)));
+                "since", since,
+                "version", delta.getVersion(),
+                "full", delta.isFull(),
+                "data", delta.getData(),
+                "removed", delta.getRemoved())));
     }
 
-    /** POST /api/analytics/compute/{city} — Trigger score computation */
+    /** POST /api/analytics/compute/{city} — Queue a score recompute (see HeatmapRecomputeScheduler) */
     @PostMapping("/compute/{city}")
     public ResponseEntity<ApiResponse<Map<String, String>>> computeScores(@PathVariable String city) {
-        analyticsService.computeScoresForCity(city);
-        return ResponseEntity.ok(ApiResponse.success(Map.of(
-                "message", "Scores computed successfully for " + city,
+        heatmapRecomputeScheduler.request(city);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(Map.of(
+                "message", "Score recompute queued for " + city,
                 "city", city)));
     }
 
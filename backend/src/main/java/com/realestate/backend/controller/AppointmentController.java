@@ -414,10 +414,6 @@ public class AppointmentController {
         property.setFeatured(false); // Clear spotlight when sold through appointment
         propertyRepository.save(property);
 
-        if (property.getCity() != null) {
-            analyticsService.computeScoresForCity(property.getCity());
-        }
-
         // Cancel other pending appointments
         List<String> activeStatuses = Arrays.asList("pending", "confirmed", "awaiting_buyer");
         List<Appointment> otherAppointments = appointmentRepository
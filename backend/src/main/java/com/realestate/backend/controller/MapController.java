@@ -1,24 +1,118 @@
 package com.realestate.backend.controller;
 
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.IOException;
-import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
 import com.realestate.backend.dto.ApiResponse;
+import com.realestate.backend.dto.MapClusterDTO;
+import com.realestate.backend.service.GeoArea;
+import com.realestate.backend.service.GeoJsonLayerService;
+import com.realestate.backend.service.MapClusterService;
+import org.springframework.beans.factory.annotation.Autowired;
 
 @RestController
 @RequestMapping("/api/map")
 public class MapController {
 
-    @GetMapping(value = "/ahmedabad", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<ApiResponse<String>> getAhmedabadMap() throws IOException {
-        // GeoJSON file should be in src/main/resources/geo/Ahmedabad.geojson
-        Resource resource = new ClassPathResource("geo/Ahmedabad.geojson");
-        String geoJson = Files.readString(resource.getFile().toPath());
-        return ResponseEntity.ok(ApiResponse.success(geoJson));
+    private static final MediaType GEO_JSON = MediaType.parseMediaType("application/geo+json");
+
+    @Autowired
+    private MapClusterService mapClusterService;
+
+    @Autowired
+    private GeoJsonLayerService geoJsonLayerService;
+
+    /** GET /api/map/ahmedabad — Ahmedabad pincode GeoJSON (same as /geojson/ahmedabad) */
+    @GetMapping(value = "/ahmedabad")
+    public ResponseEntity<byte[]> getAhmedabadMap(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return getCityLayer("ahmedabad", null, acceptEncoding, ifNoneMatch);
+    }
+
+    /**
+     * GET /api/map/geojson/{city}?zoom= — City pincode polygons as raw GeoJSON, brotli or
+     * gzip encoded when the client accepts it. With zoom, polygons are simplified to
+     * about a pixel at that zoom. Strong ETag per encoding; 304 on a match.
+     */
+    @GetMapping(value = "/geojson/{city}")
+    public ResponseEntity<byte[]> getCityLayer(
+            @PathVariable String city,
+            @RequestParam(required = false) Integer zoom,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        GeoJsonLayerService.GeoLayer layer = geoJsonLayerService.layer(city, zoom);
+
+        String encoding = null;
+        byte[] body = layer.getIdentity();
+        if (layer.getBrotli() != null && accepts(acceptEncoding, "br")) {
+            encoding = "br";
+            body = layer.getBrotli();
+        } else if (accepts(acceptEncoding, "gzip")) {
+            encoding = "gzip";
+            body = layer.getGzip();
+        }
+        String etag = "\"" + layer.getEtag() + (encoding != null ? "-" + encoding : "") + "\"";
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (ifNoneMatch != null && matches(ifNoneMatch, etag)) {
+            builder = ResponseEntity.status(HttpStatus.NOT_MODIFIED);
+            body = null;
+        } else {
+            builder.contentType(GEO_JSON).contentLength(body.length);
+            if (encoding != null) builder.header(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+        return builder.eTag(etag)
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(1)).cachePublic())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .body(body);
+    }
+
+    /** True if the Accept-Encoding header lists the coding without q=0; an unreadable q counts as 1. */
+    private static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) return false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.trim().split(";");
+            if (!params[0].trim().equalsIgnoreCase(coding)) continue;
+            for (int i = 1; i < params.length; i++) {
+                String p = params[i].trim();
+                if (p.startsWith("q=") && isZero(p.substring(2))) return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isZero(String q) {
+        try {
+            return Double.parseDouble(q.trim()) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.equals("*") || c.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * GET /api/map/clusters?bbox=minLng,minLat,maxLng,maxLat&zoom= — Listing markers
+     * clustered for the zoom level; beyond zoom 16 every listing is its own marker.
+     */
+    @GetMapping(value = "/clusters", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ApiResponse<List<MapClusterDTO>>> getClusters(
+            @RequestParam String bbox,
+            @RequestParam int zoom) {
+        return ResponseEntity.ok(ApiResponse.success(mapClusterService.clusters(GeoArea.bbox(bbox), zoom)));
     }
 }
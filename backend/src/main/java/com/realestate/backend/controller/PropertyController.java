@@ -13,11 +13,26 @@ import com.realestate.backend.repository.AgentSlotRepository;
 import com.realestate.backend.repository.UserRepository;
 import com.realestate.backend.repository.AgentProfileRepository;
 import com.realestate.backend.service.EmailService;
+import com.realestate.backend.service.GeoArea;
+import com.realestate.backend.service.HeatmapCubeIndex;
+import com.realestate.backend.service.HomeFeedIndex;
 import com.realestate.backend.service.AnalyticsService;
+import com.realestate.backend.service.KeysetPager;
+import com.realestate.backend.service.ListingCursor;
+import com.realestate.backend.service.ListingFilter;
+import com.realestate.backend.service.ListingQueryService;
+import com.realestate.backend.service.ListingSort;
+import com.realestate.backend.service.PincodeResolver;
+import com.realestate.backend.service.PincodeTopIndex;
+import com.realestate.backend.service.PropertyJsonCache;
 import com.realestate.backend.dto.ApiResponse;
+import com.realestate.backend.dto.ListingFacetsDTO;
 import com.realestate.backend.dto.PropertyListDTO;
 import com.realestate.backend.dto.PropertyDetailDTO;
+import com.realestate.backend.util.JsonStreamWriter;
+import com.fasterxml.jackson.databind.util.RawValue;
 import com.realestate.backend.util.SecurityUtils;
+import jakarta.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -26,6 +41,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -43,6 +59,27 @@ public class PropertyController {
     @Autowired
     private PropertyRepository propertyRepository;
 
+    @Autowired
+    private ListingQueryService listingQueryService;
+
+    @Autowired
+    private HomeFeedIndex homeFeedIndex;
+
+    @Autowired
+    private PincodeTopIndex pincodeTopIndex;
+
+    @Autowired
+    private HeatmapCubeIndex heatmapCubeIndex;
+
+    @Autowired
+    private PincodeResolver pincodeResolver;
+
+    @Autowired
+    private JsonStreamWriter jsonStreamWriter;
+
+    @Autowired
+    private PropertyJsonCache propertyJsonCache;
+
     @Autowired
     private AppointmentRepository appointmentRepository;
 
@@ -71,10 +108,23 @@ public class PropertyController {
         return securityUtils.hasRole("ADMIN");
     }
 
-    /** GET /api/properties — All active, unsold properties with optional filters */
+    /** 200 OK, with the next-page cursor header when another page exists */
+    private static ResponseEntity.BodyBuilder okWithCursor(ListingCursor next) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (next != null) ok.header(ListingCursor.HEADER, next.encode());
+        return ok;
+    }
+
+    /**
+     * GET /api/properties — All active, unsold properties with optional filters.
+     * Optional sort (price_asc, price_desc, price_per_sqft_asc, price_per_sqft_desc, newest, views, relevance)
+     * and keyset paging via limit (default 20, max 100) + cursor; the next cursor is returned
+     * in X-Next-Cursor. {@code all=true} without a limit returns every match in one response.
+     * The ApiResponse body is streamed card by card as listings are loaded.
+     */
     @GetMapping(value = {"", "/"}, produces = MediaType.APPLICATION_JSON_VALUE)
     @Transactional(readOnly = true)
-    public ResponseEntity<ApiResponse<List<PropertyListDTO>>> getAllProperties(
+    public void getAllProperties(
             @RequestParam(required = false) String city,
             @RequestParam(required = false) String type,
             @RequestParam(required = false) String purpose,
@@ -83,164 +133,168 @@ public class PropertyController {
             @RequestParam(required = false) String bhk,
             @RequestParam(required = false) String search,
             @RequestParam(required = false) String pincode,
-            @RequestParam(required = false) List<String> amenities) {
-        
-        List<Property> properties = propertyRepository.findVisibleProperties();
-
-        // Filter by City
-        if (city != null && !city.isBlank()) {
-            String c = city.toLowerCase();
-            properties = properties.stream()
-                    .filter(p -> p.getCity() != null && p.getCity().toLowerCase().equals(c))
-                    .toList();
-        }
+            @RequestParam(required = false) List<String> amenities,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean all,
+            HttpServletResponse response) throws IOException {
         
-        // Filter by Type (Apartment, House, etc)
-        if (type != null && !type.isBlank() && !type.equalsIgnoreCase("All")) {
-            String t = type.toLowerCase();
-            properties = properties.stream()
-                    .filter(p -> p.getType() != null && p.getType().toLowerCase().equals(t))
-                    .toList();
-        }
-
-        // Filter by Purpose (Rent, Sale)
-        if (purpose != null && !purpose.isBlank() && !purpose.equalsIgnoreCase("All")) {
-            String pu = purpose.toLowerCase();
-            properties = properties.stream()
-                    .filter(p -> {
-                        String pp = p.getPurpose() != null ? p.getPurpose().toLowerCase() : "sale";
-                        return pp.contains(pu) || pu.contains(pp);
-                    })
-                    .toList();
-        }
-        
-        // Price and BHK filters
-        Double minP = null;
-        if (minPrice != null && !minPrice.isBlank() && !minPrice.equalsIgnoreCase("All")) {
-            try { minP = Double.parseDouble(minPrice); } catch (Exception ignored) {}
-        }
-        Double maxP = null;
-        if (maxPrice != null && !maxPrice.isBlank() && !maxPrice.equalsIgnoreCase("All")) {
-            try { maxP = Double.parseDouble(maxPrice); } catch (Exception ignored) {}
-        }
-        Integer bhkNum = null;
-        if (bhk != null && !bhk.isBlank() && !bhk.equalsIgnoreCase("All")) {
-            try { bhkNum = Integer.parseInt(bhk); } catch (Exception ignored) {}
-        }
+        ListingFilter filter = ListingFilter.of(city, type, purpose, minPrice, maxPrice, bhk, search, pincode, amenities);
+        ListingSort order = ListingSort.from(sort);
+        ListingCursor after = ListingCursor.decode(cursor, order);
+        ListingQueryService.CardPage<?> page = listingQueryService.findCards(filter, after != null ? after.getSort() : order, after,
+                KeysetPager.resolveLimit(limit, all));
+        if (page.getNext() != null) response.setHeader(ListingCursor.HEADER, page.getNext().encode());
+        jsonStreamWriter.writeSuccess(response, page.getCards());
+    }
 
-        if (minP != null) {
-            final Double finalMinP = minP;
-            properties = properties.stream().filter(p -> p.getPrice() >= finalMinP).toList();
-        }
-        if (maxP != null) {
-            final Double finalMaxP = maxP;
-            properties = properties.stream().filter(p -> p.getPrice() <= finalMaxP).toList();
-        }
-        if (bhkNum != null && bhkNum > 0) {
-            final Integer finalBhkNum = bhkNum;
-            properties = properties.stream().filter(p -> p.getBhk() == finalBhkNum).toList();
-        }
-        if (pincode != null && !pincode.isBlank()) {
-            properties = properties.stream().filter(p -> pincode.equals(p.getPinCode())).toList();
-        }
+    /** GET /api/properties/facets — Sidebar counts per type, purpose, bhk, price bucket, amenity and pincode */
+    @GetMapping(value = "/facets", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ApiResponse<ListingFacetsDTO>> getFacets(
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String purpose,
+            @RequestParam(required = false) String minPrice,
+            @RequestParam(required = false) String maxPrice,
+            @RequestParam(required = false) String bhk,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String pincode,
+            @RequestParam(required = false) List<String> amenities) {
+        ListingFilter filter = ListingFilter.of(city, type, purpose, minPrice, maxPrice, bhk, search, pincode, amenities);
+        return ResponseEntity.ok(ApiResponse.success(listingQueryService.facets(filter)));
+    }
 
-        // Text search
-        if (search != null && !search.isBlank()) {
-            String s = search.toLowerCase();
-            properties = properties.stream()
-                    .filter(p -> {
-                        String title = p.getTitle() != null ? p.getTitle().toLowerCase() : "";
-                        String loc = p.getLocation() != null ? p.getLocation().toLowerCase() : "";
-                        String desc = p.getDescription() != null ? p.getDescription().toLowerCase() : "";
-                        String agentName = (p.getAgent() != null && p.getAgent().getName() != null) ? p.getAgent().getName().toLowerCase() : "";
-                        String agencyName = (p.getAgent() != null && p.getAgent().getAgencyName() != null) ? p.getAgent().getAgencyName().toLowerCase() : "";
-                        return title.contains(s) || loc.contains(s) || desc.contains(s) || agentName.contains(s) || agencyName.contains(s);
-                    })
-                    .toList();
-        }
+    /**
+     * GET /api/properties/nearby?lat=&lng=&radiusKm= — Visible listings within radiusKm
+     * (default 2, max 50) of a point, nearest first. Accepts the same filters, sort
+     * (plus distance), cursor, limit and all as GET /api/properties.
+     */
+    @GetMapping(value = "/nearby", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Transactional(readOnly = true)
+    public void getNearbyProperties(
+            @RequestParam Double lat,
+            @RequestParam Double lng,
+            @RequestParam(required = false) Double radiusKm,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String purpose,
+            @RequestParam(required = false) String minPrice,
+            @RequestParam(required = false) String maxPrice,
+            @RequestParam(required = false) String bhk,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String pincode,
+            @RequestParam(required = false) List<String> amenities,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean all,
+            HttpServletResponse response) throws IOException {
+        ListingFilter filter = ListingFilter.of(city, type, purpose, minPrice, maxPrice, bhk, search, pincode, amenities);
+        writeAreaPage(filter, GeoArea.circle(lat, lng, radiusKm), sort, cursor, limit, all, response);
+    }
 
-        // Amenities check (And logic: must have all selected)
-        if (amenities != null && !amenities.isEmpty()) {
-            properties = properties.stream()
-                    .filter(p -> {
-                        if (p.getAmenities() == null || p.getAmenities().isBlank()) return false;
-                        String propAmenities = p.getAmenities().toLowerCase();
-                        return amenities.stream().allMatch(a -> propAmenities.contains(a.toLowerCase()));
-                    })
-                    .toList();
-        }
+    /**
+     * GET /api/properties/within?bbox=minLng,minLat,maxLng,maxLat — Visible listings in
+     * the map viewport, nearest its centre first. Same filters and paging as /nearby.
+     */
+    @GetMapping(value = "/within", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Transactional(readOnly = true)
+    public void getPropertiesWithin(
+            @RequestParam String bbox,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String purpose,
+            @RequestParam(required = false) String minPrice,
+            @RequestParam(required = false) String maxPrice,
+            @RequestParam(required = false) String bhk,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String pincode,
+            @RequestParam(required = false) List<String> amenities,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean all,
+            HttpServletResponse response) throws IOException {
+        ListingFilter filter = ListingFilter.of(city, type, purpose, minPrice, maxPrice, bhk, search, pincode, amenities);
+        writeAreaPage(filter, GeoArea.bbox(bbox), sort, cursor, limit, all, response);
+    }
 
-        List<PropertyListDTO> dtos = properties.stream().map(PropertyListDTO::from).toList();
-        return ResponseEntity.ok(ApiResponse.success(dtos));
+    private void writeAreaPage(ListingFilter filter, GeoArea area, String sort, String cursor, Integer limit,
+                               boolean all, HttpServletResponse response) throws IOException {
+        ListingSort order = ListingSort.from(sort);
+        ListingCursor after = ListingCursor.decode(cursor, order);
+        ListingQueryService.CardPage<?> page = listingQueryService.findInArea(filter, area, after != null ? after.getSort() : order, after,
+                KeysetPager.resolveLimit(limit, all));
+        if (page.getNext() != null) response.setHeader(ListingCursor.HEADER, page.getNext().encode());
+        jsonStreamWriter.writeSuccess(response, page.getCards());
     }
 
-    /** GET /api/properties/featured — Featured properties for home page */
+    /**
+     * GET /api/properties/featured — Featured properties for home page, newest first.
+     * Served from HomeFeedIndex; sort/cursor/limit/all (as above) page through the database.
+     */
     @GetMapping(value = "/featured", produces = MediaType.APPLICATION_JSON_VALUE)
     @Transactional(readOnly = true)
-    public ResponseEntity<ApiResponse<List<PropertyListDTO>>> getFeaturedProperties() {
-        List<PropertyListDTO> featuredProperties = propertyRepository.findVisibleProperties().stream()
-                .filter(Property::getFeatured)
-                .map(PropertyListDTO::from)
-                .toList();
-        return ResponseEntity.ok(ApiResponse.success(featuredProperties));
+    public ResponseEntity<ApiResponse<List<?>>> getFeaturedProperties(
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean all) {
+        if (sort == null && cursor == null && limit == null && !all) {
+            return ResponseEntity.ok(ApiResponse.success(homeFeedIndex.featured()));
+        }
+        ListingQueryService.CardPage<PropertyListDTO> page = listingQueryService.findInDatabase(null, true, true, sort, cursor, limit, all);
+        List<PropertyListDTO> featuredProperties = page.getCards().toList();
+        return okWithCursor(page.getNext()).body(ApiResponse.success(featuredProperties));
     }
 
-    /** GET /api/properties/trending — Trending properties based on views */
+    /** GET /api/properties/trending — Trending properties based on views (HomeFeedIndex) */
     @GetMapping(value = "/trending", produces = MediaType.APPLICATION_JSON_VALUE)
-    @Transactional(readOnly = true)
-    public ResponseEntity<ApiResponse<List<PropertyListDTO>>> getTrendingProperties() {
-        List<PropertyListDTO> trending = propertyRepository.findVisibleProperties().stream()
-                .sorted(Comparator.comparingInt(Property::getViews).reversed())
-                .limit(6)
-                .map(PropertyListDTO::from)
-                .toList();
-        return ResponseEntity.ok(ApiResponse.success(trending));
+    public ResponseEntity<ApiResponse<List<RawValue>>> getTrendingProperties() {
+        return ResponseEntity.ok(ApiResponse.success(homeFeedIndex.trending()));
     }
 
     /** GET /api/properties/agent/me — My properties (for dashboard) */
     @GetMapping(value = "/agent/me", produces = MediaType.APPLICATION_JSON_VALUE)
     @Transactional(readOnly = true)
-    public ResponseEntity<ApiResponse<List<PropertyListDTO>>> getMyProperties() {
+    public ResponseEntity<ApiResponse<List<PropertyListDTO>>> getMyProperties(
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean all) {
         Long agentId = SecurityUtils.getAuthenticatedUserId();
         if (agentId == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ApiResponse.error("Login required"));
 
-        List<PropertyListDTO> properties = propertyRepository.findByAgentId(agentId).stream()
-                .map(PropertyListDTO::from).toList();
-        return ResponseEntity.ok(ApiResponse.success(properties));
+        ListingQueryService.CardPage<PropertyListDTO> page = listingQueryService.findInDatabase(agentId, false, false, sort, cursor, limit, all);
+        List<PropertyListDTO> properties = page.getCards().toList();
+        return okWithCursor(page.getNext()).body(ApiResponse.success(properties));
     }
 
-    /** GET /api/properties/top?pincode=... — Support Map Sidebar */
+    /**
+     * GET /api/properties/top?pincode=... — Support Map Sidebar.
+     * Top listings in one pincode from PincodeTopIndex; sort is views (default),
+     * price_asc, price_desc or newest. {@code mode} is the map's heatmap mode and
+     * does not affect the order.
+     */
     @GetMapping(value = "/top", produces = MediaType.APPLICATION_JSON_VALUE)
     @Transactional(readOnly = true)
-    public ResponseEntity<ApiResponse<List<PropertyListDTO>>> getTopPropertiesByPincode(
+    public ResponseEntity<ApiResponse<List<RawValue>>> getTopPropertiesByPincode(
             @RequestParam String pincode,
             @RequestParam(required = false) String mode,
-            @RequestParam(required = false) String purpose) {
-        
-        List<Property> properties = propertyRepository.findVisibleProperties().stream()
-                .filter(p -> pincode.equals(p.getPinCode()))
-                .toList();
-        
-        // Filter by purpose if specified
-        if (purpose != null && !purpose.isBlank() && !purpose.equalsIgnoreCase("All")) {
-            final String pu = purpose.toLowerCase();
-            properties = properties.stream().filter(p -> p.getPurpose() != null && p.getPurpose().toLowerCase().contains(pu)).toList();
-        }
-
-        // Sort by views (simple "top" logic)
-        List<PropertyListDTO> dtos = properties.stream()
-                .sorted(Comparator.comparingInt(Property::getViews).reversed())
-                .limit(10)
-                .map(PropertyListDTO::from)
-                .toList();
-
-        return ResponseEntity.ok(ApiResponse.success(dtos));
+            @RequestParam(required = false) String purpose,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Integer limit) {
+        int size = limit != null ? Math.max(1, Math.min(limit, KeysetPager.MAX_PAGE_SIZE)) : PincodeTopIndex.DEFAULT_LIMIT;
+        long[] ids = pincodeTopIndex.top(pincode.trim(), purpose, ListingSort.from(sort), size);
+        return ResponseEntity.ok(ApiResponse.success(listingQueryService.cards(ids)));
     }
 
     /** GET /api/properties/{id} — Single property by ID */
     @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<ApiResponse<PropertyDetailDTO>> getPropertyById(@PathVariable Long id) {
-        
+    public ResponseEntity<ApiResponse<Object>> getPropertyById(@PathVariable Long id) {
+        // Taken before the load; the view counted below only ages the cached detail, it does not invalidate it
+        long snapshot = propertyJsonCache.snapshot();
         Property property = propertyRepository.findById(id).orElse(null);
         if (property == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error("Property not found"));
@@ -262,7 +316,8 @@ public class PropertyController {
             analyticsService.trackView(id, authId);
         }
 
-        return ResponseEntity.ok(ApiResponse.success(PropertyDetailDTO.from(property)));
+        // Pre-serialised PropertyDetailDTO, spliced into the envelope as-is
+        return ResponseEntity.ok(ApiResponse.success(new RawValue(propertyJsonCache.detail(property, snapshot))));
     }
 
     /** POST /api/properties — Add new property */
@@ -289,10 +344,9 @@ public class PropertyController {
         if (agent == null) return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error("Agent not found"));
         
         property.setAgent(agent);
+        pincodeResolver.apply(property);
         Property savedProperty = propertyRepository.save(property);
 
-        if (savedProperty.getCity() != null) analyticsService.computeScoresForCity(savedProperty.getCity());
-
         return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success(PropertyDetailDTO.from(savedProperty)));
     }
 
@@ -331,9 +385,9 @@ public class PropertyController {
         if (up.getPurpose() != null) property.setPurpose(up.getPurpose());
         if (up.getLatitude() != null) property.setLatitude(up.getLatitude());
         if (up.getLongitude() != null) property.setLongitude(up.getLongitude());
+        pincodeResolver.apply(property);
 
         Property saved = propertyRepository.save(property);
-        if (saved.getCity() != null) analyticsService.computeScoresForCity(saved.getCity());
         
         return ResponseEntity.ok(ApiResponse.success(PropertyDetailDTO.from(saved)));
     }
@@ -353,8 +407,6 @@ public class PropertyController {
 
         property.setActive(false);
         propertyRepository.save(property);
-
-        if (property.getCity() != null) analyticsService.computeScoresForCity(property.getCity());
         return ResponseEntity.ok(ApiResponse.success(Map.of("message", "Property unlisted successfully")));
     }
 
@@ -379,8 +431,6 @@ public class PropertyController {
         agentSlotRepository.deleteByPropertyId(id);
         
         propertyRepository.delete(property);
-
-        if (property.getCity() != null) analyticsService.computeScoresForCity(property.getCity());
         return ResponseEntity.ok(ApiResponse.success(Map.of("message", "Property permanently deleted")));
     }
 
@@ -437,8 +487,6 @@ public class PropertyController {
         if (!notifyEmails.isEmpty()) {
             emailService.sendSoldNotificationToInquirers(new ArrayList<>(notifyEmails), property.getTitle());
         }
-
-        if (property.getCity() != null) analyticsService.computeScoresForCity(property.getCity());
         return ResponseEntity.ok(ApiResponse.success(PropertyDetailDTO.from(property)));
     }
 
@@ -461,38 +509,23 @@ public class PropertyController {
         property.setActive(true);
 
         propertyRepository.save(property);
-        if (property.getCity() != null) analyticsService.computeScoresForCity(property.getCity());
         return ResponseEntity.ok(ApiResponse.success(PropertyDetailDTO.from(property)));
     }
 
-    /** GET /api/properties/count-by-pincode — Map aggregate counts */
+    /** GET /api/properties/count-by-pincode — Map aggregate counts, from the heatmap cube */
     @GetMapping(value = "/count-by-pincode", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<ApiResponse<Map<String, Map<String, Object>>>> getPropertyCountByPincode(
             @RequestParam(required = false) String city,
             @RequestParam(required = false) String purpose,
             @RequestParam(required = false) String type) {
         
-        List<Object[]> results;
-        boolean hasCity = city != null && !city.isEmpty();
-        boolean hasPurpose = purpose != null && !purpose.isEmpty();
-        boolean hasType = type != null && !type.isEmpty();
-
-        if (hasCity && hasPurpose && hasType) results = propertyRepository.countActivePropertiesByPinCodeAndCityAndPurposeAndTypeWithEngagement(city, purpose, type);
-        else if (hasCity && hasPurpose) results = propertyRepository.countActivePropertiesByPinCodeAndCityAndPurposeWithEngagement(city, purpose);
-        else if (hasCity && hasType) results = propertyRepository.countActivePropertiesByPinCodeAndCityAndType(city, type);
-        else if (hasCity) results = propertyRepository.countActivePropertiesByPinCodeAndCity(city);
-        else if (hasPurpose && hasType) results = propertyRepository.countActivePropertiesByPinCodeAndPurposeAndType(purpose, type);
-        else if (hasPurpose) results = propertyRepository.countActivePropertiesByPinCodeAndPurpose(purpose);
-        else if (hasType) results = propertyRepository.countActivePropertiesByPinCodeAndType(type);
-        else results = propertyRepository.countActivePropertiesByPinCode();
-
         Map<String, Map<String, Object>> map = new HashMap<>();
-        for (Object[] row : results) {
-            String pinCode = row[0].toString();
+        for (Map.Entry<String, HeatmapCubeIndex.Rollup> row : heatmapCubeIndex.rollup(city, type, purpose).entrySet()) {
             Map<String, Object> data = new HashMap<>();
-            data.put("count", row[1]);
-            data.put("avgPrice", row[2] != null ? Math.round((Double) row[2] * 100.0) / 100.0 : 0.0);
-            map.put(pinCode, data);
+            data.put("count", row.getValue().getCount());
+            Double avg = row.getValue().getAvgPricePerSqft();
+            data.put("avgPrice", avg != null ? Math.round(avg * 100.0) / 100.0 : null);
+            map.put(row.getKey(), data);
         }
         return ResponseEntity.ok(ApiResponse.success(map));
     }
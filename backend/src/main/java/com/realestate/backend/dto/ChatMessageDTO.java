@@ -16,6 +16,19 @@ public class ChatMessageDTO {
 
     public ChatMessageDTO() {}
 
+    /** JPQL projection constructor, see ChatMessageRepository.streamAllDtos */
+    public ChatMessageDTO(Long id, Long propertyId, Long agentId, Long buyerId, String sender, String message,
+                          Boolean seen, LocalDateTime createdAt) {
+        this.id = id;
+        this.propertyId = propertyId;
+        this.agentId = agentId;
+        this.buyerId = buyerId;
+        this.sender = sender;
+        this.message = message;
+        this.seen = Boolean.TRUE.equals(seen);
+        this.createdAt = createdAt;
+    }
+
     public static ChatMessageDTO from(ChatMessage msg) {
         if (msg == null) return null;
         ChatMessageDTO dto = new ChatMessageDTO();
@@ -0,0 +1,81 @@
+package com.realestate.backend.dto;
+
+import java.util.List;
+
+/**
+ * Facet counts for the listing sidebar.
+ * Used by: GET /api/properties/facets. Every count is over the same result set
+ * GET /api/properties returns for the same filters.
+ */
+public class ListingFacetsDTO {
+
+    private int total;
+    private List<FacetCount> types;
+    private List<FacetCount> purposes;
+    private List<FacetCount> bhk;
+    private List<PriceBucket> priceBuckets;
+    private List<FacetCount> amenities;
+    private List<FacetCount> pincodes;
+
+    public ListingFacetsDTO() {
+    }
+
+    public ListingFacetsDTO(int total, List<FacetCount> types, List<FacetCount> purposes, List<FacetCount> bhk,
+                            List<PriceBucket> priceBuckets, List<FacetCount> amenities, List<FacetCount> pincodes) {
+        this.total = total;
+        this.types = types;
+        this.purposes = purposes;
+        this.bhk = bhk;
+        this.priceBuckets = priceBuckets;
+        this.amenities = amenities;
+        this.pincodes = pincodes;
+    }
+
+    // ── One facet value and how many listings carry it ──
+    public static class FacetCount {
+        private String value;
+        private int count;
+
+        public FacetCount() {
+        }
+
+        public FacetCount(String value, int count) {
+            this.value = value;
+            this.count = count;
+        }
+
+        public String getValue() { return value; }
+        public int getCount() { return count; }
+    }
+
+    // ── Price range [min, max); a null bound is open ──
+    public static class PriceBucket {
+        private String label;
+        private Double min;
+        private Double max;
+        private int count;
+
+        public PriceBucket() {
+        }
+
+        public PriceBucket(String label, Double min, Double max, int count) {
+            this.label = label;
+            this.min = min;
+            this.max = max;
+            this.count = count;
+        }
+
+        public String getLabel() { return label; }
+        public Double getMin() { return min; }
+        public Double getMax() { return max; }
+        public int getCount() { return count; }
+    }
+
+    public int getTotal() { return total; }
+    public List<FacetCount> getTypes() { return types; }
+    public List<FacetCount> getPurposes() { return purposes; }
+    public List<FacetCount> getBhk() { return bhk; }
+    public List<PriceBucket> getPriceBuckets() { return priceBuckets; }
+    public List<FacetCount> getAmenities() { return amenities; }
+    public List<FacetCount> getPincodes() { return pincodes; }
+}
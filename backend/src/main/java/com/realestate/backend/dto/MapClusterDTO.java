@@ -0,0 +1,28 @@
+package com.realestate.backend.dto;
+
+/**
+ * One map marker: a cluster of listings, or a single listing when count is 1.
+ * Used by: GET /api/map/clusters. propertyId is set only for single listings.
+ */
+public class MapClusterDTO {
+
+    private double latitude;
+    private double longitude;
+    private int count;
+    private Long propertyId;
+
+    public MapClusterDTO() {
+    }
+
+    public MapClusterDTO(double latitude, double longitude, int count, Long propertyId) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.count = count;
+        this.propertyId = propertyId;
+    }
+
+    public double getLatitude() { return latitude; }
+    public double getLongitude() { return longitude; }
+    public int getCount() { return count; }
+    public Long getPropertyId() { return propertyId; }
+}
@@ -0,0 +1,28 @@
+package com.realestate.backend.entity;
+
+import com.realestate.backend.service.PropertyIndexRegistry;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Pushes agent name and agency name edits to the property indexes, which show
+ * and search them on every listing of that agent.
+ * Values are captured at flush time, while the persistence context is still open.
+ */
+public class AgentEntityListener {
+
+    @Autowired
+    private ObjectProvider<PropertyIndexRegistry> registry;
+
+    @PostUpdate
+    public void onUpdated(Object entity) {
+        if (registry == null) return;
+        AppUser user = entity instanceof AgentProfile profile ? profile.getUser() : (AppUser) entity;
+        if (user == null || user.getId() == null) return;
+        Long id = user.getId();
+        String name = user.getName();
+        String agencyName = user.getAgencyName();
+        PropertyIndexRegistry.afterCommit(() -> registry.getObject().agentUpdated(id, name, agencyName));
+    }
+}
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
 @Table(name = "agent_profiles")
+@EntityListeners(AgentEntityListener.class)
 public class AgentProfile {
 
     @Id
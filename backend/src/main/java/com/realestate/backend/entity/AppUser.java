@@ -6,6 +6,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(AgentEntityListener.class)
 public class AppUser {
 
     @Id
@@ -5,6 +5,7 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
+@EntityListeners(FavoriteEntityListener.class)
 @Table(name = "favorites", uniqueConstraints = {
         @UniqueConstraint(columnNames = { "user_id", "property_id" })
 })
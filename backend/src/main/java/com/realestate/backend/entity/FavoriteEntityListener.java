@@ -0,0 +1,34 @@
+package com.realestate.backend.entity;
+
+import com.realestate.backend.service.PropertyIndexRegistry;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Passes favorite adds and removals on to the property indexes so engagement
+ * totals stay current without recounting the favorites table.
+ * Applied after commit, like PropertyEntityListener.
+ */
+public class FavoriteEntityListener {
+
+    @Autowired
+    private ObjectProvider<PropertyIndexRegistry> registry;
+
+    @PostPersist
+    public void onSaved(Favorite favorite) {
+        changed(favorite, 1);
+    }
+
+    @PostRemove
+    public void onRemoved(Favorite favorite) {
+        changed(favorite, -1);
+    }
+
+    private void changed(Favorite favorite, int delta) {
+        if (registry == null || favorite.getProperty() == null) return;
+        Long propertyId = favorite.getProperty().getId();
+        PropertyIndexRegistry.afterCommit(() -> registry.getObject().favoritesChanged(propertyId, delta));
+    }
+}
@@ -0,0 +1,171 @@
+package com.realestate.backend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * One pincode's market figures for one day, week or month. Daily rows are folded
+ * into weekly and then monthly rows as they age (see PincodeHistoryService).
+ */
+@Entity
+@Table(name = "pincode_history", uniqueConstraints = {
+        @UniqueConstraint(columnNames = { "city", "pincode", "resolution", "period_start" })
+}, indexes = {
+        @Index(name = "idx_pincode_history_resolution_period", columnList = "resolution, period_start")
+})
+public class PincodeHistory {
+
+    public static final String DAY = "DAY";
+    public static final String WEEK = "WEEK";
+    public static final String MONTH = "MONTH";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Lower-cased, as Property.cityKey
+    @Column(name = "city", nullable = false, length = 100)
+    private String city;
+
+    @Column(name = "pincode", nullable = false, length = 10)
+    private String pincode;
+
+    @Column(name = "resolution", nullable = false, length = 5)
+    private String resolution;
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    // Daily rows folded into this one (1 for a daily row)
+    @Column(name = "samples", nullable = false)
+    private Integer samples = 1;
+
+    // === LEVELS (averaged when folded) ===
+    @Column(name = "median_price_per_sqft")
+    private Double medianPricePerSqft;
+
+    @Column(name = "listings")
+    private Integer listings = 0;
+
+    @Column(name = "views")
+    private Integer views = 0;
+
+    @Column(name = "favorites")
+    private Integer favorites = 0;
+
+    @Column(name = "inquiries")
+    private Integer inquiries = 0;
+
+    // === FLOWS (summed when folded) ===
+    // Listings sold since the previous daily row
+    @Column(name = "sold_count")
+    private Integer soldCount = 0;
+
+    // Constructors
+    public PincodeHistory() {
+    }
+
+    public PincodeHistory(String city, String pincode, String resolution, LocalDate periodStart) {
+        this.city = city;
+        this.pincode = pincode;
+        this.resolution = resolution;
+        this.periodStart = periodStart;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+
+    public String getPincode() {
+        return pincode;
+    }
+
+    public void setPincode(String pincode) {
+        this.pincode = pincode;
+    }
+
+    public String getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(String resolution) {
+        this.resolution = resolution;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(LocalDate periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public Integer getSamples() {
+        return samples;
+    }
+
+    public void setSamples(Integer samples) {
+        this.samples = samples;
+    }
+
+    public Double getMedianPricePerSqft() {
+        return medianPricePerSqft;
+    }
+
+    public void setMedianPricePerSqft(Double medianPricePerSqft) {
+        this.medianPricePerSqft = medianPricePerSqft;
+    }
+
+    public Integer getListings() {
+        return listings;
+    }
+
+    public void setListings(Integer listings) {
+        this.listings = listings;
+    }
+
+    public Integer getViews() {
+        return views;
+    }
+
+    public void setViews(Integer views) {
+        this.views = views;
+    }
+
+    public Integer getFavorites() {
+        return favorites;
+    }
+
+    public void setFavorites(Integer favorites) {
+        this.favorites = favorites;
+    }
+
+    public Integer getInquiries() {
+        return inquiries;
+    }
+
+    public void setInquiries(Integer inquiries) {
+        this.inquiries = inquiries;
+    }
+
+    public Integer getSoldCount() {
+        return soldCount;
+    }
+
+    public void setSoldCount(Integer soldCount) {
+        this.soldCount = soldCount;
+    }
+}
@@ -5,7 +5,13 @@ import jakarta.validation.constraints.Min;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 @Entity
-@Table(name = "property")
+@Table(name = "property", indexes = {
+        @Index(name = "idx_property_city_type_price", columnList = "city_key, type_key, price"),
+        @Index(name = "idx_property_pin_code", columnList = "pin_code"),
+        @Index(name = "idx_property_listed_date", columnList = "listed_date"),
+        @Index(name = "idx_property_sold_at", columnList = "sold_at")
+})
+@EntityListeners(PropertyEntityListener.class)
 public class Property {
 
     @Id
@@ -111,6 +117,16 @@ public class Property {
     @Column(name = "longitude")
     private Double longitude;
 
+    // Lower-cased copies of city/type/purpose so filters can use plain indexed equality
+    @Column(name = "city_key")
+    private String cityKey;
+
+    @Column(name = "type_key")
+    private String typeKey;
+
+    @Column(name = "purpose_key")
+    private String purposeKey;
+
     // Default Constructor
     public Property() {
     }
@@ -121,6 +137,15 @@ public class Property {
         if (this.listedDate == null) {
             this.listedDate = java.time.LocalDateTime.now();
         }
+        normaliseKeys();
+    }
+
+    @PreUpdate
+    protected void normaliseKeys() {
+        this.cityKey = city != null ? city.toLowerCase(java.util.Locale.ROOT) : null;
+        this.typeKey = type != null ? type.toLowerCase(java.util.Locale.ROOT) : null;
+        // A listing without a purpose is treated as for sale everywhere else
+        this.purposeKey = (purpose != null ? purpose : "Sale").toLowerCase(java.util.Locale.ROOT);
     }
 
     // Getters and Setters
@@ -0,0 +1,33 @@
+package com.realestate.backend.entity;
+
+import com.realestate.backend.service.PropertyIndexRegistry;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Keeps the in-memory property indexes in step with every Property write,
+ * wherever it happens (controllers, view tracking, appointment sales).
+ * Changes are applied after commit so a rolled-back write never leaks into an index.
+ */
+public class PropertyEntityListener {
+
+    @Autowired
+    private ObjectProvider<PropertyIndexRegistry> registry;
+
+    @PostPersist
+    @PostUpdate
+    public void onSaved(Property property) {
+        if (registry == null) return;
+        PropertyIndexRegistry.afterCommit(() -> registry.getObject().index(property));
+    }
+
+    @PostRemove
+    public void onRemoved(Property property) {
+        if (registry == null) return;
+        Long id = property.getId();
+        PropertyIndexRegistry.afterCommit(() -> registry.getObject().remove(id));
+    }
+}
@@ -1,8 +1,11 @@
 package com.realestate.backend.repository;
 
 import com.realestate.backend.entity.Appointment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -10,10 +13,16 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
 
+    // Every appointment with its buyer, read from a cursor. Close the stream, inside a transaction.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.buyer")
+    Stream<Appointment> streamAllWithBuyer();
+
         List<Appointment> findByProperty_Id(Long propertyId);
 
         List<Appointment> findByBuyer_Id(Long buyerId);
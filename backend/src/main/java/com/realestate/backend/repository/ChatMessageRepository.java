@@ -1,16 +1,28 @@
 package com.realestate.backend.repository;
 
+import com.realestate.backend.dto.ChatMessageDTO;
 import com.realestate.backend.entity.ChatMessage;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
 
+    // Every message as a DTO, read from a cursor; ids come from the FK columns so no
+    // property or user rows are loaded. Close the stream, inside a transaction.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.realestate.backend.dto.ChatMessageDTO(c.id, c.property.id, c.agent.id, c.buyer.id, " +
+            "c.sender, c.message, c.seen, c.createdAt) FROM ChatMessage c")
+    Stream<ChatMessageDTO> streamAllDtos();
+
     // Fetch conversation between specific buyer and agent for a property
     List<ChatMessage> findByProperty_IdAndBuyer_IdAndAgent_IdOrderByCreatedAtAsc(
             Long propertyId,
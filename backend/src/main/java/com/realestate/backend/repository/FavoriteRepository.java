@@ -2,6 +2,7 @@ package com.realestate.backend.repository;
 
 import com.realestate.backend.entity.Favorite;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -29,4 +30,8 @@ public interface FavoriteRepository extends JpaRepository<Favorite, Long> {
     long countByUser_Id(Long userId);
 
     long countByProperty_Id(Long propertyId); // For analytics tracking
+
+    /** [propertyId, favorite count] for every favorited property. */
+    @Query("SELECT f.property.id, COUNT(f) FROM Favorite f GROUP BY f.property.id")
+    List<Object[]> countGroupedByProperty();
 }
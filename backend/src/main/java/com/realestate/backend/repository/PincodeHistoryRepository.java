@@ -0,0 +1,25 @@
+package com.realestate.backend.repository;
+
+import com.realestate.backend.entity.PincodeHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface PincodeHistoryRepository extends JpaRepository<PincodeHistory, Long> {
+
+    // Rows of one resolution from a date on, oldest first (loading the recent daily series)
+    List<PincodeHistory> findByResolutionAndPeriodStartGreaterThanEqualOrderByPeriodStartAsc(String resolution,
+            LocalDate from);
+
+    // Rows of one resolution older than a date (candidates for downsampling)
+    List<PincodeHistory> findByResolutionAndPeriodStartBefore(String resolution, LocalDate before);
+
+    // Latest period recorded at a resolution, null when none
+    @Query("SELECT MAX(h.periodStart) FROM PincodeHistory h WHERE h.resolution = :resolution")
+    LocalDate findLatestPeriodStart(@Param("resolution") String resolution);
+}
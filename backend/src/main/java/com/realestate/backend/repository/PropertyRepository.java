@@ -2,18 +2,40 @@ package com.realestate.backend.repository;
 
 import com.realestate.backend.entity.Property;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface PropertyRepository extends JpaRepository<Property, Long> {
+public interface PropertyRepository extends JpaRepository<Property, Long>, PropertyRepositoryCustom {
 
     @Query("SELECT p FROM Property p WHERE (p.active = true OR p.active IS NULL) AND (p.sold = false OR p.sold IS NULL)")
     List<Property> findVisibleProperties();
 
+    /** Fill the lower-cased filter keys on rows written before those columns existed (run once, from the admin API). */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Property p SET p.cityKey = LOWER(p.city), p.typeKey = LOWER(p.type), " +
+            "p.purposeKey = LOWER(COALESCE(p.purpose, 'Sale')) WHERE p.purposeKey IS NULL")
+    int backfillFilterKeys();
+
+    /** Count one view without loading or re-saving the listing (see PropertyIndex.countersChanged). */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Property p SET p.views = COALESCE(p.views, 0) + 1, p.lastViewedAt = :now WHERE p.id = :id")
+    int incrementViews(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /** Count one inquiry without loading or re-saving the listing. */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Property p SET p.inquiries = COALESCE(p.inquiries, 0) + 1 WHERE p.id = :id")
+    int incrementInquiries(@Param("id") Long id);
+
     @Query("SELECT p FROM Property p WHERE p.agent.id = :agentId")
     List<Property> findByAgentId(@Param("agentId") Long agentId);
 
@@ -22,19 +44,6 @@ public interface PropertyRepository extends JpaRepository<Property, Long> {
 
     long countByAgent_IdInAndActiveTrueAndSoldFalse(List<Long> agentIds);
 
-    // Simplified top 5 queries
-    @Query("SELECT p FROM Property p WHERE p.pinCode = :pinCode AND (p.active = true OR p.active IS NULL) AND (p.sold = false OR p.sold IS NULL) ORDER BY p.price DESC")
-    List<Property> findTop5ByPinCodeVisibleOrderByPriceDesc(@Param("pinCode") String pinCode);
-
-    @Query("SELECT p FROM Property p WHERE p.pinCode = :pinCode AND (p.active = true OR p.active IS NULL) AND (p.sold = false OR p.sold IS NULL) ORDER BY p.price ASC")
-    List<Property> findTop5ByPinCodeVisibleOrderByPriceAsc(@Param("pinCode") String pinCode);
-
-    @Query("SELECT p FROM Property p WHERE p.pinCode = :pinCode AND (p.active = true OR p.active IS NULL) AND (p.sold = false OR p.sold IS NULL) ORDER BY p.listedDate DESC")
-    List<Property> findTop5ByPinCodeVisibleOrderByListedDateDesc(@Param("pinCode") String pinCode);
-
-    @Query("SELECT p FROM Property p WHERE p.pinCode = :pinCode AND (p.active = true OR p.active IS NULL) AND (p.sold = false OR p.sold IS NULL) ORDER BY p.views DESC")
-    List<Property> findTop5ByPinCodeVisibleOrderByViewsDesc(@Param("pinCode") String pinCode);
-
     List<Property> findTop5ByPinCodeAndActiveTrueAndSoldFalseOrderByListedDateDesc(String pinCode);
 
     List<Property> findTop5ByPinCodeAndActiveTrueAndSoldFalseOrderByViewsDesc(String pinCode);
@@ -43,36 +52,12 @@ public interface PropertyRepository extends JpaRepository<Property, Long> {
 
     List<Property> findTop5ByPinCodeAndActiveTrueAndSoldFalseOrderByPriceDesc(String pinCode);
 
-    // Simplified map counters
-    @Query("SELECT p.pinCode, COUNT(p), AVG(p.price / p.area) FROM Property p WHERE (p.active = true OR p.active IS NULL) AND (p.sold = false OR p.sold IS NULL) AND p.area > 0 GROUP BY p.pinCode")
-    List<Object[]> countActivePropertiesByPinCode();
-
-    @Query("SELECT p.pinCode, COUNT(p), AVG(p.price / p.area) FROM Property p WHERE (p.active = true OR p.active IS NULL) AND (p.sold = false OR p.sold IS NULL) AND p.area > 0 AND LOWER(p.purpose) = LOWER(:purpose) GROUP BY p.pinCode")
-    List<Object[]> countActivePropertiesByPinCodeAndPurpose(@Param("purpose") String purpose);
-
-    @Query("SELECT p.pinCode, COUNT(p), AVG(p.price / p.area) FROM Property p WHERE (p.active = true OR p.active IS NULL) AND (p.sold = false OR p.sold IS NULL) AND p.area > 0 AND LOWER(p.type) = LOWER(:type) GROUP BY p.pinCode")
-    List<Object[]> countActivePropertiesByPinCodeAndType(@Param("type") String type);
-
-    @Query("SELECT p.pinCode, COUNT(p), AVG(p.price / p.area) FROM Property p WHERE (p.active = true OR p.active IS NULL) AND (p.sold = false OR p.sold IS NULL) AND p.area > 0 AND LOWER(p.purpose) = LOWER(:purpose) AND LOWER(p.type) = LOWER(:type) GROUP BY p.pinCode")
-    List<Object[]> countActivePropertiesByPinCodeAndPurposeAndType(@Param("purpose") String purpose, @Param("type") String type);
-
-    @Query("SELECT p.pinCode, COUNT(p), AVG(p.price / p.area), SUM(CAST(p.views AS long)), SUM(CAST(p.favorites AS long)), SUM(CAST(p.inquiries AS long)) FROM Property p WHERE (p.active = true OR p.active IS NULL) AND (p.sold = false OR p.sold IS NULL) AND p.area > 0 AND LOWER(p.city) = LOWER(:city) GROUP BY p.pinCode")
-    List<Object[]> countActivePropertiesByPinCodeAndCity(@Param("city") String city);
-
-    @Query("SELECT p.pinCode, COUNT(p), AVG(p.price / p.area), SUM(CAST(p.views AS long)), SUM(CAST(p.favorites AS long)), SUM(CAST(p.inquiries AS long)) FROM Property p WHERE (p.active = true OR p.active IS NULL) AND (p.sold = false OR p.sold IS NULL) AND p.area > 0 AND LOWER(p.city) = LOWER(:city) AND LOWER(p.purpose) LIKE LOWER(CONCAT('%', :purpose, '%')) GROUP BY p.pinCode")
-    List<Object[]> countActivePropertiesByPinCodeAndCityAndPurposeWithEngagement(@Param("city") String city, @Param("purpose") String purpose);
-
-    @Query("SELECT p.pinCode, COUNT(p), AVG(p.price / p.area), SUM(CAST(p.views AS long)), SUM(CAST(p.favorites AS long)), SUM(CAST(p.inquiries AS long)) FROM Property p WHERE (p.active = true OR p.active IS NULL) AND (p.sold = false OR p.sold IS NULL) AND p.area > 0 AND LOWER(p.city) = LOWER(:city) AND LOWER(p.type) = LOWER(:type) GROUP BY p.pinCode")
-    List<Object[]> countActivePropertiesByPinCodeAndCityAndType(@Param("city") String city, @Param("type") String type);
-
-    @Query("SELECT p.pinCode, COUNT(p), AVG(p.price / p.area), SUM(CAST(p.views AS long)), SUM(CAST(p.favorites AS long)), SUM(CAST(p.inquiries AS long)) FROM Property p WHERE (p.active = true OR p.active IS NULL) AND (p.sold = false OR p.sold IS NULL) AND p.area > 0 AND LOWER(p.city) = LOWER(:city) AND LOWER(p.purpose) LIKE LOWER(CONCAT('%', :purpose, '%')) AND LOWER(p.type) = LOWER(:type) GROUP BY p.pinCode")
-    List<Object[]> countActivePropertiesByPinCodeAndCityAndPurposeAndTypeWithEngagement(@Param("city") String city, @Param("purpose") String purpose, @Param("type") String type);
-
-    @Query("SELECT p FROM Property p WHERE (p.active = true OR p.active IS NULL) AND (p.sold = false OR p.sold IS NULL) AND LOWER(p.city) = LOWER(:city)")
-    List<Property> findByCityVisible(@Param("city") String city);
-
     @Query("SELECT DISTINCT p.city FROM Property p WHERE (p.active = true OR p.active IS NULL) AND (p.sold = false OR p.sold IS NULL) AND p.city IS NOT NULL AND p.city != ''")
     List<String> findDistinctActiveCities();
 
     long countBySoldTrue();
+
+    /** [cityKey, pinCode, count] of listings sold in [from, to), one row per city and pincode. */
+    @Query("SELECT p.cityKey, p.pinCode, COUNT(p) FROM Property p WHERE p.sold = true AND p.soldAt >= :from AND p.soldAt < :to GROUP BY p.cityKey, p.pinCode")
+    List<Object[]> countSoldByCityAndPinCode(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 }
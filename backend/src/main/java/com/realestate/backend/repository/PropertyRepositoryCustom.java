@@ -0,0 +1,25 @@
+package com.realestate.backend.repository;
+
+import com.realestate.backend.dto.PropertyListDTO;
+import com.realestate.backend.service.ListingCursor;
+import com.realestate.backend.service.ListingFilter;
+import com.realestate.backend.service.ListingSort;
+
+import java.util.stream.Stream;
+
+/**
+ * Hand-written queries for PropertyRepository that derived/JPQL methods cannot express.
+ */
+public interface PropertyRepositoryCustom {
+
+    /**
+     * List cards ordered by {@code sort} (ties on id), starting strictly after
+     * {@code after}. All filtering happens in the database and only the card columns
+     * are selected. Yields up to {@code limit + 1} rows so callers can tell whether
+     * another page exists; rows are read from the cursor as the stream is consumed,
+     * so it must be closed and used inside a transaction. A null agentId or filter
+     * means no restriction.
+     */
+    Stream<PropertyListDTO> streamCards(Long agentId, boolean visibleOnly, boolean featuredOnly, ListingFilter filter,
+                                        ListingSort sort, ListingCursor after, int limit);
+}
@@ -0,0 +1,191 @@
+package com.realestate.backend.repository;
+
+import com.realestate.backend.dto.PropertyListDTO;
+import com.realestate.backend.entity.AgentProfile;
+import com.realestate.backend.entity.AppUser;
+import com.realestate.backend.entity.Property;
+import com.realestate.backend.service.KeysetPager;
+import com.realestate.backend.service.ListingCursor;
+import com.realestate.backend.service.ListingFilter;
+import com.realestate.backend.service.ListingSort;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+import org.hibernate.jpa.HibernateHints;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class PropertyRepositoryImpl implements PropertyRepositoryCustom {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final char LIKE_ESCAPE = '\\';
+    private static final String PURPOSE_PARAM = "purpose";
+    private static final int FETCH_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<PropertyListDTO> streamCards(Long agentId, boolean visibleOnly, boolean featuredOnly, ListingFilter filter,
+                                               ListingSort sort, ListingCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Property> p = query.from(Property.class);
+        Join<Property, AppUser> agent = p.join("agent");
+
+        List<Predicate> where = new ArrayList<>();
+        if (agentId != null) where.add(cb.equal(agent.get("id"), agentId));
+        if (visibleOnly) where.add(visible(cb, p));
+        if (featuredOnly) where.add(cb.isTrue(p.get("featured")));
+        if (filter != null) addFilters(cb, p, agent, filter, where);
+
+        Path<Long> id = p.get("id");
+        Expression<? extends Comparable<?>> key;
+        if (sort == ListingSort.NEWEST) {
+            Expression<LocalDateTime> listed = cb.coalesce(p.<LocalDateTime>get("listedDate"), EPOCH);
+            if (after != null) where.add(keysetAfter(cb, listed, ListingSort.fromEpochMicros(after.getKey()), id, after, sort));
+            key = listed;
+        } else {
+            Expression<Double> numeric = numericKey(cb, p, sort);
+            if (after != null) where.add(keysetAfter(cb, numeric, after.getKey(), id, after, sort));
+            key = numeric;
+        }
+
+        // List-card columns only: description, address and other detail-page TEXT columns stay in the database
+        query.multiselect(
+                        id, p.get("title"), p.get("type"), p.get("purpose"), p.get("price"), p.get("area"),
+                        p.get("city"), p.get("location"), p.get("pinCode"), p.get("propertyImages"), p.get("bhk"),
+                        p.get("bathrooms"), p.get("furnishing"), p.get("featured"), p.get("sold"),
+                        p.get("latitude"), p.get("longitude"), p.get("listedDate"), p.get("views"),
+                        p.get("amenities"), p.get("active"), p.get("soldAt"),
+                        agent.get("id"), agent.get("name"), agent.get("email"), agent.get("profilePictureUrl"),
+                        agent.get("verified"))
+                .where(where.toArray(new Predicate[0]))
+                .orderBy(sort.isDescending() ? cb.desc(key) : cb.asc(key), cb.asc(id));
+        TypedQuery<Tuple> typed = entityManager.createQuery(query);
+        if (filter != null && filter.getPurpose() != null) typed.setParameter(PURPOSE_PARAM, filter.getPurpose());
+        if (limit != KeysetPager.UNLIMITED) typed.setMaxResults(limit + 1);
+        typed.setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE);
+        return typed.getResultStream().map(PropertyRepositoryImpl::toCard);
+    }
+
+    /** Same visibility rule as findVisibleProperties: active and unsold, treating null as default. */
+    static Predicate visible(CriteriaBuilder cb, Root<Property> p) {
+        return cb.and(
+                cb.or(cb.isTrue(p.get("active")), cb.isNull(p.get("active"))),
+                cb.or(cb.isFalse(p.get("sold")), cb.isNull(p.get("sold"))));
+    }
+
+    /** GET /api/properties filter semantics, as predicates over the lower-cased key columns. */
+    private static void addFilters(CriteriaBuilder cb, Root<Property> p, Join<Property, AppUser> agent,
+                                   ListingFilter f, List<Predicate> where) {
+        if (f.getCity() != null) where.add(cb.equal(p.get("cityKey"), f.getCity()));
+        if (f.getType() != null) where.add(cb.equal(p.get("typeKey"), f.getType()));
+        if (f.getPurpose() != null) {
+            // Either side may contain the other, e.g. "rent" matches "for rent"
+            Expression<String> purpose = p.get("purposeKey");
+            where.add(cb.or(
+                    cb.like(purpose, contains(f.getPurpose()), LIKE_ESCAPE),
+                    cb.like(cb.parameter(String.class, PURPOSE_PARAM), cb.concat(cb.concat("%", purpose), "%"))));
+        }
+        if (f.getMinPrice() != null) where.add(cb.ge(p.get("price"), f.getMinPrice()));
+        if (f.getMaxPrice() != null) where.add(cb.le(p.get("price"), f.getMaxPrice()));
+        if (f.getBhk() != null) where.add(cb.equal(p.get("bhk"), f.getBhk()));
+        if (f.getPincode() != null) where.add(cb.equal(p.get("pinCode"), f.getPincode()));
+        for (String amenity : f.getAmenities()) {
+            where.add(cb.like(cb.lower(p.get("amenities")), contains(amenity), LIKE_ESCAPE));
+        }
+        if (f.getSearch() != null) {
+            String pattern = contains(f.getSearch());
+            Join<AppUser, AgentProfile> profile = agent.join("agentProfile", JoinType.LEFT);
+            // Agents without a profile show up as "Independent", as in AppUser.getAgencyName()
+            Expression<String> agency = cb.<String>selectCase()
+                    .when(cb.isNull(profile.get("id")), "independent")
+                    .otherwise(cb.lower(profile.get("agencyName")));
+            // Substring matches: only the trigram indexes in RUN_MIGRATION.md keep these off a full scan
+            where.add(cb.or(
+                    cb.like(cb.lower(p.get("title")), pattern, LIKE_ESCAPE),
+                    cb.like(cb.lower(p.get("location")), pattern, LIKE_ESCAPE),
+                    cb.like(cb.lower(p.get("description")), pattern, LIKE_ESCAPE),
+                    cb.like(cb.lower(agent.get("name")), pattern, LIKE_ESCAPE),
+                    cb.like(agency, pattern, LIKE_ESCAPE)));
+        }
+    }
+
+    /** LIKE pattern matching {@code value} anywhere, with wildcards in the value escaped. */
+    private static String contains(String value) {
+        String escaped = value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+
+    /** Database form of ListingSort.keyOf, including its missing-value substitution. */
+    private static Expression<Double> numericKey(CriteriaBuilder cb, Root<Property> p, ListingSort sort) {
+        Expression<Double> price = p.get("price");
+        Double missing = sort.missingKey();
+        return switch (sort) {
+            case PRICE_ASC, PRICE_DESC -> cb.coalesce(price, missing);
+            case PRICE_PER_SQFT_ASC, PRICE_PER_SQFT_DESC -> {
+                Expression<Double> area = p.get("area");
+                Expression<Double> ratio = cb.<Double>selectCase()
+                        .when(cb.gt(area, 0.0), cb.quot(price, area).as(Double.class))
+                        .otherwise(missing);
+                yield cb.coalesce(ratio, missing);
+            }
+            case VIEWS -> cb.coalesce(p.<Integer>get("views"), 0).as(Double.class);
+            default -> throw new IllegalArgumentException("Sort '" + sort.getParam() + "' is not supported here");
+        };
+    }
+
+    private static <Y extends Comparable<? super Y>> Predicate keysetAfter(CriteriaBuilder cb, Expression<Y> key, Y value,
+                                                                           Path<Long> id, ListingCursor after, ListingSort sort) {
+        Predicate beyond = sort.isDescending() ? cb.lessThan(key, value) : cb.greaterThan(key, value);
+        return cb.or(beyond, cb.and(cb.equal(key, value), cb.greaterThan(id, after.getId())));
+    }
+
+    /** Same mapping as PropertyListDTO.from, from the projected columns. */
+    private static PropertyListDTO toCard(Tuple row) {
+        PropertyListDTO dto = new PropertyListDTO();
+        dto.setId(row.get(0, Long.class));
+        dto.setTitle(row.get(1, String.class));
+        dto.setType(row.get(2, String.class));
+        dto.setPurpose(row.get(3, String.class));
+        dto.setPrice(row.get(4, Double.class));
+        dto.setArea(row.get(5, Double.class));
+        dto.setCity(row.get(6, String.class));
+        dto.setLocation(row.get(7, String.class));
+        dto.setPinCode(row.get(8, String.class));
+        dto.setPhotos(row.get(9, String.class));
+        dto.setBhk(row.get(10, Integer.class));
+        dto.setBathrooms(row.get(11, Integer.class));
+        dto.setFurnishing(row.get(12, String.class));
+        Boolean featured = row.get(13, Boolean.class);
+        Boolean sold = row.get(14, Boolean.class);
+        dto.setFeatured(featured != null ? featured : false);
+        dto.setSold(sold != null ? sold : false);
+        dto.setLatitude(row.get(15, Double.class));
+        dto.setLongitude(row.get(16, Double.class));
+        LocalDateTime listedDate = row.get(17, LocalDateTime.class);
+        dto.setCreatedAt(listedDate);
+        dto.setListedDate(listedDate);
+        Integer views = row.get(18, Integer.class);
+        dto.setViews(views != null ? views : 0);
+        dto.setAmenities(row.get(19, String.class));
+        Boolean active = row.get(20, Boolean.class);
+        dto.setActive(active != null ? active : true);
+        dto.setStatus(Boolean.TRUE.equals(sold) ? "SOLD" : Boolean.TRUE.equals(active) ? "LISTED" : "UNLISTED");
+        dto.setSoldAt(row.get(21, LocalDateTime.class));
+
+        Long agentId = row.get(22, Long.class);
+        String agentName = row.get(23, String.class);
+        dto.setAgentId(agentId);
+        dto.setAgentName(agentName);
+        dto.setAgent(new PropertyListDTO.AgentSummary(agentId, agentName, row.get(24, String.class), row.get(25, String.class)));
+        dto.setIsVerified(row.get(26, Boolean.class));
+        return dto;
+    }
+}
@@ -1,5 +1,6 @@
 package com.realestate.backend.security;
 
+import com.realestate.backend.service.ListingCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -45,6 +46,7 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/api/agents/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/agencies/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/reviews/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/map/**").permitAll()
                         .requestMatchers("/api/analytics/**").permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/contact").permitAll()
                         .requestMatchers("/uploads/**").permitAll()
@@ -81,7 +83,7 @@ public class SecurityConfig {
         ));
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         config.setAllowedHeaders(List.of("*"));
-        config.setExposedHeaders(List.of("Authorization"));
+        config.setExposedHeaders(List.of("Authorization", ListingCursor.HEADER));
         config.setAllowCredentials(true);
         config.setMaxAge(3600L);
 
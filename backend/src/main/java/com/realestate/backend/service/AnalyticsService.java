@@ -4,17 +4,14 @@ import com.realestate.backend.entity.AppUser;
 import com.realestate.backend.entity.PincodeScore;
 import com.realestate.backend.entity.Property;
 import com.realestate.backend.entity.PropertyView;
-import com.realestate.backend.repository.FavoriteRepository;
-import com.realestate.backend.repository.PincodeScoreRepository;
 import com.realestate.backend.repository.PropertyRepository;
 import com.realestate.backend.repository.PropertyViewRepository;
-import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -25,186 +22,31 @@ public class AnalyticsService {
     private PropertyRepository propertyRepository;
 
     @Autowired
-    private PincodeScoreRepository pincodeScoreRepository;
+    private PincodeAggregateIndex pincodeAggregateIndex;
 
     @Autowired
-    private FavoriteRepository favoriteRepository;
+    private HeatmapCubeIndex heatmapCubeIndex;
 
-    /**
-     * Auto-compute scores for all cities on application startup
-     */
-    @PostConstruct
-    public void computeScoresOnStartup() {
-        try {
-            // Get all distinct cities that have active properties
-            List<String> cities = propertyRepository.findDistinctActiveCities();
-            if (cities.isEmpty()) {
-                // Fallback: try known cities even if no properties exist yet
-                System.out.println("[Analytics] No active properties found for any city on startup.");
-                return;
-            }
-            System.out.println("[Analytics] Auto-computing heatmap scores for cities: " + cities);
-            for (String city : cities) {
-                if (city != null && !city.trim().isEmpty()) {
-                    computeScoresForCity(city);
-                }
-            }
-            System.out.println("[Analytics] Heatmap scores computed successfully on startup.");
-        } catch (Exception e) {
-            System.err.println("[Analytics] Failed to compute scores on startup: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Compute scores for all known cities (Ahmedabad, Mumbai, Bangalore)
-     */
-    @Transactional
-    public void computeScoresForAllCities() {
-        List<String> knownCities = Arrays.asList("Ahmedabad", "Mumbai", "Bangalore");
-        for (String city : knownCities) {
-            computeScoresForCity(city);
-        }
-    }
-
-    /**
-     * Compute all heatmap scores for a specific city
-     */
-    @Transactional
-    public void computeScoresForCity(String city) {
-        // Get all active, unsold properties for this city (case-insensitive + approval check)
-        List<Property> properties = propertyRepository.findByCityVisible(city);
-
-        // ALWAYS load existing scores for this city to ensure we reset any that no
-        // longer
-        // have listings
-        List<PincodeScore> existingScores = pincodeScoreRepository.findByCityIgnoreCase(city);
-        Map<String, PincodeScore> existingScoresMap = existingScores.stream()
-                .collect(Collectors.toMap(PincodeScore::getPincode, s -> s));
-
-        // Reset all existing scores for this city first
-        for (PincodeScore score : existingScores) {
-            score.setActiveListings(0);
-            score.setPriceScore(0.0);
-            score.setMedianPricePerSqft(0.0);
-            score.setMarketActivityScore(0.0);
-            score.setInventoryScore(0.0);
-            score.setDemandScore(0.0);
-            score.setTotalViews(0);
-            score.setTotalFavorites(0);
-            score.setTotalInquiries(0);
-        }
-
-        if (properties.isEmpty()) {
-            pincodeScoreRepository.saveAll(existingScores);
-            return;
-        }
-
-        // Group properties by pincode
-        Map<String, List<Property>> propertiesByPincode = properties.stream()
-                .filter(p -> p.getPinCode() != null && !p.getPinCode().trim().isEmpty())
-                .collect(Collectors.groupingBy(Property::getPinCode));
-
-        // Compute scores for each pincode that HAS properties
-        List<PincodeScore> scoresToSave = new ArrayList<>();
-
-        for (Map.Entry<String, List<Property>> entry : propertiesByPincode.entrySet()) {
-            String pincode = entry.getKey();
-            List<Property> pincodeProperties = entry.getValue();
-
-            // Reuse existing score or create new one
-            PincodeScore score = existingScoresMap.getOrDefault(pincode, new PincodeScore(city, pincode));
-
-            // Re-compute metrics (this will overwrite the reset values)
-            score = computePincodeScore(city, pincode, pincodeProperties, properties);
-            scoresToSave.add(score);
-        }
-
-        // Add back the reset scores for pincodes that NO LONGER have properties and
-        // explicitly delete them
-        List<PincodeScore> scoresToDelete = new ArrayList<>();
-        for (PincodeScore es : existingScores) {
-            if (!propertiesByPincode.containsKey(es.getPincode())) {
-                scoresToDelete.add(es);
-            }
-        }
-
-        if (!scoresToDelete.isEmpty()) {
-            pincodeScoreRepository.deleteAll(scoresToDelete);
-        }
-
-        // Normalize scores across all pincodes
-        normalizeScores(scoresToSave);
+    @Autowired
+    private PincodeHistoryService pincodeHistoryService;
 
-        // Save all scores
-        pincodeScoreRepository.saveAll(scoresToSave);
-    }
+    // Lazy: the registry's indexes include HeatmapRecomputeScheduler, which depends on this service
+    // through HeatmapSnapshotService
+    @Autowired
+    private ObjectProvider<PropertyIndexRegistry> propertyIndexRegistry;
 
     /**
-     * Compute raw scores for a single pincode
+     * Buyer and agent scores of a pincode from its raw metrics (listings, prices,
+     * days on market, engagement, agents) and, for growth and conversion, its
+     * PincodeHistoryService series. Market activity and demand are still raw here;
+     * normalizeScores ranks them across the city.
      */
-    private PincodeScore computePincodeScore(String city, String pincode,
-            List<Property> pincodeProperties,
-            List<Property> allCityProperties) {
-        PincodeScore score = pincodeScoreRepository
-                .findByCityAndPincode(city, pincode)
-                .orElse(new PincodeScore(city, pincode));
-
-        // === RAW METRICS ===
-        int activeListings = pincodeProperties.size();
-        score.setActiveListings(activeListings);
-
-        // Price metrics
-        List<Double> pricesPerSqft = pincodeProperties.stream()
-                .filter(p -> p.getArea() > 0)
-                .map(p -> p.getPrice() / p.getArea())
-                .sorted()
-                .collect(Collectors.toList());
-
-        if (!pricesPerSqft.isEmpty()) {
-            score.setMedianPricePerSqft(getMedian(pricesPerSqft));
-            score.setAvgPricePerSqft(pricesPerSqft.stream()
-                    .mapToDouble(Double::doubleValue)
-                    .average()
-                    .orElse(0.0));
-        }
-
-        // Days on market
-        List<Long> daysOnMarket = pincodeProperties.stream()
-                .filter(p -> p.getListedDate() != null)
-                .map(p -> ChronoUnit.DAYS.between(p.getListedDate(), LocalDateTime.now()))
-                .collect(Collectors.toList());
-
-        if (!daysOnMarket.isEmpty()) {
-            score.setAvgDaysOnMarket(daysOnMarket.stream()
-                    .mapToDouble(Long::doubleValue)
-                    .average()
-                    .orElse(0.0));
-        }
-
-        // Engagement metrics
-        int totalViews = pincodeProperties.stream()
-                .mapToInt(Property::getViews)
-                .sum();
-        score.setTotalViews(totalViews);
-
-        // Count favorites for this pincode
-        int totalFavorites = (int) pincodeProperties.stream()
-                .mapToLong(p -> favoriteRepository.countByProperty_Id(p.getId()))
-                .sum();
-        score.setTotalFavorites(totalFavorites);
-
-        int totalInquiries = pincodeProperties.stream()
-                .mapToInt(Property::getInquiries)
-                .sum();
-        score.setTotalInquiries(totalInquiries);
-
-        // Agent count
-        long agentCount = pincodeProperties.stream()
-                .map(p -> p.getAgent() != null ? p.getAgent().getId() : null)
-                .filter(Objects::nonNull)
-                .distinct()
-                .count();
-        score.setAgentCount((int) agentCount);
+    private void applyDerivedScores(PincodeScore score, int maxListings, double cityAvgListings) {
+        int activeListings = score.getActiveListings();
+        int totalViews = score.getTotalViews();
+        int totalFavorites = score.getTotalFavorites();
+        int totalInquiries = score.getTotalInquiries();
+        int agentCount = score.getAgentCount();
 
         // === BUYER SCORES ===
 
@@ -214,14 +56,6 @@ public class AnalyticsService {
         }
 
         // 2. Inventory Score (simple ratio)
-        int maxListings = allCityProperties.stream()
-                .collect(Collectors.groupingBy(Property::getPinCode))
-                .values()
-                .stream()
-                .mapToInt(List::size)
-                .max()
-                .orElse(1);
-
         score.setInventoryScore((activeListings / (double) maxListings) * 100.0);
 
         // 3. Market Activity Score (engagement + liquidity)
@@ -235,13 +69,6 @@ public class AnalyticsService {
         score.setMarketActivityScore((demandComponent * 0.5 + liquidityComponent * 0.5));
 
         // 4. Buyer Opportunity Score
-        long uniquePincodeCount = allCityProperties.stream()
-                .map(Property::getPinCode)
-                .filter(Objects::nonNull)
-                .distinct()
-                .count();
-
-        double cityAvgListings = allCityProperties.size() / (double) (uniquePincodeCount > 0 ? uniquePincodeCount : 1);
         double inventoryLevel = activeListings / cityAvgListings;
 
         double daysComponent = Math.min(avgDays / 90.0, 1.0) * 40.0;
@@ -259,77 +86,53 @@ public class AnalyticsService {
         // 2. Liquidity Score
         score.setLiquidityScore(liquidityComponent);
 
-        // 3. Growth Score (placeholder - requires historical data)
-        score.setGrowthScore(50.0); // Neutral until we have price history
+        // 3. Growth Score (median price per sqft against the pincode's history)
+        score.setGrowthScore(pincodeHistoryService.growthScore(score.getCity(), score.getPincode(),
+                score.getMedianPricePerSqft()));
 
         // 4. Saturation Score
         double listingsPerAgent = agentCount > 0 ? activeListings / (double) agentCount : 0;
         score.setSaturationScore(100.0 - Math.min(listingsPerAgent * 10.0, 100.0));
 
-        // 5. Conversion Score (placeholder - requires sold property tracking)
-        score.setConversionScore(50.0); // Neutral until we track conversions
+        // 5. Conversion Score (recent sales against what is still listed)
+        score.setConversionScore(pincodeHistoryService.conversionScore(score.getCity(), score.getPincode(),
+                activeListings));
 
         score.setLastComputed(LocalDateTime.now());
-
-        return score;
     }
 
     /**
-     * Normalize scores across all pincodes using appropriate methods
+     * Normalize scores across all pincodes: price on a log scale between the city's
+     * cheapest and dearest pincode, market activity and demand by percentile rank.
      */
     private void normalizeScores(List<PincodeScore> scores) {
-        if (scores.isEmpty())
+        int n = scores.size();
+        if (n == 0)
             return;
 
-        // 1. Normalize Price Score using log scale
-        List<Double> prices = scores.stream()
-                .map(PincodeScore::getPriceScore)
-                .filter(Objects::nonNull)
-                .filter(p -> p > 0)
-                .collect(Collectors.toList());
-
-        if (!prices.isEmpty()) {
-            double minPrice = prices.stream().mapToDouble(Double::doubleValue).min().orElse(0.0);
-            double maxPrice = prices.stream().mapToDouble(Double::doubleValue).max().orElse(0.0);
-
-            if (minPrice > 0 && maxPrice > 0) {
-                double minLog = Math.log(minPrice);
-                double maxLog = Math.log(maxPrice);
-                double range = maxLog - minLog;
-
-                if (range > 0) {
-                    for (PincodeScore score : scores) {
-                        if (score.getPriceScore() != null && score.getPriceScore() > 0) {
-                            double logPrice = Math.log(score.getPriceScore());
-                            double normalized = ((logPrice - minLog) / range) * 100.0;
-                            // Guard against NaN/Infinity
-                            if (Double.isNaN(normalized) || Double.isInfinite(normalized)) {
-                                normalized = 50.0;
-                            }
-                            score.setPriceScore(normalized);
-                        } else {
-                            score.setPriceScore(50.0); // Default for missing price data
-                        }
-                    }
-                } else {
-                    // All prices the same — set to 50
-                    for (PincodeScore score : scores) {
-                        score.setPriceScore(50.0);
-                    }
-                }
-            } else {
-                // No valid non-zero prices at all — set all to 50
-                for (PincodeScore score : scores) {
-                    score.setPriceScore(50.0);
-                }
+        // 1. Normalize Price Score using log scale; 50 when prices are missing or all equal
+        double[] logPrice = new double[n];
+        double minLog = Double.POSITIVE_INFINITY;
+        double maxLog = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            Double price = scores.get(i).getPriceScore();
+            logPrice[i] = price != null && price > 0 ? Math.log(price) : Double.NaN;
+            if (!Double.isNaN(logPrice[i])) {
+                minLog = Math.min(minLog, logPrice[i]);
+                maxLog = Math.max(maxLog, logPrice[i]);
             }
-        } else {
-            // No valid prices at all — set all to 50
-            for (PincodeScore score : scores) {
-                if (score.getPriceScore() == null || score.getPriceScore() <= 0) {
-                    score.setPriceScore(50.0);
+        }
+        double range = maxLog - minLog;
+        for (int i = 0; i < n; i++) {
+            double normalized = 50.0;
+            if (range > 0 && !Double.isNaN(logPrice[i])) {
+                normalized = ((logPrice[i] - minLog) / range) * 100.0;
+                // Guard against NaN/Infinity
+                if (Double.isNaN(normalized) || Double.isInfinite(normalized)) {
+                    normalized = 50.0;
                 }
             }
+            scores.get(i).setPriceScore(normalized);
         }
 
         // 2. Normalize Market Activity Score using percentile ranking
@@ -340,40 +143,30 @@ public class AnalyticsService {
     }
 
     /**
-     * Normalize scores using percentile ranking
+     * Normalize scores using percentile ranking; ties keep their input order
      */
     private void normalizeByPercentile(List<PincodeScore> scores,
             java.util.function.Function<PincodeScore, Double> getter,
             java.util.function.BiConsumer<PincodeScore, Double> setter) {
-        List<PincodeScore> sorted = scores.stream()
-                .filter(s -> getter.apply(s) != null)
-                .sorted(Comparator.comparing(getter))
-                .collect(Collectors.toList());
-
-        int n = sorted.size();
+        int[] present = new int[scores.size()];
+        double[] values = new double[scores.size()];
+        int n = 0;
+        for (int i = 0; i < scores.size(); i++) {
+            Double value = getter.apply(scores.get(i));
+            if (value == null)
+                continue;
+            present[n] = i;
+            values[n++] = value;
+        }
         if (n == 0)
             return;
         if (n == 1) {
-            setter.accept(sorted.get(0), 50.0); // Neutral when only one pincode (no comparison data)
+            setter.accept(scores.get(present[0]), 50.0); // Neutral when only one pincode (no comparison data)
             return;
         }
+        int[] ranks = PincodeScoringKernel.ranks(values, n);
         for (int i = 0; i < n; i++) {
-            double percentile = (i / (double) (n - 1)) * 100.0;
-            setter.accept(sorted.get(i), percentile);
-        }
-    }
-
-    /**
-     * Get median value from a sorted list
-     */
-    private double getMedian(List<Double> sortedList) {
-        int size = sortedList.size();
-        if (size == 0)
-            return 0.0;
-        if (size % 2 == 0) {
-            return (sortedList.get(size / 2 - 1) + sortedList.get(size / 2)) / 2.0;
-        } else {
-            return sortedList.get(size / 2);
+            setter.accept(scores.get(present[i]), (ranks[i] / (double) (n - 1)) * 100.0);
         }
     }
 
@@ -389,7 +182,8 @@ public class AnalyticsService {
     // ... existing initialization ...
 
     /**
-     * Track a property view (Unique per user)
+     * Track a property view (Unique per user). The counter is bumped in place and
+     * reaches the indexes as a counters-only change, not a full re-index.
      */
     @Transactional
     public void trackView(Long propertyId, Long userId) {
@@ -422,10 +216,8 @@ public class AnalyticsService {
             // Increment public view count only if it's a unique view (or guest)
             // Note: For guests (userId=null), we always increment (simple cookie-based
             // tracking is out of scope)
-            if (isUniqueView) {
-                property.setViews(property.getViews() + 1);
-                property.setLastViewedAt(LocalDateTime.now());
-                propertyRepository.save(property);
+            if (isUniqueView && propertyRepository.incrementViews(propertyId, LocalDateTime.now()) > 0) {
+                PropertyIndexRegistry.afterCommit(() -> propertyIndexRegistry.getObject().countersChanged(propertyId, 1, 0));
             }
         });
     }
@@ -457,41 +249,59 @@ public class AnalyticsService {
     public void trackInquiry(Long propertyId) {
         if (propertyId == null)
             return;
-        propertyRepository.findById(propertyId).ifPresent(property -> {
-            property.setInquiries(property.getInquiries() + 1);
-            propertyRepository.save(property);
-        });
+        // A counter-only update: no entity save, so the listing is not re-indexed in full
+        if (propertyRepository.incrementInquiries(propertyId) > 0) {
+            PropertyIndexRegistry.afterCommit(() -> propertyIndexRegistry.getObject().countersChanged(propertyId, 0, 1));
+        }
     }
 
     /**
      * Get heatmap data for a city
      */
     public List<Map<String, Object>> getHeatmapData(String city, String mode) {
-        // Use case-insensitive lookup so "Ahmedabad" matches "ahmedabad" in DB
-        List<PincodeScore> scores = pincodeScoreRepository.findByCityIgnoreCase(city);
-
-        // If no scores exist yet, trigger computation on-the-fly
-        if (scores.isEmpty()) {
-            System.out.println("[Analytics] No scores found for city '" + city + "', computing now...");
-            computeScoresForCity(city);
-            scores = pincodeScoreRepository.findByCityIgnoreCase(city);
-        }
+        List<PincodeScore> scores = liveScores(city);
+        Map<String, double[]> quantiles = heatmapCubeIndex.priceQuantiles(city, null, null);
 
-        return scores.stream().map(score -> {
-            Map<String, Object> data = new HashMap<>();
-            data.put("pincode", score.getPincode());
-            data.put("score", getScoreByMode(score, mode));
-            data.put("activeListings", score.getActiveListings());
-            data.put("medianPrice", score.getMedianPricePerSqft());
-            return data;
-        }).collect(Collectors.toList());
+        return scores.stream()
+                .map(score -> toHeatmapEntry(score, mode, quantiles.get(score.getPincode())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * One pincode of a heatmap response. quantiles is [p10, median, p90] price per
+     * sqft from HeatmapCubeIndex, or null when the pincode has no priced listing.
+     */
+    private Map<String, Object> toHeatmapEntry(PincodeScore score, String mode, double[] quantiles) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("pincode", score.getPincode());
+        data.put("score", scoreByMode(score, mode));
+        data.put("activeListings", score.getActiveListings());
+        data.put("medianPrice", score.getMedianPricePerSqft());
+        data.put("p10Price", quantiles != null ? quantiles[0] : null);
+        data.put("p90Price", quantiles != null ? quantiles[2] : null);
+        return data;
+    }
+
+    /**
+     * Current scores for a city, scored and normalized from the running pincode
+     * aggregates; only the cheap per-read normalization depends on the city's size
+     * in pincodes, nothing on its size in listings.
+     */
+    public List<PincodeScore> liveScores(String city) {
+        PincodeAggregateIndex.CityMetrics metrics = pincodeAggregateIndex.metrics(city);
+        List<PincodeScore> scores = metrics.getPincodes();
+        for (PincodeScore score : scores) {
+            applyDerivedScores(score, metrics.getMaxListings(), metrics.getCityAvgListings());
+        }
+        normalizeScores(scores);
+        return scores;
     }
 
     /**
      * Get the appropriate score based on mode.
      * Returns 0.0 instead of null to prevent NaN on the frontend.
      */
-    private Double getScoreByMode(PincodeScore score, String mode) {
+    static double scoreByMode(PincodeScore score, String mode) {
         Double value = switch (mode.toLowerCase()) {
             case "price" -> score.getPriceScore();
             case "market_activity" -> score.getMarketActivityScore();
@@ -515,60 +325,55 @@ public class AnalyticsService {
      * Get heatmap data for a city, optionally filtered by property type and purpose
      */
     public List<Map<String, Object>> getHeatmapData(String city, String mode, String type, String purpose) {
-        boolean typeFilter = type != null && !type.equalsIgnoreCase("All") && !type.trim().isEmpty();
-        boolean purposeFilter = purpose != null && !purpose.equalsIgnoreCase("All") && !purpose.trim().isEmpty();
-
-        if (typeFilter || purposeFilter) {
+        if (hasFilters(type, purpose)) {
             return getDynamicHeatmapData(city, mode, type, purpose);
         }
         return getHeatmapData(city, mode);
     }
 
-    /**
-     * Generate heatmap data dynamically for a specific property type and/or purpose
-     */
-    private List<Map<String, Object>> getDynamicHeatmapData(String city, String mode, String type, String purpose) {
+    /** True when a heatmap request narrows by property type or purpose ("All" does not). */
+    public boolean hasFilters(String type, String purpose) {
         boolean typeFilter = type != null && !type.equalsIgnoreCase("All") && !type.trim().isEmpty();
         boolean purposeFilter = purpose != null && !purpose.equalsIgnoreCase("All") && !purpose.trim().isEmpty();
+        return typeFilter || purposeFilter;
+    }
 
-        List<Object[]> results;
-        if (typeFilter && purposeFilter) {
-            results = propertyRepository.countActivePropertiesByPinCodeAndCityAndPurposeAndTypeWithEngagement(city, purpose, type);
-        } else if (typeFilter) {
-            results = propertyRepository.countActivePropertiesByPinCodeAndCityAndType(city, type);
-        } else if (purposeFilter) {
-            results = propertyRepository.countActivePropertiesByPinCodeAndCityAndPurposeWithEngagement(city, purpose);
-        } else {
-            results = propertyRepository.countActivePropertiesByPinCodeAndCity(city);
-        }
+    /**
+     * Heatmap data for a specific property type and/or purpose, rolled up from the
+     * precomputed type × purpose cube
+     */
+    private List<Map<String, Object>> getDynamicHeatmapData(String city, String mode, String type, String purpose) {
+        Map<String, HeatmapCubeIndex.Rollup> rollups = heatmapCubeIndex.rollup(city, type, purpose);
         List<PincodeScore> dynamicScores = new ArrayList<>();
+        Map<String, double[]> quantiles = new HashMap<>();
 
-        int maxListings = 0;
-        for (Object[] row : results) {
-            Long count = (Long) row[1];
-            if (count > maxListings)
-                maxListings = count.intValue();
+        long maxListings = 1;
+        for (HeatmapCubeIndex.Rollup r : rollups.values()) {
+            maxListings = Math.max(maxListings, r.getCount());
         }
-        if (maxListings == 0)
-            maxListings = 1;
 
-        for (Object[] row : results) {
-            String pincode = (String) row[0];
-            Long count = (Long) row[1];
-            Double avgPrice = row[2] != null ? (Double) row[2] : 0.0;
-            Long views = row[3] != null ? (Long) row[3] : 0L;
-            Long favorites = row[4] != null ? (Long) row[4] : 0L;
-            Long inquiries = row[5] != null ? (Long) row[5] : 0L;
+        for (Map.Entry<String, HeatmapCubeIndex.Rollup> row : rollups.entrySet()) {
+            String pincode = row.getKey();
+            HeatmapCubeIndex.Rollup r = row.getValue();
+            long count = r.getCount();
+            long views = r.getViews();
+            long favorites = r.getFavorites();
+            long inquiries = r.getInquiries();
+
+            // No quantiles when none of the pincode's listings has a price per sqft
+            double[] q = r.quantiles();
+            if (q != null) quantiles.put(pincode, q);
+            Double medianPrice = q != null ? q[1] : null;
 
             PincodeScore score = new PincodeScore(city, pincode);
-            score.setActiveListings(count.intValue());
-            score.setMedianPricePerSqft(avgPrice); // Use Avg as proxy for Median in dynamic view
+            score.setActiveListings((int) count);
+            score.setMedianPricePerSqft(medianPrice);
 
             // Inventory Score
             score.setInventoryScore((count / (double) maxListings) * 100.0);
 
             // Price Score (Raw, will be normalized)
-            score.setPriceScore(avgPrice);
+            score.setPriceScore(medianPrice);
 
             // Demand Score (Raw Engagement per listing)
             double engagement = views + favorites + inquiries;
@@ -579,12 +384,7 @@ public class AnalyticsService {
             // aggregate)
             score.setMarketActivityScore(engagementPerListing);
 
-            // Buyer Opportunity (Simplified: Inventory Level)
-            // We lack days-on-market stats in this view, so we rely on price/inventory
-            // Lower price + Higher inventory = Better opportunity?
-            // Let's use a simple inverted price * inventory metric for now, or just leave
-            // as 50
-            // Actually, let's omit complex scores and fallback to Price/Inventory/Demand
+            // Buyer Opportunity: neutral, as days on market are not broken down by type and purpose
             score.setBuyerOpportunityScore(50.0);
 
             dynamicScores.add(score);
@@ -593,13 +393,8 @@ public class AnalyticsService {
         // Apply same normalization as pre-computed scores
         normalizeScores(dynamicScores);
 
-        return dynamicScores.stream().map(score -> {
-            Map<String, Object> data = new HashMap<>();
-            data.put("pincode", score.getPincode());
-            data.put("score", getScoreByMode(score, mode));
-            data.put("activeListings", score.getActiveListings());
-            data.put("medianPrice", score.getMedianPricePerSqft());
-            return data;
-        }).collect(Collectors.toList());
+        return dynamicScores.stream()
+                .map(score -> toHeatmapEntry(score, mode, quantiles.get(score.getPincode())))
+                .collect(Collectors.toList());
     }
 }
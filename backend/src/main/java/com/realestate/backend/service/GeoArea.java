@@ -0,0 +1,98 @@
+package com.realestate.backend.service;
+
+/**
+ * A search area for GET /api/properties/nearby (circle) and /within (bounding box).
+ * Both carry a bounding box for the grid lookup; distances are great-circle
+ * kilometres from the centre (the box's midpoint for /within).
+ */
+public class GeoArea {
+
+    public static final double DEFAULT_RADIUS_KM = 2;
+    public static final double MAX_RADIUS_KM = 50;
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    private final double centerLat;
+    private final double centerLng;
+    private final double radiusKm;
+    private final double minLat;
+    private final double minLng;
+    private final double maxLat;
+    private final double maxLng;
+
+    private GeoArea(double centerLat, double centerLng, double radiusKm,
+                    double minLat, double minLng, double maxLat, double maxLng) {
+        this.centerLat = centerLat;
+        this.centerLng = centerLng;
+        this.radiusKm = radiusKm;
+        this.minLat = minLat;
+        this.minLng = minLng;
+        this.maxLat = maxLat;
+        this.maxLng = maxLng;
+    }
+
+    /** Circle of {@code radiusKm} (default 2, at most 50) around a point. */
+    public static GeoArea circle(Double lat, Double lng, Double radiusKm) {
+        if (lat == null || lng == null) throw new IllegalArgumentException("lat and lng are required");
+        checkPoint(lat, lng);
+        double r = radiusKm != null ? radiusKm : DEFAULT_RADIUS_KM;
+        if (!(r > 0) || r > MAX_RADIUS_KM) {
+            throw new IllegalArgumentException("radiusKm must be greater than 0 and at most " + (int) MAX_RADIUS_KM);
+        }
+        double dLat = r / KM_PER_DEGREE;
+        // Longitude degrees shrink towards the poles; clamp so the box stays finite
+        double dLng = r / (KM_PER_DEGREE * Math.max(Math.cos(Math.toRadians(lat)), 0.01));
+        return new GeoArea(lat, lng, r, Math.max(-90, lat - dLat), Math.max(-180, lng - dLng),
+                Math.min(90, lat + dLat), Math.min(180, lng + dLng));
+    }
+
+    /** Box from {@code bbox=minLng,minLat,maxLng,maxLat} (GeoJSON order). */
+    public static GeoArea bbox(String bbox) {
+        if (bbox == null || bbox.isBlank()) throw new IllegalArgumentException("bbox is required");
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) throw new IllegalArgumentException("bbox must be minLng,minLat,maxLng,maxLat");
+        double[] v = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) v[i] = Double.parseDouble(parts[i].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bbox must be minLng,minLat,maxLng,maxLat");
+        }
+        checkPoint(v[1], v[0]);
+        checkPoint(v[3], v[2]);
+        if (v[0] > v[2] || v[1] > v[3]) {
+            throw new IllegalArgumentException("bbox minimums must not exceed its maximums");
+        }
+        return new GeoArea((v[1] + v[3]) / 2, (v[0] + v[2]) / 2, Double.NaN, v[1], v[0], v[3], v[2]);
+    }
+
+    private static void checkPoint(double lat, double lng) {
+        if (!(lat >= -90 && lat <= 90) || !(lng >= -180 && lng <= 180)) {
+            throw new IllegalArgumentException("Coordinates out of range: " + lat + "," + lng);
+        }
+    }
+
+    public boolean isCircle() {
+        return !Double.isNaN(radiusKm);
+    }
+
+    /** True if the point lies in the area. */
+    public boolean contains(double lat, double lng) {
+        if (lat < minLat || lat > maxLat || lng < minLng || lng > maxLng) return false;
+        return !isCircle() || distanceKm(lat, lng) <= radiusKm;
+    }
+
+    /** Haversine distance from the centre in kilometres. */
+    public double distanceKm(double lat, double lng) {
+        double dLat = Math.toRadians(lat - centerLat);
+        double dLng = Math.toRadians(lng - centerLng);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(centerLat)) * Math.cos(Math.toRadians(lat)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    public double getMinLat() { return minLat; }
+    public double getMinLng() { return minLng; }
+    public double getMaxLat() { return maxLat; }
+    public double getMaxLng() { return maxLng; }
+}
@@ -0,0 +1,154 @@
+package com.realestate.backend.service;
+
+import com.realestate.backend.entity.Property;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Uniform grid over the coordinates of visible listings, for radius and
+ * bounding-box search. Cells are {@link #CELL_DEGREES} on a side (about 1 km);
+ * a query visits only the cells its bounding box overlaps, or every occupied
+ * cell when that is fewer, so its cost follows the viewport, not the catalogue.
+ * Listings without coordinates are not indexed.
+ */
+@Service
+public class GeoIndexService implements PropertyIndex {
+
+    static final double CELL_DEGREES = 0.01;
+    private static final long LNG_CELLS = (long) Math.ceil(360 / CELL_DEGREES) + 1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, List<Point>> cells = new HashMap<>();
+    private final Map<Long, Point> points = new HashMap<>();
+
+    /** Listings inside the area: ids with their distance from its centre, in no particular order. */
+    public Hits within(GeoArea area) {
+        Hits hits = new Hits();
+        long minRow = row(area.getMinLat());
+        long maxRow = row(area.getMaxLat());
+        long minCol = col(area.getMinLng());
+        long maxCol = col(area.getMaxLng());
+        lock.readLock().lock();
+        try {
+            if ((maxRow - minRow + 1) * (maxCol - minCol + 1) > cells.size()) {
+                for (List<Point> cell : cells.values()) collect(cell, area, hits);
+            } else {
+                for (long r = minRow; r <= maxRow; r++) {
+                    for (long c = minCol; c <= maxCol; c++) {
+                        List<Point> cell = cells.get(r * LNG_CELLS + c);
+                        if (cell != null) collect(cell, area, hits);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return hits;
+    }
+
+    private static void collect(List<Point> cell, GeoArea area, Hits hits) {
+        for (Point p : cell) {
+            if (area.contains(p.lat, p.lng)) hits.add(p.id, area.distanceKm(p.lat, p.lng));
+        }
+    }
+
+    @Override
+    public void rebuild(List<Property> visible) {
+        lock.writeLock().lock();
+        try {
+            cells.clear();
+            points.clear();
+            for (Property p : visible) {
+                if (p.getId() != null && PropertyIndex.isVisible(p)) put(p);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Property property) {
+        if (property.getId() == null) return;
+        lock.writeLock().lock();
+        try {
+            drop(property.getId());
+            if (PropertyIndex.isVisible(property)) put(property);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long propertyId) {
+        lock.writeLock().lock();
+        try {
+            drop(propertyId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(Property p) {
+        Double lat = p.getLatitude();
+        Double lng = p.getLongitude();
+        if (lat == null || lng == null || !(Math.abs(lat) <= 90) || !(Math.abs(lng) <= 180)) return;
+        Point point = new Point(p.getId(), lat, lng);
+        points.put(point.id, point);
+        cells.computeIfAbsent(cellOf(lat, lng), k -> new ArrayList<>(4)).add(point);
+    }
+
+    private void drop(Long propertyId) {
+        Point point = points.remove(propertyId);
+        if (point == null) return;
+        long key = cellOf(point.lat, point.lng);
+        List<Point> cell = cells.get(key);
+        cell.remove(point);
+        if (cell.isEmpty()) cells.remove(key);
+    }
+
+    private static long cellOf(double lat, double lng) {
+        return row(lat) * LNG_CELLS + col(lng);
+    }
+
+    private static long row(double lat) {
+        return (long) Math.floor((lat + 90) / CELL_DEGREES);
+    }
+
+    private static long col(double lng) {
+        return (long) Math.floor((lng + 180) / CELL_DEGREES);
+    }
+
+    private static final class Point {
+        private final long id;
+        private final double lat;
+        private final double lng;
+
+        Point(long id, double lat, double lng) {
+            this.id = id;
+            this.lat = lat;
+            this.lng = lng;
+        }
+    }
+
+    /** Growable parallel arrays of (id, distance km). */
+    public static class Hits {
+        private long[] ids = new long[16];
+        private double[] distances = new double[16];
+        private int size;
+
+        void add(long id, double distanceKm) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                distances = Arrays.copyOf(distances, size * 2);
+            }
+            ids[size] = id;
+            distances[size++] = distanceKm;
+        }
+
+        public int size() { return size; }
+        public long idAt(int i) { return ids[i]; }
+        public double distanceAt(int i) { return distances[i]; }
+    }
+}
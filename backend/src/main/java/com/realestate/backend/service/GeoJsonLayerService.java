@@ -0,0 +1,177 @@
+package com.realestate.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * City pincode GeoJSON layers, loaded once at startup and held as ready-to-send
+ * bytes: the original, a gzip copy, and a brotli copy when a pre-built
+ * {@code <city>.geojson.br} sits next to the source file.
+ *
+ * Each city also gets coarser copies for the zoom levels in {@link #LEVEL_ZOOMS},
+ * simplified by GeoJsonSimplifier to about one screen pixel at that zoom.
+ *
+ * Layers are looked up as {@code <location><city>.geojson} in each of
+ * {@code geo.layers.locations} in turn (through the Spring ResourceLoader, so
+ * classpath resources also work from a packaged jar). By default that is the copy
+ * bundled under src/main/resources/geo; the frontend serves its own copy from
+ * public/geo, so update both together.
+ */
+@Service
+public class GeoJsonLayerService {
+
+    private static final Logger log = LoggerFactory.getLogger(GeoJsonLayerService.class);
+
+    public static final List<String> CITIES = List.of("ahmedabad", "mumbai", "bangalore");
+
+    /** Zoom levels with a simplified copy; higher zooms (or none given) get the original. */
+    static final int[] LEVEL_ZOOMS = {8, 10, 12};
+    private static final int SIMPLIFIED_DECIMALS = 6;
+
+    @Value("${geo.layers.locations:classpath:geo/}")
+    private List<String> locations;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // city -> one layer per LEVEL_ZOOMS entry, then the original
+    private final Map<String, GeoLayer[]> layers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void loadLayers() {
+        for (String city : CITIES) {
+            try {
+                GeoLayer[] levels = load(city);
+                if (levels == null) {
+                    log.warn("[GeoJson] No layer found for {} in {}", city, locations);
+                    continue;
+                }
+                layers.put(city, levels);
+                GeoLayer full = levels[LEVEL_ZOOMS.length];
+                log.info("[GeoJson] Loaded {}: {} bytes, gzip {}, brotli {}; zoom {} level {} bytes", city,
+                        full.getIdentity().length, full.getGzip().length,
+                        full.getBrotli() != null ? full.getBrotli().length : "none",
+                        LEVEL_ZOOMS[0], levels[0].getIdentity().length);
+            } catch (IOException e) {
+                log.error("[GeoJson] Failed to load layer {}: {}", city, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The layer for a city (case-insensitive) at a map zoom: the coarsest copy that is
+     * still accurate to a pixel there, or the original when zoom is null.
+     * NoSuchElementException when the city has no layer.
+     */
+    public GeoLayer layer(String city, Integer zoom) {
+        GeoLayer[] levels = city != null ? layers.get(city.trim().toLowerCase(Locale.ROOT)) : null;
+        if (levels == null) throw new NoSuchElementException("No GeoJSON layer for " + city);
+        if (zoom != null) {
+            for (int i = 0; i < LEVEL_ZOOMS.length; i++) {
+                if (zoom <= LEVEL_ZOOMS[i]) return levels[i];
+            }
+        }
+        return levels[LEVEL_ZOOMS.length];
+    }
+
+    /** The original GeoJSON bytes of a city's layer, or null when it has none. */
+    public byte[] source(String city) {
+        GeoLayer[] levels = layers.get(city);
+        return levels != null ? levels[LEVEL_ZOOMS.length].getIdentity() : null;
+    }
+
+    private GeoLayer[] load(String city) throws IOException {
+        for (String location : locations) {
+            Resource source = resourceLoader.getResource(location.trim() + city + ".geojson");
+            if (!source.exists()) continue;
+            byte[] identity = read(source);
+            Resource br = resourceLoader.getResource(location.trim() + city + ".geojson.br");
+
+            GeoLayer[] levels = new GeoLayer[LEVEL_ZOOMS.length + 1];
+            JsonNode original = objectMapper.readTree(identity);
+            for (int i = 0; i < LEVEL_ZOOMS.length; i++) {
+                byte[] simplified = objectMapper.writeValueAsBytes(
+                        GeoJsonSimplifier.simplify(original, degreesPerPixel(LEVEL_ZOOMS[i]), SIMPLIFIED_DECIMALS));
+                levels[i] = new GeoLayer(simplified, gzip(simplified), null);
+            }
+            levels[LEVEL_ZOOMS.length] = new GeoLayer(identity, gzip(identity), br.exists() ? read(br) : null);
+            return levels;
+        }
+        return null;
+    }
+
+    /** Width of one 256px-tile screen pixel in degrees of longitude at a zoom. */
+    static double degreesPerPixel(int zoom) {
+        return 360.0 / (256L << zoom);
+    }
+
+    private static byte[] read(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+            gz.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    static String etagOf(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** One city's GeoJSON in every encoding we serve, with its content hash. */
+    public static class GeoLayer {
+        private final byte[] identity;
+        private final byte[] gzip;
+        private final byte[] brotli;
+        private final String etag;
+
+        GeoLayer(byte[] identity, byte[] gzip, byte[] brotli) {
+            this.identity = identity;
+            this.gzip = gzip;
+            this.brotli = brotli;
+            this.etag = etagOf(identity);
+        }
+
+        public byte[] getIdentity() { return identity; }
+        public byte[] getGzip() { return gzip; }
+        public byte[] getBrotli() { return brotli; }
+
+        /** Hash of the uncompressed content; suffix it per encoding for a strong ETag. */
+        public String getEtag() { return etag; }
+    }
+}
@@ -0,0 +1,239 @@
+package com.realestate.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.*;
+
+/**
+ * Douglas–Peucker simplification of a GeoJSON FeatureCollection of Polygon and
+ * MultiPolygon features that keeps neighbouring polygons watertight.
+ *
+ * Rings are cut into arcs at junctions: vertices where more than two boundary
+ * segments meet, i.e. where one pincode stops bordering another. Each arc is
+ * simplified on its own with its end points fixed, always in the same direction,
+ * so an edge shared by two pincodes is simplified to the same vertices on both
+ * sides and no gaps or overlaps open up between them. That holds for rings shared
+ * whole as well (an island pincode and the hole it fills): a ring without junctions
+ * is cut at its lowest vertex and the vertex farthest from it, and an arc that runs
+ * from a junction back to itself is ordered by its second and second-to-last vertices,
+ * so neither depends on where or which way round the ring was listed.
+ */
+public class GeoJsonSimplifier {
+
+    // A ring needs three distinct vertices plus the closing one
+    private static final int MIN_RING = 4;
+
+    private final double tolerance;
+    private final double scale;
+    private final Map<Pt, Set<Pt>> neighbours = new HashMap<>();
+
+    /**
+     * @param tolerance maximum deviation in degrees
+     * @param decimals  coordinate digits kept in the output
+     */
+    private GeoJsonSimplifier(double tolerance, int decimals) {
+        this.tolerance = tolerance;
+        this.scale = Math.pow(10, decimals);
+    }
+
+    /** A simplified copy of {@code collection}; properties are kept as they are. */
+    public static JsonNode simplify(JsonNode collection, double tolerance, int decimals) {
+        GeoJsonSimplifier s = new GeoJsonSimplifier(tolerance, decimals);
+        List<double[][]> rings = new ArrayList<>();
+        forEachRing(collection, rings::add);
+        for (double[][] ring : rings) s.addNeighbours(ring);
+
+        ObjectNode out = collection.deepCopy();
+        for (JsonNode feature : out.path("features")) {
+            JsonNode geometry = feature.path("geometry");
+            if (!(geometry instanceof ObjectNode g)) continue;
+            switch (geometry.path("type").asText()) {
+                case "Polygon" -> g.set("coordinates", s.polygon(geometry.path("coordinates")));
+                case "MultiPolygon" -> {
+                    ArrayNode polygons = JsonNodeFactory.instance.arrayNode();
+                    for (JsonNode polygon : geometry.path("coordinates")) polygons.add(s.polygon(polygon));
+                    g.set("coordinates", polygons);
+                }
+                default -> { }
+            }
+        }
+        return out;
+    }
+
+    private static void forEachRing(JsonNode collection, java.util.function.Consumer<double[][]> action) {
+        for (JsonNode feature : collection.path("features")) {
+            JsonNode geometry = feature.path("geometry");
+            switch (geometry.path("type").asText()) {
+                case "Polygon" -> {
+                    for (JsonNode ring : geometry.path("coordinates")) action.accept(ring(ring));
+                }
+                case "MultiPolygon" -> {
+                    for (JsonNode polygon : geometry.path("coordinates")) {
+                        for (JsonNode ring : polygon) action.accept(ring(ring));
+                    }
+                }
+                default -> { }
+            }
+        }
+    }
+
+    private static double[][] ring(JsonNode coordinates) {
+        double[][] ring = new double[coordinates.size()][];
+        for (int i = 0; i < ring.length; i++) {
+            JsonNode c = coordinates.get(i);
+            ring[i] = new double[]{c.get(0).asDouble(), c.get(1).asDouble()};
+        }
+        return ring;
+    }
+
+    private void addNeighbours(double[][] ring) {
+        int n = openLength(ring);
+        for (int i = 0; i < n; i++) {
+            Set<Pt> set = neighbours.computeIfAbsent(new Pt(ring[i]), k -> new HashSet<>(4));
+            set.add(new Pt(ring[(i + n - 1) % n]));
+            set.add(new Pt(ring[(i + 1) % n]));
+        }
+    }
+
+    private boolean isJunction(double[] point) {
+        Set<Pt> set = neighbours.get(new Pt(point));
+        return set != null && set.size() > 2;
+    }
+
+    private ArrayNode polygon(JsonNode rings) {
+        ArrayNode out = JsonNodeFactory.instance.arrayNode();
+        for (JsonNode r : rings) {
+            double[][] ring = ring(r);
+            List<double[]> simplified = simplifyRing(ring);
+            if (simplified.size() < MIN_RING) simplified = Arrays.asList(ring);
+            ArrayNode coords = out.addArray();
+            for (double[] p : simplified) coords.addArray().add(round(p[0])).add(round(p[1]));
+        }
+        return out;
+    }
+
+    /** Simplified closed ring (first point repeated at the end). */
+    private List<double[]> simplifyRing(double[][] ring) {
+        int n = openLength(ring);
+        if (n < MIN_RING - 1) return Arrays.asList(ring);
+
+        List<Integer> cuts = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (isJunction(ring[i])) cuts.add(i);
+        }
+        if (cuts.isEmpty()) {
+            // Free-standing ring: cut at its lowest vertex and at the vertex farthest from it
+            int low = 0;
+            for (int i = 1; i < n; i++) {
+                if (compare(ring[i], ring[low]) < 0) low = i;
+            }
+            int far = low;
+            double best = -1;
+            for (int i = 0; i < n; i++) {
+                double d = sq(ring[i][0] - ring[low][0]) + sq(ring[i][1] - ring[low][1]);
+                if (d > best || (d == best && compare(ring[i], ring[far]) < 0)) { best = d; far = i; }
+            }
+            cuts.add(Math.min(low, far));
+            if (far != low) cuts.add(Math.max(low, far));
+        }
+
+        List<double[]> out = new ArrayList<>();
+        for (int c = 0; c < cuts.size(); c++) {
+            int from = cuts.get(c);
+            int to = c + 1 < cuts.size() ? cuts.get(c + 1) : cuts.get(0) + n;
+            List<double[]> arc = new ArrayList<>(to - from + 1);
+            for (int i = from; i <= to; i++) arc.add(ring[i % n]);
+            List<double[]> kept = simplifyArc(arc);
+            // The arc's last point starts the next arc
+            out.addAll(kept.subList(0, kept.size() - 1));
+        }
+        out.add(out.get(0));
+        return out;
+    }
+
+    /** Douglas–Peucker over one arc in a canonical direction, so shared arcs match. */
+    private List<double[]> simplifyArc(List<double[]> arc) {
+        int order = compare(arc.get(0), arc.get(arc.size() - 1));
+        // An arc from a junction back to itself
+        if (order == 0 && arc.size() > 2) order = compare(arc.get(1), arc.get(arc.size() - 2));
+        boolean reversed = order > 0;
+        if (reversed) {
+            arc = new ArrayList<>(arc);
+            Collections.reverse(arc);
+        }
+        boolean[] keep = new boolean[arc.size()];
+        keep[0] = true;
+        keep[arc.size() - 1] = true;
+        Deque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[]{0, arc.size() - 1});
+        while (!stack.isEmpty()) {
+            int[] span = stack.pop();
+            int index = -1;
+            double max = tolerance;
+            for (int i = span[0] + 1; i < span[1]; i++) {
+                double d = distance(arc.get(i), arc.get(span[0]), arc.get(span[1]));
+                if (d > max) { max = d; index = i; }
+            }
+            if (index < 0) continue;
+            keep[index] = true;
+            stack.push(new int[]{span[0], index});
+            stack.push(new int[]{index, span[1]});
+        }
+        List<double[]> out = new ArrayList<>();
+        for (int i = 0; i < keep.length; i++) {
+            if (keep[i]) out.add(arc.get(i));
+        }
+        if (reversed) Collections.reverse(out);
+        return out;
+    }
+
+    /** Distance from p to segment ab, in degrees. */
+    private static double distance(double[] p, double[] a, double[] b) {
+        double dx = b[0] - a[0];
+        double dy = b[1] - a[1];
+        double len = dx * dx + dy * dy;
+        double t = len == 0 ? 0 : Math.max(0, Math.min(1, ((p[0] - a[0]) * dx + (p[1] - a[1]) * dy) / len));
+        return Math.sqrt(sq(p[0] - a[0] - t * dx) + sq(p[1] - a[1] - t * dy));
+    }
+
+    private static int compare(double[] a, double[] b) {
+        int c = Double.compare(a[0], b[0]);
+        return c != 0 ? c : Double.compare(a[1], b[1]);
+    }
+
+    private static int openLength(double[][] ring) {
+        int n = ring.length;
+        return n > 1 && compare(ring[0], ring[n - 1]) == 0 ? n - 1 : n;
+    }
+
+    private double round(double v) {
+        return Math.round(v * scale) / scale;
+    }
+
+    private static double sq(double v) {
+        return v * v;
+    }
+
+    private static final class Pt {
+        private final double x;
+        private final double y;
+
+        Pt(double[] p) {
+            this.x = p[0];
+            this.y = p[1];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Pt other && other.x == x && other.y == y;
+        }
+
+        @Override
+        public int hashCode() {
+            return Double.hashCode(x) * 31 + Double.hashCode(y);
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.realestate.backend.service;
+
+import com.realestate.backend.entity.Property;
+import com.realestate.backend.repository.FavoriteRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Pincode aggregates of visible listings over every city, property type and
+ * purpose: listing count, price per sqft (sum and quantile sketch, over listings
+ * with a price and area > 0), listing dates, views, favorites, inquiries and
+ * listings per agent. The city scores (PincodeAggregateIndex) are read from here.
+ *
+ * A query rolls the cells matching its filters up per pincode, so any type /
+ * purpose combination, and the "All" rollups, cost a few cell merges per pincode
+ * rather than a GROUP BY over the listings. Cells move by the delta of each
+ * listing write; favorites by the Favorite entity listener.
+ */
+@Service
+public class HeatmapCubeIndex implements PropertyIndex {
+
+    /** Quantiles reported for each pincode, in this order. */
+    static final double[] QUANTILES = {0.1, 0.5, 0.9};
+
+    // Listings without a pincode sit under this key, so they still count towards the city figures
+    static final String UNASSIGNED = "";
+
+    @Autowired
+    private FavoriteRepository favoriteRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // lower-cased city -> pincode -> (type, purpose) -> cell
+    private final Map<String, Map<String, Map<CellKey, Cell>>> cities = new HashMap<>();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    // Favorites of every listing, visible or not, so a relisted one comes back with its count
+    private final Map<Long, Integer> favorites = new HashMap<>();
+
+    /**
+     * Per-pincode totals of the listings matching the filters. city null covers every
+     * city; type matches exactly and purpose as a substring, both case-insensitive;
+     * null, blank or "All" matches anything. Listings without a pincode are left out.
+     */
+    public Map<String, Rollup> rollup(String city, String type, String purpose) {
+        return rollup(city, filter(type), filter(purpose), false);
+    }
+
+    /** Every listing in the city per pincode, including those without one (under {@link #UNASSIGNED}). */
+    Map<String, Rollup> cityRollup(String city) {
+        if (city == null || city.isBlank()) return new HashMap<>();
+        return rollup(city, null, null, true);
+    }
+
+    /** Lower-cased names of the cities with at least one visible listing. */
+    public Set<String> cities() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(cities.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Rollup> rollup(String city, String ty, String pu, boolean withUnassigned) {
+        Map<String, Rollup> out = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            if (city == null || city.isBlank()) {
+                for (Map<String, Map<CellKey, Cell>> pincodes : cities.values()) {
+                    rollup(pincodes, ty, pu, withUnassigned, out);
+                }
+            } else {
+                Map<String, Map<CellKey, Cell>> pincodes = cities.get(key(city));
+                if (pincodes != null) rollup(pincodes, ty, pu, withUnassigned, out);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return out;
+    }
+
+    private static void rollup(Map<String, Map<CellKey, Cell>> pincodes, String ty, String pu, boolean withUnassigned,
+                               Map<String, Rollup> out) {
+        for (Map.Entry<String, Map<CellKey, Cell>> e : pincodes.entrySet()) {
+            if (!withUnassigned && e.getKey().equals(UNASSIGNED)) continue;
+            Rollup r = null;
+            for (Map.Entry<CellKey, Cell> c : e.getValue().entrySet()) {
+                if (!c.getKey().matches(ty, pu)) continue;
+                if (r == null) r = out.computeIfAbsent(e.getKey(), k -> new Rollup());
+                r.add(c.getValue());
+            }
+        }
+    }
+
+    /** [p10, median, p90] price per sqft of every pincode in the city matching the filters and priced. */
+    public Map<String, double[]> priceQuantiles(String city, String type, String purpose) {
+        Map<String, double[]> out = new HashMap<>();
+        for (Map.Entry<String, Rollup> e : rollup(city, type, purpose).entrySet()) {
+            double[] q = e.getValue().quantiles();
+            if (q != null) out.put(e.getKey(), q);
+        }
+        return out;
+    }
+
+    @Override
+    public void rebuild(List<Property> visible) {
+        Map<Long, Integer> counts = new HashMap<>();
+        for (Object[] row : favoriteRepository.countGroupedByProperty()) {
+            counts.put((Long) row[0], ((Long) row[1]).intValue());
+        }
+        lock.writeLock().lock();
+        try {
+            cities.clear();
+            entries.clear();
+            favorites.clear();
+            favorites.putAll(counts);
+            for (Property p : visible) {
+                if (p.getId() != null && PropertyIndex.isVisible(p)) put(p);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Property property) {
+        if (property.getId() == null) return;
+        lock.writeLock().lock();
+        try {
+            drop(property.getId());
+            if (PropertyIndex.isVisible(property)) put(property);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long propertyId) {
+        lock.writeLock().lock();
+        try {
+            drop(propertyId);
+            favorites.remove(propertyId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void favoritesChanged(Long propertyId, int delta) {
+        lock.writeLock().lock();
+        try {
+            int count = Math.max(0, favorites.getOrDefault(propertyId, 0) + delta);
+            if (count == 0) favorites.remove(propertyId);
+            else favorites.put(propertyId, count);
+            Entry e = entries.get(propertyId);
+            if (e != null) {
+                cellOf(e).favorites += count - e.favorites;
+                e.favorites = count;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void countersChanged(Long propertyId, int views, int inquiries) {
+        lock.writeLock().lock();
+        try {
+            Entry e = entries.get(propertyId);
+            if (e == null) return;
+            e.views += views;
+            e.inquiries += inquiries;
+            Cell c = cellOf(e);
+            c.views += views;
+            c.inquiries += inquiries;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(Property p) {
+        if (p.getCity() == null || p.getCity().trim().isEmpty()) return;
+        Entry e = new Entry(p, favorites.getOrDefault(p.getId(), 0));
+        entries.put(p.getId(), e);
+        cities.computeIfAbsent(e.city, k -> new HashMap<>())
+                .computeIfAbsent(e.pincode, k -> new HashMap<>())
+                .computeIfAbsent(e.cell, k -> new Cell())
+                .add(e);
+    }
+
+    private void drop(Long propertyId) {
+        Entry e = entries.remove(propertyId);
+        if (e == null) return;
+        Map<String, Map<CellKey, Cell>> pincodes = cities.get(e.city);
+        Map<CellKey, Cell> cells = pincodes.get(e.pincode);
+        Cell c = cells.get(e.cell);
+        c.subtract(e);
+        if (c.count == 0) {
+            cells.remove(e.cell);
+            if (cells.isEmpty()) pincodes.remove(e.pincode);
+            if (pincodes.isEmpty()) cities.remove(e.city);
+        }
+    }
+
+    private Cell cellOf(Entry e) {
+        return cities.get(e.city).get(e.pincode).get(e.cell);
+    }
+
+    private static String key(String city) {
+        return city.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String lower(String s) {
+        return s != null ? s.trim().toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static String filter(String s) {
+        return s == null || s.isBlank() || s.equalsIgnoreCase("All") ? null : s.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** One pincode's totals over the matching cells. */
+    public static class Rollup {
+        private long count;
+        private long priced;
+        private double priceSum;
+        private long dated;
+        private long listedSecondsSum;
+        private long views;
+        private long favorites;
+        private long inquiries;
+        private final Set<Long> agents = new HashSet<>();
+        private final PriceSketch sketch = new PriceSketch();
+
+        void add(Cell c) {
+            count += c.count;
+            priced += c.priced;
+            priceSum += c.priceSum;
+            dated += c.dated;
+            listedSecondsSum += c.listedSecondsSum;
+            views += c.views;
+            favorites += c.favorites;
+            inquiries += c.inquiries;
+            agents.addAll(c.agents.keySet());
+            sketch.merge(c.sketch);
+        }
+
+        public long getCount() { return count; }
+        public long getPriced() { return priced; }
+        public long getViews() { return views; }
+        public long getFavorites() { return favorites; }
+        public long getInquiries() { return inquiries; }
+        public int getAgentCount() { return agents.size(); }
+
+        /** Null when no listing has a price per sqft. */
+        public Double getAvgPricePerSqft() {
+            return priced > 0 ? priceSum / priced : null;
+        }
+
+        /** Mean listing date in epoch seconds; null when no listing has one. */
+        public Double getAvgListedSeconds() {
+            return dated > 0 ? listedSecondsSum / (double) dated : null;
+        }
+
+        /** [p10, median, p90] price per sqft, or null when the sketch holds no price. */
+        public double[] quantiles() {
+            if (sketch.isEmpty()) return null;
+            double[] q = new double[QUANTILES.length];
+            for (int i = 0; i < q.length; i++) q[i] = sketch.quantile(QUANTILES[i]);
+            return q;
+        }
+    }
+
+    private static final class Cell {
+        private int count;
+        private int priced;
+        private double priceSum;
+        private int dated;
+        private long listedSecondsSum;
+        private long views;
+        private long favorites;
+        private long inquiries;
+        private final Map<Long, Integer> agents = new HashMap<>();
+        private final PriceSketch sketch = new PriceSketch();
+
+        void add(Entry e) {
+            count++;
+            if (e.pricePerSqft != null) {
+                priced++;
+                priceSum += e.pricePerSqft;
+                sketch.add(e.pricePerSqft);
+            }
+            if (e.listedSeconds != null) {
+                dated++;
+                listedSecondsSum += e.listedSeconds;
+            }
+            views += e.views;
+            favorites += e.favorites;
+            inquiries += e.inquiries;
+            if (e.agentId != null) agents.merge(e.agentId, 1, Integer::sum);
+        }
+
+        void subtract(Entry e) {
+            count--;
+            if (e.pricePerSqft != null) {
+                priced--;
+                priceSum -= e.pricePerSqft;
+                sketch.remove(e.pricePerSqft);
+            }
+            if (e.listedSeconds != null) {
+                dated--;
+                listedSecondsSum -= e.listedSeconds;
+            }
+            views -= e.views;
+            favorites -= e.favorites;
+            inquiries -= e.inquiries;
+            if (e.agentId != null) agents.computeIfPresent(e.agentId, (k, n) -> n > 1 ? n - 1 : null);
+        }
+    }
+
+    private static final class CellKey {
+        private final String type;
+        private final String purpose;
+
+        CellKey(String type, String purpose) {
+            this.type = type;
+            this.purpose = purpose;
+        }
+
+        boolean matches(String type, String purpose) {
+            return (type == null || this.type.equals(type)) && (purpose == null || this.purpose.contains(purpose));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CellKey k && k.type.equals(type) && k.purpose.equals(purpose);
+        }
+
+        @Override
+        public int hashCode() {
+            return type.hashCode() * 31 + purpose.hashCode();
+        }
+    }
+
+    /** What one listing adds to its cell. */
+    private static final class Entry {
+        private final String city;
+        private final String pincode;
+        private final CellKey cell;
+        private final Double pricePerSqft;
+        private final Long listedSeconds;
+        private final Long agentId;
+        private int views;
+        private int inquiries;
+        private int favorites;
+
+        Entry(Property p, int favorites) {
+            this.city = key(p.getCity());
+            this.pincode = p.getPinCode() != null && !p.getPinCode().trim().isEmpty() ? p.getPinCode() : UNASSIGNED;
+            this.cell = new CellKey(lower(p.getType()), lower(p.getPurpose()));
+            this.pricePerSqft = p.getPrice() != null && p.getArea() != null && p.getArea() > 0
+                    ? p.getPrice() / p.getArea() : null;
+            this.listedSeconds = p.getListedDate() != null
+                    ? p.getListedDate().atZone(ZoneId.systemDefault()).toEpochSecond() : null;
+            this.agentId = p.getAgentId();
+            this.views = p.getViews() != null ? p.getViews() : 0;
+            this.inquiries = p.getInquiries() != null ? p.getInquiries() : 0;
+            this.favorites = favorites;
+        }
+    }
+}
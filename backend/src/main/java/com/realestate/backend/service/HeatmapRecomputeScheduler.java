@@ -0,0 +1,371 @@
+package com.realestate.backend.service;
+
+import com.realestate.backend.entity.Property;
+import com.realestate.backend.repository.PropertyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Recomputes a city's heatmap scores in the background after its listings change and
+ * swaps in a fresh snapshot (HeatmapSnapshotService). The scores are built from the
+ * in-memory aggregates of HeatmapCubeIndex, the one source the heatmap is served
+ * from; nothing is written to the database.
+ *
+ * Only a change that moves what the scores are built from marks its city dirty: a
+ * listing appearing or disappearing, or changing its city, pincode, price, area,
+ * type or purpose; its views, inquiries or favorites moving; and a new day of
+ * pincode history (PincodeHistoryService), which also ages the days on market.
+ * The first mark schedules a recompute
+ * {@code analytics.recompute.window-ms} later, and further marks in that window ride
+ * along, so a burst of edits costs one recompute. Recomputes run on a small fixed
+ * pool and never two at once for the same city; a city marked again while it is
+ * being recomputed goes round once more afterwards.
+ *
+ * A full recompute (on startup, or from the admin endpoint) puts every city on the
+ * same pool at once, so one slow or failing city holds up nobody else and the whole
+ * run takes about as long as the slowest city.
+ *
+ * Queue depth, lag (age of the oldest pending mark), run times and full recompute
+ * progress are published as heatmap.recompute.* meters.
+ */
+@Service
+public class HeatmapRecomputeScheduler implements PropertyIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(HeatmapRecomputeScheduler.class);
+
+    @Value("${analytics.recompute.window-ms:10000}")
+    private long windowMs;
+
+    @Value("${analytics.recompute.threads:4}")
+    private int threads;
+
+    @Autowired
+    private HeatmapSnapshotService heatmapSnapshotService;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // lower-cased city -> pending mark
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    // What each visible listing's scores depend on, so a write can tell whether it moved them
+    private final Map<Long, Shape> shapes = new ConcurrentHashMap<>();
+    private final AtomicReference<FullRecompute> fullRecompute = new AtomicReference<>();
+
+    private ScheduledExecutorService executor;
+    private Timer duration;
+    private Counter failures;
+    private Timer fullDuration;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger n = new AtomicInteger();
+        executor = Executors.newScheduledThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "heatmap-recompute-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        Gauge.builder("heatmap.recompute.queue.depth", pending, Map::size)
+                .description("Cities waiting for a score recompute")
+                .register(meterRegistry);
+        Gauge.builder("heatmap.recompute.lag.seconds", this, s -> s.lagMillis() / 1000.0)
+                .description("Age of the oldest pending recompute request")
+                .register(meterRegistry);
+        Gauge.builder("heatmap.recompute.running", running, Set::size).register(meterRegistry);
+        duration = Timer.builder("heatmap.recompute.duration").register(meterRegistry);
+        failures = Counter.builder("heatmap.recompute.failures").register(meterRegistry);
+        fullDuration = Timer.builder("heatmap.recompute.all.duration")
+                .description("Wall time of a full recompute of every city")
+                .register(meterRegistry);
+        Gauge.builder("heatmap.recompute.all.remaining", fullRecompute, r -> r.get() != null ? r.get().getRemaining() : 0)
+                .description("Cities of the current full recompute not yet finished")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /** Ask for a recompute of the city within the coalescing window. */
+    public void request(String city) {
+        if (city == null || city.trim().isEmpty()) return;
+        String key = key(city);
+        if (pending.putIfAbsent(key, new Pending(city.trim(), System.nanoTime())) == null) {
+            schedule(key, windowMs);
+        }
+    }
+
+    /** Recompute every city once the application is up, off the startup thread. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recomputeAllOnStartup() {
+        try {
+            recomputeAll();
+        } catch (Exception e) {
+            log.error("[HeatmapRecompute] Failed to start the startup recompute: {}", e.getMessage());
+        }
+    }
+
+    /** Recompute every city with visible listings; see {@link #recomputeAll(Collection)}. */
+    public FullRecompute recomputeAll() {
+        return recomputeAll(propertyRepository.findDistinctActiveCities());
+    }
+
+    /**
+     * Recompute the cities in parallel on the recompute pool and return at once with
+     * the run's progress. While one full recompute is in progress, asking for another
+     * returns that one.
+     */
+    public FullRecompute recomputeAll(Collection<String> cities) {
+        Map<String, String> byKey = new LinkedHashMap<>();
+        for (String city : cities) {
+            if (city != null && !city.trim().isEmpty()) byKey.putIfAbsent(key(city), city.trim());
+        }
+        FullRecompute run = new FullRecompute(byKey.size());
+        FullRecompute current = fullRecompute.get();
+        if (current != null && !current.isDone()) return current;
+        if (!fullRecompute.compareAndSet(current, run)) return fullRecompute.get();
+
+        log.info("[HeatmapRecompute] Recomputing {} cities", run.total);
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[byKey.size()];
+        int i = 0;
+        for (Map.Entry<String, String> e : byKey.entrySet()) {
+            String city = e.getValue();
+            CompletableFuture<Outcome> task = new CompletableFuture<>();
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.complete(recomputeCity(e.getKey(), city));
+                    } catch (RuntimeException ex) {
+                        task.completeExceptionally(ex);
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                task.complete(Outcome.FAILED); // shutting down
+            }
+            tasks[i++] = task.handle((outcome, error) -> {
+                if (error != null) outcome = Outcome.FAILED;
+                run.record(outcome);
+                return outcome;
+            });
+        }
+        CompletableFuture.allOf(tasks).whenComplete((v, error) -> {
+            run.finish();
+            fullDuration.record(run.getElapsedMs(), TimeUnit.MILLISECONDS);
+            log.info("[HeatmapRecompute] Recomputed {} cities in {} ms: {} failed, {} deferred",
+                    run.total, run.getElapsedMs(), run.failed.get(), run.deferred.get());
+        });
+        return run;
+    }
+
+    /** Current queue figures, for the admin endpoint. */
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("queued", new TreeSet<>(pending.keySet()));
+        out.put("running", new TreeSet<>(running));
+        out.put("lagMs", lagMillis());
+        out.put("completed", duration.count());
+        out.put("failed", (long) failures.count());
+        out.put("lastFullRecompute", fullRecompute.get());
+        return out;
+    }
+
+    private long lagMillis() {
+        long oldest = Long.MAX_VALUE;
+        for (Pending p : pending.values()) oldest = Math.min(oldest, p.since);
+        return oldest == Long.MAX_VALUE ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest);
+    }
+
+    private void schedule(String key, long delayMs) {
+        try {
+            executor.schedule(() -> run(key), delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            pending.remove(key); // shutting down
+        }
+    }
+
+    private void run(String key) {
+        if (!running.add(key)) {
+            // Still busy with the previous round; its marks stay pending until it ends
+            schedule(key, windowMs);
+            return;
+        }
+        try {
+            Pending p = pending.remove(key);
+            if (p != null) compute(p.city);
+        } finally {
+            running.remove(key);
+        }
+    }
+
+    /** One city of a full recompute; a city already being recomputed is marked for another round instead. */
+    private Outcome recomputeCity(String key, String city) {
+        if (!running.add(key)) {
+            request(city);
+            return Outcome.DEFERRED;
+        }
+        try {
+            pending.remove(key); // this round covers any marks so far
+            return compute(city);
+        } finally {
+            running.remove(key);
+        }
+    }
+
+    /** Rebuild the city's snapshot from the in-memory aggregates. */
+    private Outcome compute(String city) {
+        long start = System.nanoTime();
+        if (!heatmapSnapshotService.refresh(city)) {
+            failures.increment(); // logged by HeatmapSnapshotService
+            return Outcome.FAILED;
+        }
+        duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return Outcome.DONE;
+    }
+
+    private static String key(String city) {
+        return city.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void rebuild(List<Property> visible) {
+        shapes.clear();
+        for (Property p : visible) {
+            if (p.getId() != null && p.getCity() != null && PropertyIndex.isVisible(p)) shapes.put(p.getId(), new Shape(p));
+        }
+    }
+
+    @Override
+    public void index(Property property) {
+        if (property.getId() == null) return;
+        Shape after = PropertyIndex.isVisible(property) && property.getCity() != null ? new Shape(property) : null;
+        Shape before = after != null ? shapes.put(property.getId(), after) : shapes.remove(property.getId());
+        if (Objects.equals(before, after)) return;
+        if (before != null) request(before.city);
+        if (after != null && (before == null || !before.city.equalsIgnoreCase(after.city))) request(after.city);
+    }
+
+    @Override
+    public void remove(Long propertyId) {
+        Shape before = shapes.remove(propertyId);
+        if (before != null) request(before.city);
+    }
+
+    @Override
+    public void favoritesChanged(Long propertyId, int delta) {
+        Shape shape = shapes.get(propertyId);
+        if (shape != null && delta != 0) request(shape.city);
+    }
+
+    @Override
+    public void countersChanged(Long propertyId, int views, int inquiries) {
+        Shape shape = shapes.get(propertyId);
+        if (shape != null && (views != 0 || inquiries != 0)) request(shape.city);
+    }
+
+    private static final class Pending {
+        private final String city;
+        private final long since;
+
+        Pending(String city, long since) {
+            this.city = city;
+            this.since = since;
+        }
+    }
+
+    /** The fields of a listing that the pincode scores are computed from. */
+    private static final class Shape {
+        private final String city;
+        private final String pincode;
+        private final Double price;
+        private final Double area;
+        private final String type;
+        private final String purpose;
+
+        Shape(Property p) {
+            this.city = p.getCity();
+            this.pincode = p.getPinCode();
+            this.price = p.getPrice();
+            this.area = p.getArea();
+            this.type = p.getType();
+            this.purpose = p.getPurpose();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Shape other && Objects.equals(other.city, city) && Objects.equals(other.pincode, pincode)
+                    && Objects.equals(other.price, price) && Objects.equals(other.area, area)
+                    && Objects.equals(other.type, type) && Objects.equals(other.purpose, purpose);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(city, pincode, price, area, type, purpose);
+        }
+    }
+
+    private enum Outcome { DONE, FAILED, DEFERRED }
+
+    /** Progress of one full recompute; read by the admin endpoint while it runs. */
+    public static final class FullRecompute {
+        private final int total;
+        private final long startedNanos = System.nanoTime();
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger deferred = new AtomicInteger();
+        private volatile long elapsedMs = -1;
+
+        FullRecompute(int total) {
+            this.total = total;
+        }
+
+        void record(Outcome outcome) {
+            switch (outcome) {
+                case DONE -> completed.incrementAndGet();
+                case FAILED -> failed.incrementAndGet();
+                case DEFERRED -> deferred.incrementAndGet();
+            }
+        }
+
+        void finish() {
+            elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+        }
+
+        public int getTotal() { return total; }
+        public int getCompleted() { return completed.get(); }
+        public int getFailed() { return failed.get(); }
+        /** Cities already being recomputed when the run reached them; queued for another round. */
+        public int getDeferred() { return deferred.get(); }
+
+        public int getRemaining() {
+            return total - completed.get() - failed.get() - deferred.get();
+        }
+
+        public boolean isDone() { return elapsedMs >= 0; }
+
+        /** Wall time so far, or of the whole run once done. */
+        public long getElapsedMs() {
+            long done = elapsedMs;
+            return done >= 0 ? done : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+        }
+    }
+}
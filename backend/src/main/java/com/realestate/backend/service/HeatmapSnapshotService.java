@@ -0,0 +1,330 @@
+package com.realestate.backend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.realestate.backend.entity.PincodeScore;
+import com.realestate.backend.util.JsonBytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable per-city heatmap snapshots for the unfiltered heatmap.
+ *
+ * A snapshot holds every mode's scores as primitive arrays plus each mode's
+ * response array already serialised, so a request is a map lookup and a byte
+ * copy. Scores come straight from the in-memory aggregates (AnalyticsService.liveScores);
+ * HeatmapRecomputeScheduler has a replacement built after the city changes, and it is
+ * swapped in whole, so readers keep the previous snapshot until then and never
+ * see a half-built one. The first requests for a city with no snapshot share a
+ * single build.
+ *
+ * Versions only grow, across restarts too: they start from the boot time in
+ * milliseconds shifted left by {@link #VERSION_SHIFT}, so a client's version from
+ * before a restart is older than any snapshot built after it. Each snapshot also records, per mode and pincode, the version
+ * at which that entry last changed, and which pincodes dropped out and when, so a
+ * client holding an older version can be sent just the entries that differ.
+ */
+@Service
+public class HeatmapSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(HeatmapSnapshotService.class);
+
+    /** Removed pincodes remembered for deltas; past this the oldest are forgotten and older clients get a full map. */
+    static final int MAX_REMOVED = 1024;
+
+    // 1024 versions per millisecond of uptime before running into the next boot's range;
+    // still below 2^53, so browsers read versions exactly
+    static final int VERSION_SHIFT = 10;
+
+    /** Heatmap modes in snapshot order; unknown modes fall back to the first. */
+    public static final List<String> MODES = List.of("price", "market_activity", "inventory", "buyer_opportunity",
+            "demand", "liquidity", "growth", "saturation", "conversion");
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private HeatmapCubeIndex heatmapCubeIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AtomicLong versions = new AtomicLong(System.currentTimeMillis() << VERSION_SHIFT);
+    // lower-cased city -> current snapshot
+    private final Map<String, HeatmapSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<HeatmapSnapshot>> building = new ConcurrentHashMap<>();
+
+    /** The city's current snapshot; only a city never built before waits, on a shared build. */
+    public HeatmapSnapshot snapshot(String city) {
+        String key = key(city);
+        HeatmapSnapshot current = snapshots.get(key);
+        if (current != null) return current;
+
+        CompletableFuture<HeatmapSnapshot> mine = new CompletableFuture<>();
+        CompletableFuture<HeatmapSnapshot> other = building.putIfAbsent(key, mine);
+        if (other != null) return other.join();
+        try {
+            current = snapshots.get(key); // built while we were getting here
+            if (current == null) current = install(key, build(city));
+            mine.complete(current);
+            return current;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            building.remove(key, mine);
+        }
+    }
+
+    /** Build a fresh snapshot of the city and swap it in; false if the build failed. */
+    public boolean refresh(String city) {
+        if (city == null || city.trim().isEmpty()) return true;
+        try {
+            install(key(city), build(city));
+            return true;
+        } catch (RuntimeException e) {
+            log.error("[HeatmapSnapshot] Failed to rebuild {}: {}", city, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Keep whichever snapshot is newer, carrying the change history over from the one it
+     * replaces; empty cities are not kept, so unknown names cost nothing.
+     */
+    private HeatmapSnapshot install(String key, HeatmapSnapshot built) {
+        if (built.size() == 0) {
+            snapshots.computeIfPresent(key, (k, old) -> old.version < built.version ? null : old);
+            return built.after(null);
+        }
+        return snapshots.compute(key, (k, old) -> old != null && old.version > built.version ? old : built.after(old));
+    }
+
+    private HeatmapSnapshot build(String city) {
+        long version = versions.incrementAndGet();
+        List<PincodeScore> scores = analyticsService.liveScores(city);
+        Map<String, double[]> quantiles = heatmapCubeIndex.priceQuantiles(city, null, null);
+
+        int n = scores.size();
+        String[] pincodes = new String[n];
+        int[] listings = new int[n];
+        double[] median = new double[n];
+        double[] p10 = new double[n];
+        double[] p90 = new double[n];
+        double[][] byMode = new double[MODES.size()][n];
+        for (int i = 0; i < n; i++) {
+            PincodeScore s = scores.get(i);
+            pincodes[i] = s.getPincode();
+            listings[i] = s.getActiveListings();
+            median[i] = s.getMedianPricePerSqft() != null ? s.getMedianPricePerSqft() : Double.NaN;
+            double[] q = quantiles.get(s.getPincode());
+            p10[i] = q != null ? q[0] : Double.NaN;
+            p90[i] = q != null ? q[2] : Double.NaN;
+            for (int m = 0; m < byMode.length; m++) byMode[m][i] = AnalyticsService.scoreByMode(s, MODES.get(m));
+        }
+
+        HeatmapSnapshot snapshot = new HeatmapSnapshot(version, pincodes, listings, median, p10, p90, byMode);
+        for (int m = 0; m < MODES.size(); m++) snapshot.json[m] = write(snapshot, m, null, n);
+        return snapshot;
+    }
+
+    /**
+     * The pincode entries of the city's current snapshot that changed after version
+     * since, in the given mode; the whole map when since is older than the history
+     * the snapshot keeps (which includes any version from before a restart).
+     */
+    public HeatmapDelta changes(String city, String mode, long since) {
+        HeatmapSnapshot s = snapshot(city);
+        int m = modeIndex(mode);
+        if (since < s.base || since > s.version) {
+            return new HeatmapDelta(s.version, true, s.data(mode), List.of());
+        }
+        long[] changedAt = s.changedAt[m];
+        int[] changed = new int[s.size()];
+        int count = 0;
+        for (int i = 0; i < changedAt.length; i++) {
+            if (changedAt[i] > since) changed[count++] = i;
+        }
+        List<String> removed = new ArrayList<>();
+        for (Map.Entry<String, Long> e : s.removed.entrySet()) {
+            if (e.getValue() > since) removed.add(e.getKey());
+        }
+        return new HeatmapDelta(s.version, false, new RawValue(write(s, m, changed, count)), removed);
+    }
+
+    /**
+     * Entries i of the mode (only[0, count) when only is given); same fields as
+     * AnalyticsService's heatmap entries, with NaN written as null.
+     */
+    private JsonBytes write(HeatmapSnapshot s, int mode, int[] only, int count) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + count * 128);
+        try (JsonGenerator g = objectMapper.getFactory().createGenerator(out)) {
+            g.writeStartArray();
+            for (int k = 0; k < count; k++) {
+                int i = only != null ? only[k] : k;
+                g.writeStartObject();
+                g.writeStringField("pincode", s.pincodes[i]);
+                g.writeNumberField("score", s.scores[mode][i]);
+                g.writeNumberField("activeListings", s.activeListings[i]);
+                writeNullable(g, "medianPrice", s.medianPrice[i]);
+                writeNullable(g, "p10Price", s.p10Price[i]);
+                writeNullable(g, "p90Price", s.p90Price[i]);
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new JsonBytes(out.toByteArray());
+    }
+
+    private static void writeNullable(JsonGenerator g, String field, double value) throws IOException {
+        if (Double.isNaN(value)) g.writeNullField(field);
+        else g.writeNumberField(field, value);
+    }
+
+    private static String key(String city) {
+        return city == null ? "" : city.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static int modeIndex(String mode) {
+        int i = mode != null ? MODES.indexOf(mode.toLowerCase(Locale.ROOT)) : -1;
+        return Math.max(i, 0);
+    }
+
+    /** One city's heatmap at one point in time. Never modified after construction. */
+    public static final class HeatmapSnapshot {
+        private final long version;
+        private final String[] pincodes;
+        private final int[] activeListings;
+        private final double[] medianPrice;
+        private final double[] p10Price;
+        private final double[] p90Price;
+        // [mode][pincode]
+        private final double[][] scores;
+        private final JsonBytes[] json;
+        // Oldest version a delta can be taken from
+        private final long base;
+        // [mode][pincode] version at which the entry last changed
+        private final long[][] changedAt;
+        // Pincodes no longer on the map -> version they dropped out, oldest first
+        private final Map<String, Long> removed;
+
+        private HeatmapSnapshot(long version, String[] pincodes, int[] activeListings, double[] medianPrice,
+                double[] p10Price, double[] p90Price, double[][] scores) {
+            this(version, pincodes, activeListings, medianPrice, p10Price, p90Price, scores,
+                    new JsonBytes[MODES.size()], version, null, Map.of());
+        }
+
+        private HeatmapSnapshot(long version, String[] pincodes, int[] activeListings, double[] medianPrice,
+                double[] p10Price, double[] p90Price, double[][] scores, JsonBytes[] json, long base,
+                long[][] changedAt, Map<String, Long> removed) {
+            this.version = version;
+            this.pincodes = pincodes;
+            this.activeListings = activeListings;
+            this.medianPrice = medianPrice;
+            this.p10Price = p10Price;
+            this.p90Price = p90Price;
+            this.scores = scores;
+            this.json = json;
+            this.base = base;
+            this.changedAt = changedAt;
+            this.removed = removed;
+        }
+
+        /** This snapshot with its change history taken against the one it replaces (null for none). */
+        private HeatmapSnapshot after(HeatmapSnapshot previous) {
+            int n = pincodes.length;
+            long[][] changed = new long[scores.length][n];
+            if (previous == null) {
+                for (long[] c : changed) Arrays.fill(c, version);
+                return new HeatmapSnapshot(version, pincodes, activeListings, medianPrice, p10Price, p90Price,
+                        scores, json, version, changed, Map.of());
+            }
+
+            Map<String, Integer> before = new HashMap<>(previous.pincodes.length * 2);
+            for (int j = 0; j < previous.pincodes.length; j++) before.put(previous.pincodes[j], j);
+            for (int i = 0; i < n; i++) {
+                Integer j = before.remove(pincodes[i]);
+                boolean shared = j == null || activeListings[i] != previous.activeListings[j]
+                        || !same(medianPrice[i], previous.medianPrice[j])
+                        || !same(p10Price[i], previous.p10Price[j])
+                        || !same(p90Price[i], previous.p90Price[j]);
+                for (int m = 0; m < scores.length; m++) {
+                    changed[m][i] = shared || !same(scores[m][i], previous.scores[m][j])
+                            ? version
+                            : previous.changedAt[m][j];
+                }
+            }
+
+            LinkedHashMap<String, Long> gone = new LinkedHashMap<>(previous.removed);
+            for (String pincode : pincodes) gone.remove(pincode);
+            for (String pincode : before.keySet()) gone.put(pincode, version);
+            long oldest = previous.base;
+            Iterator<Long> it = gone.values().iterator();
+            while (gone.size() > MAX_REMOVED) {
+                oldest = Math.max(oldest, it.next());
+                it.remove();
+            }
+            return new HeatmapSnapshot(version, pincodes, activeListings, medianPrice, p10Price, p90Price,
+                    scores, json, oldest, changed, Collections.unmodifiableMap(gone));
+        }
+
+        private static boolean same(double a, double b) {
+            return Double.compare(a, b) == 0;
+        }
+
+        public long getVersion() { return version; }
+
+        public int size() { return pincodes.length; }
+
+        /** The mode's heatmap entries, ready to splice into a response. */
+        public RawValue data(String mode) {
+            return new RawValue(json[modeIndex(mode)]);
+        }
+    }
+
+    /** What a client holding some earlier version needs to catch up with one mode of the map. */
+    public static final class HeatmapDelta {
+        private final long version;
+        private final boolean full;
+        private final RawValue data;
+        private final List<String> removed;
+
+        HeatmapDelta(long version, boolean full, RawValue data, List<String> removed) {
+            this.version = version;
+            this.full = full;
+            this.data = data;
+            this.removed = removed;
+        }
+
+        public long getVersion() { return version; }
+
+        /** True when data is the whole map rather than just the changed entries. */
+        public boolean isFull() { return full; }
+
+        public RawValue getData() { return data; }
+
+        /** Pincodes to drop from the client's copy; empty for a full map. */
+        public List<String> getRemoved() { return removed; }
+    }
+}
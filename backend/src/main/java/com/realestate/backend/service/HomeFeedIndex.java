@@ -0,0 +1,291 @@
+package com.realestate.backend.service;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.realestate.backend.entity.Property;
+import com.realestate.backend.repository.PropertyRepository;
+import com.realestate.backend.util.JsonBytes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Resident home-page feeds: the featured set (newest first) and the trending
+ * top-K (most viewed first) over visible listings.
+ *
+ * Every visible listing sits in a views-ordered tree, so a views, featured, sold or
+ * active change is one O(log n) re-insert and reading the top K walks K nodes.
+ * Card JSON is held only for the listings near the top and for featured ones; a
+ * listing that climbs into the feed by others dropping out is loaded once on read.
+ */
+@Service
+public class HomeFeedIndex implements PropertyIndex {
+
+    public static final int TRENDING_SIZE = 6;
+
+    // Listings this close to the top keep their card JSON ready
+    private static final int HOT_RESERVE = 4 * TRENDING_SIZE;
+
+    private static final Comparator<Entry> MOST_VIEWED = Comparator
+            .comparingInt((Entry e) -> e.views).reversed()
+            .thenComparingLong(e -> e.id);
+    private static final Comparator<Entry> NEWEST_FIRST = Comparator
+            .comparingDouble((Entry e) -> e.listedAt).reversed()
+            .thenComparingLong(e -> e.id);
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private PropertyJsonCache propertyJsonCache;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> byViews = new TreeSet<>(MOST_VIEWED);
+    private final TreeSet<Entry> featured = new TreeSet<>(NEWEST_FIRST);
+    private final Set<Entry> withCards = new HashSet<>();
+    private long versions;
+
+    /** Card JSON of the featured listings, newest first. */
+    public List<RawValue> featured() {
+        return cards(true);
+    }
+
+    /** Card JSON of the {@link #TRENDING_SIZE} most viewed listings. */
+    public List<RawValue> trending() {
+        return cards(false);
+    }
+
+    @Override
+    public void rebuild(List<Property> visible) {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            byViews.clear();
+            featured.clear();
+            withCards.clear();
+            Map<Long, Property> byId = new HashMap<>();
+            for (Property p : visible) {
+                if (p.getId() == null || !PropertyIndex.isVisible(p)) continue;
+                put(p, null);
+                byId.put(p.getId(), p);
+            }
+            for (Entry e : hotEntries()) {
+                attachCard(e, propertyJsonCache.serializeCard(byId.get(e.id)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Property property) {
+        if (property.getId() == null) return;
+        boolean visible = PropertyIndex.isVisible(property);
+        // Serialise outside the lock, and only when the listing will be in a feed
+        JsonBytes card = visible && mayBeHot(property) ? propertyJsonCache.serializeCard(property) : null;
+        lock.writeLock().lock();
+        try {
+            drop(property.getId());
+            if (visible) put(property, card);
+            trimCards();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long propertyId) {
+        lock.writeLock().lock();
+        try {
+            drop(propertyId);
+            trimCards();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Cards embed the agent's name, email and photo. */
+    @Override
+    public void agentUpdated(Long agentId, String name, String agencyName) {
+        lock.writeLock().lock();
+        try {
+            withCards.removeIf(e -> {
+                if (!agentId.equals(e.agentId)) return false;
+                e.card = null;
+                return true;
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A views change moves the listing in the views order. Its card shows views, so
+     * like PropertyJsonCache it is kept only until {@link PropertyJsonCache#COUNTER_SLACK}
+     * views have been counted since it was built, then reloaded on read.
+     */
+    @Override
+    public void countersChanged(Long propertyId, int views, int inquiries) {
+        if (views == 0) return;
+        lock.writeLock().lock();
+        try {
+            Entry old = entries.get(propertyId);
+            if (old == null) return;
+            drop(propertyId);
+            Entry e = new Entry(old.id, old.agentId, old.views + views, old.listedAt, old.featured, ++versions);
+            entries.put(e.id, e);
+            byViews.add(e);
+            if (e.featured) featured.add(e);
+            int missed = old.missed + views;
+            if (old.card != null && missed < PropertyJsonCache.COUNTER_SLACK) {
+                attachCard(e, old.card);
+                e.missed = missed;
+            }
+            trimCards();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean mayBeHot(Property p) {
+        if (Boolean.TRUE.equals(p.getFeatured())) return true;
+        int views = p.getViews() != null ? p.getViews() : 0;
+        lock.readLock().lock();
+        try {
+            if (byViews.size() < HOT_RESERVE) return true;
+            return views >= first(byViews, HOT_RESERVE).get(HOT_RESERVE - 1).views;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<RawValue> cards(boolean featuredFeed) {
+        List<Entry> feed;
+        JsonBytes[] json;
+        lock.readLock().lock();
+        try {
+            feed = featuredFeed ? new ArrayList<>(featured) : first(byViews, TRENDING_SIZE);
+            json = new JsonBytes[feed.size()];
+            for (int i = 0; i < json.length; i++) json[i] = feed.get(i).card;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < json.length; i++) {
+            if (json[i] == null) missing.add(feed.get(i).id);
+        }
+        if (!missing.isEmpty()) fillMissing(feed, json, missing);
+
+        List<RawValue> out = new ArrayList<>(json.length);
+        for (JsonBytes card : json) {
+            if (card != null) out.add(new RawValue(card));
+        }
+        return out;
+    }
+
+    /** Slow path: load listings that reached the feed without card JSON and keep it for next time. */
+    private void fillMissing(List<Entry> feed, JsonBytes[] json, List<Long> missing) {
+        Map<Long, JsonBytes> loaded = new HashMap<>();
+        for (Property p : propertyRepository.findAllById(missing)) {
+            loaded.put(p.getId(), propertyJsonCache.serializeCard(p));
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < json.length; i++) {
+                if (json[i] != null) continue;
+                Entry e = feed.get(i);
+                json[i] = loaded.get(e.id);
+                // Only if the entry was not replaced by a newer write in the meantime
+                if (json[i] != null && entries.get(e.id) == e && e.card == null) attachCard(e, json[i]);
+            }
+            trimCards();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ── Maintenance (caller holds the write lock) ──
+
+    private void put(Property p, JsonBytes card) {
+        Entry e = new Entry(p.getId(), p.getAgentId(), p.getViews() != null ? p.getViews() : 0,
+                ListingSort.epochMicros(p.getListedDate()), Boolean.TRUE.equals(p.getFeatured()), ++versions);
+        entries.put(e.id, e);
+        byViews.add(e);
+        if (e.featured) featured.add(e);
+        if (card != null) attachCard(e, card);
+    }
+
+    private void drop(Long propertyId) {
+        Entry e = entries.remove(propertyId);
+        if (e == null) return;
+        byViews.remove(e);
+        featured.remove(e);
+        withCards.remove(e);
+    }
+
+    private void attachCard(Entry e, JsonBytes card) {
+        e.card = card;
+        e.missed = 0;
+        withCards.add(e);
+    }
+
+    /** Keep card JSON only for featured listings and those near the top of the views order. */
+    private void trimCards() {
+        Set<Entry> hot = hotEntries();
+        withCards.removeIf(e -> {
+            if (hot.contains(e)) return false;
+            e.card = null;
+            return true;
+        });
+    }
+
+    private Set<Entry> hotEntries() {
+        Set<Entry> hot = new HashSet<>(first(byViews, HOT_RESERVE));
+        hot.addAll(featured);
+        return hot;
+    }
+
+    private static List<Entry> first(TreeSet<Entry> set, int n) {
+        List<Entry> out = new ArrayList<>(Math.min(n, set.size()));
+        for (Entry e : set) {
+            if (out.size() == n) break;
+            out.add(e);
+        }
+        return out;
+    }
+
+    /** One listing's ordering keys; replaced, never mutated, when the listing changes. */
+    private static final class Entry {
+        private final long id;
+        private final Long agentId;
+        private final int views;
+        private final double listedAt;
+        private final boolean featured;
+        private final long version;
+        private JsonBytes card;
+        // Views counted since the card was built
+        private int missed;
+
+        Entry(long id, Long agentId, int views, double listedAt, boolean featured, long version) {
+            this.id = id;
+            this.agentId = agentId;
+            this.views = views;
+            this.listedAt = listedAt;
+            this.featured = featured;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry other && other.version == version;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(version);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.realestate.backend.service;
+
+import java.util.Arrays;
+
+/**
+ * Bounded selection of one keyset page from a stream of (id, key) pairs.
+ *
+ * Holds at most {@code limit + 1} entries in a binary heap whose root is the entry
+ * that sorts last, so memory stays proportional to the page size no matter how many
+ * listings match. The extra entry only tells whether another page exists.
+ */
+public class KeysetPager {
+
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final ListingSort sort;
+    private final ListingCursor after;
+    private final int limit;
+    private final int capacity;
+
+    private double[] keys = new double[16];
+    private long[] ids = new long[16];
+    private int size;
+
+    public KeysetPager(ListingSort sort, ListingCursor after, int limit) {
+        this.sort = sort;
+        this.after = after;
+        this.limit = limit;
+        this.capacity = limit == UNLIMITED ? UNLIMITED : limit + 1;
+    }
+
+    /**
+     * Page size for a request: the requested size clamped to [1, MAX_PAGE_SIZE], or
+     * DEFAULT_PAGE_SIZE when none is given. Every match in one response only when the
+     * client opts in with {@code all} and sends no limit.
+     */
+    public static int resolveLimit(Integer limit, boolean all) {
+        if (limit == null) return all ? UNLIMITED : DEFAULT_PAGE_SIZE;
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    public void offer(long id, double key) {
+        if (after != null && !after.admits(key, id)) return;
+        if (size < capacity) {
+            if (size == keys.length) {
+                int grown = (int) Math.min((long) size * 2, capacity);
+                keys = Arrays.copyOf(keys, grown);
+                ids = Arrays.copyOf(ids, grown);
+            }
+            keys[size] = key;
+            ids[size] = id;
+            siftUp(size++);
+        } else if (sort.before(key, id, keys[0], ids[0])) {
+            keys[0] = key;
+            ids[0] = id;
+            siftDown(0);
+        }
+    }
+
+    public Page page() {
+        // Pop the heap from the back so the result comes out in sort order
+        int n = size;
+        long[] orderedIds = new long[n];
+        double[] orderedKeys = new double[n];
+        for (int i = n - 1; i >= 0; i--) {
+            orderedIds[i] = ids[0];
+            orderedKeys[i] = keys[0];
+            size--;
+            if (size > 0) {
+                keys[0] = keys[size];
+                ids[0] = ids[size];
+                siftDown(0);
+            }
+        }
+        if (n <= limit) return new Page(orderedIds, null);
+        ListingCursor next = new ListingCursor(sort, orderedKeys[limit - 1], orderedIds[limit - 1]);
+        return new Page(Arrays.copyOf(orderedIds, limit), next);
+    }
+
+    /** True if entry a sorts after entry b, i.e. belongs nearer the root. */
+    private boolean later(int a, int b) {
+        return sort.before(keys[b], ids[b], keys[a], ids[a]);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!later(i, parent)) return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) return;
+            int worst = left;
+            int right = left + 1;
+            if (right < size && later(right, left)) worst = right;
+            if (!later(worst, i)) return;
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double k = keys[a];
+        keys[a] = keys[b];
+        keys[b] = k;
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+    }
+
+    /** One page of listing ids in sort order, plus the cursor for the next page if any. */
+    public static class Page {
+        private final long[] ids;
+        private final ListingCursor next;
+
+        public Page(long[] ids, ListingCursor next) {
+            this.ids = ids;
+            this.next = next;
+        }
+
+        public long[] getIds() { return ids; }
+        public ListingCursor getNext() { return next; }
+    }
+}
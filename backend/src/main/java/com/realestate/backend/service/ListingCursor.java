@@ -0,0 +1,72 @@
+package com.realestate.backend.service;
+
+import com.realestate.backend.dto.PropertyListDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque keyset cursor: the sort order plus the (key, id) of the last listing on
+ * the previous page. The next page is everything strictly after that position,
+ * so inserts and deletes between requests never shift or repeat rows.
+ */
+public class ListingCursor {
+
+    /** Response header carrying the cursor of the next page, absent on the last page. */
+    public static final String HEADER = "X-Next-Cursor";
+
+    private final ListingSort sort;
+    private final double key;
+    private final long id;
+
+    public ListingCursor(ListingSort sort, double key, long id) {
+        this.sort = sort;
+        this.key = key;
+        this.id = id;
+    }
+
+    public ListingSort getSort() { return sort; }
+    public double getKey() { return key; }
+    public long getId() { return id; }
+
+    /** True if the listing at (key, id) belongs after this cursor. */
+    public boolean admits(double otherKey, long otherId) {
+        return sort.before(key, id, otherKey, otherId);
+    }
+
+    /**
+     * Cursor for the page after {@code rows}, where rows were fetched with one extra
+     * row beyond {@code limit}; null when there is no further page.
+     */
+    public static ListingCursor nextAfter(List<PropertyListDTO> rows, ListingSort sort, int limit) {
+        if (rows.size() <= limit) return null;
+        PropertyListDTO last = rows.get(limit - 1);
+        return new ListingCursor(sort, sort.keyOf(last), last.getId());
+    }
+
+    public String encode() {
+        String raw = sort.getParam() + ":" + key + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor token. The cursor's own order wins when {@code sort} is null;
+     * otherwise both must agree.
+     */
+    public static ListingCursor decode(String token, ListingSort sort) {
+        if (token == null || token.isBlank()) return null;
+        ListingCursor cursor;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            cursor = new ListingCursor(ListingSort.from(parts[0]), Double.parseDouble(parts[1]), Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (cursor.sort == null || (sort != null && sort != cursor.sort)) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort order");
+        }
+        return cursor;
+    }
+}
@@ -0,0 +1,88 @@
+package com.realestate.backend.service;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parsed form of the listing query parameters accepted by GET /api/properties.
+ * Blank values and "All" mean "no filter"; text values are lower-cased once here
+ * so the search paths never normalise per row.
+ */
+public class ListingFilter {
+
+    private final String city;
+    private final String type;
+    private final String purpose;
+    private final Double minPrice;
+    private final Double maxPrice;
+    private final Integer bhk;
+    private final String search;
+    private final String pincode;
+    private final List<String> amenities;
+
+    private ListingFilter(String city, String type, String purpose, Double minPrice, Double maxPrice,
+                          Integer bhk, String search, String pincode, List<String> amenities) {
+        this.city = city;
+        this.type = type;
+        this.purpose = purpose;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.bhk = bhk;
+        this.search = search;
+        this.pincode = pincode;
+        this.amenities = amenities;
+    }
+
+    public static ListingFilter of(String city, String type, String purpose, String minPrice, String maxPrice,
+                                   String bhk, String search, String pincode, List<String> amenities) {
+        Integer bhkNum = parseInt(bhk);
+        List<String> amenityList = amenities == null ? List.of() : amenities.stream()
+                .filter(a -> a != null && !a.isBlank())
+                .map(ListingFilter::lower)
+                .toList();
+        return new ListingFilter(
+                city != null && !city.isBlank() ? lower(city) : null,
+                isSet(type) ? lower(type) : null,
+                isSet(purpose) ? lower(purpose) : null,
+                parseDouble(minPrice),
+                parseDouble(maxPrice),
+                bhkNum != null && bhkNum > 0 ? bhkNum : null,
+                search != null && !search.isBlank() ? lower(search) : null,
+                pincode != null && !pincode.isBlank() ? pincode : null,
+                amenityList);
+    }
+
+    private static boolean isSet(String value) {
+        return value != null && !value.isBlank() && !value.equalsIgnoreCase("All");
+    }
+
+    private static Double parseDouble(String value) {
+        if (!isSet(value)) return null;
+        try { return Double.parseDouble(value); } catch (Exception ignored) { return null; }
+    }
+
+    private static Integer parseInt(String value) {
+        if (!isSet(value)) return null;
+        try { return Integer.parseInt(value); } catch (Exception ignored) { return null; }
+    }
+
+    static String lower(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    /** True when anything other than free-text search narrows the result set. */
+    public boolean hasStructuredFilters() {
+        return city != null || type != null || purpose != null || minPrice != null || maxPrice != null
+                || bhk != null || pincode != null || !amenities.isEmpty();
+    }
+
+    public String getCity() { return city; }
+    public String getType() { return type; }
+    public String getPurpose() { return purpose; }
+    public Double getMinPrice() { return minPrice; }
+    public Double getMaxPrice() { return maxPrice; }
+    public Integer getBhk() { return bhk; }
+    public String getSearch() { return search; }
+    public String getPincode() { return pincode; }
+    public List<String> getAmenities() { return amenities; }
+}
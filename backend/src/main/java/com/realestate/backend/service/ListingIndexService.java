@@ -0,0 +1,553 @@
+package com.realestate.backend.service;
+
+import com.realestate.backend.dto.ListingFacetsDTO;
+import com.realestate.backend.entity.Property;
+import com.realestate.backend.repository.PropertyRepository;
+import com.realestate.backend.util.CompressedBitmap;
+import com.realestate.backend.util.StringDictionary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Resident columnar index of visible listings backing GET /api/properties.
+ *
+ * Each listing occupies one stable slot across parallel primitive arrays; strings
+ * compared for equality (city, type, purpose, pincode) are dictionary-encoded.
+ * Every facet value, including each amenity parsed out of the amenities column,
+ * owns a compressed bitmap of slots, so a multi-filter query is a bitmap AND
+ * followed by the price check on the surviving slots only.
+ */
+@Service
+public class ListingIndexService implements PropertyIndex {
+
+    private static final int INITIAL_CAPACITY = 256;
+    static final int LOAD_BATCH = 500;
+    private static final long[] NO_IDS = new long[0];
+    private static final int[] NO_AMENITIES = new int[0];
+
+    // Facet price buckets: the rent and sale presets of the search form on one ladder
+    private static final double[] PRICE_EDGES = {10_000, 25_000, 50_000, 5_000_000, 10_000_000, 30_000_000};
+    private static final String[] PRICE_LABELS = {"< 10K", "10K-25K", "25K-50K", "50K-50L", "50L-1Cr", "1Cr-3Cr", "3Cr+"};
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> slotById = new HashMap<>();
+
+    private final StringDictionary cities = new StringDictionary();
+    private final StringDictionary types = new StringDictionary();
+    private final StringDictionary purposes = new StringDictionary();
+    private final StringDictionary pincodes = new StringDictionary();
+    private final StringDictionary amenityNames = new StringDictionary();
+
+    // First-seen spelling of each dictionary entry, for facet labels
+    private final List<String> typeLabels = new ArrayList<>();
+    private final List<String> purposeLabels = new ArrayList<>();
+    private final List<String> amenityLabels = new ArrayList<>();
+
+    // Facet bitmaps, indexed by dictionary id (or bhk value)
+    private final List<CompressedBitmap> cityBits = new ArrayList<>();
+    private final List<CompressedBitmap> typeBits = new ArrayList<>();
+    private final List<CompressedBitmap> purposeBits = new ArrayList<>();
+    private final List<CompressedBitmap> pincodeBits = new ArrayList<>();
+    private final List<CompressedBitmap> amenityBits = new ArrayList<>();
+    private final Map<Integer, CompressedBitmap> bhkBits = new HashMap<>();
+    private CompressedBitmap live = new CompressedBitmap();
+
+    private int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private double[] price = new double[INITIAL_CAPACITY];
+    private double[] area = new double[INITIAL_CAPACITY];
+    private int[] bhk = new int[INITIAL_CAPACITY];
+    private double[] listedAt = new double[INITIAL_CAPACITY];
+    private int[] views = new int[INITIAL_CAPACITY];
+    private int[] cityId = new int[INITIAL_CAPACITY];
+    private int[] typeId = new int[INITIAL_CAPACITY];
+    private int[] purposeId = new int[INITIAL_CAPACITY];
+    private int[] pincodeId = new int[INITIAL_CAPACITY];
+    private int[][] amenityIds = new int[INITIAL_CAPACITY][];
+
+    @Override
+    public void rebuild(List<Property> visible) {
+        lock.writeLock().lock();
+        try {
+            slotById.clear();
+            cities.clear();
+            types.clear();
+            purposes.clear();
+            pincodes.clear();
+            amenityNames.clear();
+            typeLabels.clear();
+            purposeLabels.clear();
+            amenityLabels.clear();
+            cityBits.clear();
+            typeBits.clear();
+            purposeBits.clear();
+            pincodeBits.clear();
+            amenityBits.clear();
+            bhkBits.clear();
+            live = new CompressedBitmap();
+            slotCount = 0;
+            freeCount = 0;
+            Arrays.fill(amenityIds, null);
+            for (Property p : visible) {
+                if (p.getId() != null && PropertyIndex.isVisible(p)) put(p);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Property property) {
+        lock.writeLock().lock();
+        try {
+            if (PropertyIndex.isVisible(property)) put(property);
+            else drop(property.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long propertyId) {
+        lock.writeLock().lock();
+        try {
+            drop(propertyId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Only the views column is kept here. */
+    @Override
+    public void countersChanged(Long propertyId, int views, int inquiries) {
+        if (views == 0) return;
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotById.get(propertyId);
+            if (slot != null) this.views[slot] += views;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Number of visible listings currently indexed. */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of visible listings matching the filter's structured constraints, in slot
+     * order. Free-text search is ranked separately by SearchIndexService.
+     */
+    public long[] match(ListingFilter f) {
+        lock.readLock().lock();
+        try {
+            CompressedBitmap candidates = candidates(f);
+            if (candidates == null || candidates.isEmpty()) return NO_IDS;
+            long[] out = new long[candidates.cardinality()];
+            int[] n = {0};
+            forEachMatch(f, candidates, slot -> out[n[0]++] = ids[slot]);
+            return n[0] == out.length ? out : Arrays.copyOf(out, n[0]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Which of the given listing ids match the filter's structured constraints, as
+     * positions in {@code propertyIds}. Checks each listing's own columns rather than
+     * intersecting facet bitmaps, for a candidate set that is already small (e.g. the
+     * listings in a map area).
+     */
+    public BitSet matching(ListingFilter f, long[] propertyIds) {
+        BitSet out = new BitSet(propertyIds.length);
+        lock.readLock().lock();
+        try {
+            int city = f.getCity() != null ? cities.idOf(f.getCity()) : StringDictionary.NONE;
+            int type = f.getType() != null ? types.idOf(f.getType()) : StringDictionary.NONE;
+            int pincode = f.getPincode() != null ? pincodes.idOf(f.getPincode()) : StringDictionary.NONE;
+            if ((f.getCity() != null && city == StringDictionary.NONE)
+                    || (f.getType() != null && type == StringDictionary.NONE)
+                    || (f.getPincode() != null && pincode == StringDictionary.NONE)) return out;
+            // Substring rules as in candidates(), resolved once per dictionary entry
+            String pu = f.getPurpose();
+            boolean[] purposeOk = pu != null ? idsWhere(purposes, pp -> pp.contains(pu) || pu.contains(pp)) : null;
+            List<boolean[]> amenitiesOk = new ArrayList<>(f.getAmenities().size());
+            for (String wanted : f.getAmenities()) amenitiesOk.add(idsWhere(amenityNames, name -> name.contains(wanted)));
+
+            for (int i = 0; i < propertyIds.length; i++) {
+                Integer slot = slotById.get(propertyIds[i]);
+                if (slot == null) continue;
+                int s = slot;
+                if (f.getCity() != null && cityId[s] != city) continue;
+                if (f.getType() != null && typeId[s] != type) continue;
+                if (f.getPincode() != null && pincodeId[s] != pincode) continue;
+                if (f.getBhk() != null && bhk[s] != f.getBhk()) continue;
+                if (purposeOk != null && (purposeId[s] == StringDictionary.NONE || !purposeOk[purposeId[s]])) continue;
+                if (!hasAmenities(s, amenitiesOk) || !inPriceRange(f, s)) continue;
+                out.set(i);
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean hasAmenities(int slot, List<boolean[]> required) {
+        for (boolean[] ok : required) {
+            boolean any = false;
+            for (int a : amenityIds[slot]) {
+                if (ok[a]) {
+                    any = true;
+                    break;
+                }
+            }
+            if (!any) return false;
+        }
+        return true;
+    }
+
+    private static boolean[] idsWhere(StringDictionary dict, java.util.function.Predicate<String> test) {
+        boolean[] ok = new boolean[dict.size()];
+        for (int id = 0; id < ok.length; id++) ok[id] = test.test(dict.valueOf(id));
+        return ok;
+    }
+
+    /**
+     * One keyset page of matching listings under {@code sort}, starting after
+     * {@code after}. Only {@code limit + 1} candidates are held at any time.
+     */
+    public KeysetPager.Page page(ListingFilter f, ListingSort sort, ListingCursor after, int limit) {
+        KeysetPager pager = new KeysetPager(sort, after, limit);
+        lock.readLock().lock();
+        try {
+            CompressedBitmap candidates = candidates(f);
+            if (candidates != null) {
+                forEachMatch(f, candidates, slot -> pager.offer(ids[slot], keyAt(slot, sort)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return pager.page();
+    }
+
+    /** Facet counts over every visible listing matching the filter's structured constraints. */
+    public ListingFacetsDTO facets(ListingFilter f) {
+        lock.readLock().lock();
+        try {
+            FacetCounter counter = new FacetCounter();
+            CompressedBitmap candidates = candidates(f);
+            if (candidates != null) forEachMatch(f, candidates, counter::add);
+            return counter.toDto();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Facet counts over the given listing ids, e.g. a ranked search result; unknown ids are skipped. */
+    public ListingFacetsDTO facetsOf(long[] propertyIds) {
+        lock.readLock().lock();
+        try {
+            FacetCounter counter = new FacetCounter();
+            for (long id : propertyIds) {
+                Integer slot = slotById.get(id);
+                if (slot != null) counter.add(slot);
+            }
+            return counter.toDto();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Single-pass facet tally: one counter per dictionary id, so adding a slot is a
+     * handful of array increments. Built and used under the read lock.
+     */
+    private final class FacetCounter {
+        private final int[] typeCounts = new int[types.size()];
+        private final int[] purposeCounts = new int[purposes.size()];
+        private final int[] pincodeCounts = new int[pincodes.size()];
+        private final int[] amenityCounts = new int[amenityNames.size()];
+        private final int[] priceCounts = new int[PRICE_LABELS.length];
+        private final Map<Integer, Integer> bhkCounts = new TreeMap<>();
+        private int total;
+
+        void add(int slot) {
+            total++;
+            if (typeId[slot] != StringDictionary.NONE) typeCounts[typeId[slot]]++;
+            if (purposeId[slot] != StringDictionary.NONE) purposeCounts[purposeId[slot]]++;
+            if (pincodeId[slot] != StringDictionary.NONE) pincodeCounts[pincodeId[slot]]++;
+            for (int a : amenityIds[slot]) amenityCounts[a]++;
+            if (bhk[slot] > 0) bhkCounts.merge(bhk[slot], 1, Integer::sum);
+            double value = price[slot];
+            if (!Double.isNaN(value)) {
+                int bucket = 0;
+                while (bucket < PRICE_EDGES.length && value >= PRICE_EDGES[bucket]) bucket++;
+                priceCounts[bucket]++;
+            }
+        }
+
+        ListingFacetsDTO toDto() {
+            List<ListingFacetsDTO.FacetCount> bhkList = new ArrayList<>();
+            bhkCounts.forEach((b, n) -> bhkList.add(new ListingFacetsDTO.FacetCount(String.valueOf(b), n)));
+            List<ListingFacetsDTO.PriceBucket> buckets = new ArrayList<>(PRICE_LABELS.length);
+            for (int b = 0; b < PRICE_LABELS.length; b++) {
+                buckets.add(new ListingFacetsDTO.PriceBucket(PRICE_LABELS[b],
+                        b > 0 ? PRICE_EDGES[b - 1] : null,
+                        b < PRICE_EDGES.length ? PRICE_EDGES[b] : null,
+                        priceCounts[b]));
+            }
+            return new ListingFacetsDTO(total,
+                    counts(typeCounts, typeLabels::get),
+                    counts(purposeCounts, purposeLabels::get),
+                    bhkList,
+                    buckets,
+                    counts(amenityCounts, amenityLabels::get),
+                    counts(pincodeCounts, pincodes::valueOf));
+        }
+
+        /** Non-zero counts, most common first. */
+        private List<ListingFacetsDTO.FacetCount> counts(int[] counts, java.util.function.IntFunction<String> label) {
+            List<ListingFacetsDTO.FacetCount> out = new ArrayList<>();
+            for (int id = 0; id < counts.length; id++) {
+                if (counts[id] > 0) out.add(new ListingFacetsDTO.FacetCount(label.apply(id), counts[id]));
+            }
+            out.sort(Comparator.comparingInt(ListingFacetsDTO.FacetCount::getCount).reversed()
+                    .thenComparing(ListingFacetsDTO.FacetCount::getValue));
+            return out;
+        }
+    }
+
+    /** Sort keys for the given listing ids; ids no longer indexed get the missing key. */
+    public double[] keysOf(long[] propertyIds, ListingSort sort) {
+        lock.readLock().lock();
+        try {
+            double[] keys = new double[propertyIds.length];
+            for (int i = 0; i < propertyIds.length; i++) {
+                Integer slot = slotById.get(propertyIds[i]);
+                keys[i] = slot != null ? keyAt(slot, sort) : sort.missingKey();
+            }
+            return keys;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private double keyAt(int slot, ListingSort sort) {
+        return switch (sort) {
+            case PRICE_ASC, PRICE_DESC -> Double.isNaN(price[slot]) ? sort.missingKey() : price[slot];
+            case PRICE_PER_SQFT_ASC, PRICE_PER_SQFT_DESC -> sort.keyOf(price[slot], area[slot]);
+            case NEWEST -> listedAt[slot];
+            case VIEWS -> views[slot];
+            case DISTANCE -> throw new IllegalArgumentException("Sort 'distance' requires a location (/nearby or /within)");
+            case RELEVANCE -> throw new IllegalArgumentException("Sort 'relevance' requires a search term");
+        };
+    }
+
+    /** Apply the per-slot price range to the bitmap candidates. Caller holds the read lock. */
+    private void forEachMatch(ListingFilter f, CompressedBitmap candidates, java.util.function.IntConsumer action) {
+        candidates.forEach(slot -> {
+            if (inPriceRange(f, slot)) action.accept(slot);
+        });
+    }
+
+    /** A missing price fails any bound. */
+    private boolean inPriceRange(ListingFilter f, int slot) {
+        if (f.getMinPrice() != null && !(price[slot] >= f.getMinPrice())) return false;
+        return f.getMaxPrice() == null || price[slot] <= f.getMaxPrice();
+    }
+
+    /**
+     * Intersection of every facet bitmap the filter constrains, smallest first.
+     * Returns null when a requested facet value has no listings at all.
+     */
+    private CompressedBitmap candidates(ListingFilter f) {
+        List<CompressedBitmap> required = new ArrayList<>();
+        if (f.getCity() != null && !addBitmap(required, cityBits, cities.idOf(f.getCity()))) return null;
+        if (f.getType() != null && !addBitmap(required, typeBits, types.idOf(f.getType()))) return null;
+        if (f.getPincode() != null && !addBitmap(required, pincodeBits, pincodes.idOf(f.getPincode()))) return null;
+        if (f.getBhk() != null) {
+            CompressedBitmap b = bhkBits.get(f.getBhk());
+            if (b == null) return null;
+            required.add(b);
+        }
+        if (f.getPurpose() != null) {
+            // Purpose is a two-way substring match ("Sale" vs "For Sale"), resolved once per dictionary entry
+            String pu = f.getPurpose();
+            CompressedBitmap any = unionWhere(purposes, purposeBits, pp -> pp.contains(pu) || pu.contains(pp));
+            if (any == null) return null;
+            required.add(any);
+        }
+        for (String wanted : f.getAmenities()) {
+            // Substring match per amenity name, so "pool" still finds "Swimming Pool"
+            CompressedBitmap any = unionWhere(amenityNames, amenityBits, name -> name.contains(wanted));
+            if (any == null) return null;
+            required.add(any);
+        }
+        if (required.isEmpty()) return live;
+
+        required.sort(Comparator.comparingInt(CompressedBitmap::cardinality));
+        CompressedBitmap result = required.get(0);
+        for (int i = 1; i < required.size() && !result.isEmpty(); i++) {
+            result = CompressedBitmap.and(result, required.get(i));
+        }
+        return result;
+    }
+
+    private static boolean addBitmap(List<CompressedBitmap> required, List<CompressedBitmap> bitmaps, int id) {
+        if (id == StringDictionary.NONE || id >= bitmaps.size() || bitmaps.get(id).isEmpty()) return false;
+        required.add(bitmaps.get(id));
+        return true;
+    }
+
+    private static CompressedBitmap unionWhere(StringDictionary dict, List<CompressedBitmap> bitmaps,
+                                               java.util.function.Predicate<String> test) {
+        CompressedBitmap union = null;
+        for (int id = 0; id < dict.size(); id++) {
+            if (id >= bitmaps.size() || bitmaps.get(id).isEmpty() || !test.test(dict.valueOf(id))) continue;
+            union = union == null ? bitmaps.get(id) : CompressedBitmap.or(union, bitmaps.get(id));
+        }
+        return union;
+    }
+
+    /** Load entities for the given ids, preserving the order of {@code ids}. */
+    public List<Property> load(long[] propertyIds) {
+        Map<Long, Property> byId = new HashMap<>(propertyIds.length * 2);
+        for (int from = 0; from < propertyIds.length; from += LOAD_BATCH) {
+            int to = Math.min(from + LOAD_BATCH, propertyIds.length);
+            List<Long> chunk = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) chunk.add(propertyIds[i]);
+            for (Property p : propertyRepository.findAllById(chunk)) byId.put(p.getId(), p);
+        }
+        List<Property> result = new ArrayList<>(propertyIds.length);
+        for (long id : propertyIds) {
+            Property p = byId.get(id);
+            if (p != null) result.add(p);
+        }
+        return result;
+    }
+
+    /** Split the free-text amenities column ("Gym, Pool" or ["Gym","Pool"]) into names, first spelling wins. */
+    static List<String> parseAmenities(String amenities) {
+        if (amenities == null || amenities.isBlank()) return List.of();
+        Map<String, String> names = new LinkedHashMap<>();
+        for (String part : amenities.split("[,\\[\\]\"]")) {
+            String name = part.trim();
+            if (!name.isEmpty()) names.putIfAbsent(ListingFilter.lower(name), name);
+        }
+        return new ArrayList<>(names.values());
+    }
+
+    // ── Slot maintenance (caller holds the write lock) ──
+
+    private void put(Property p) {
+        Integer slot = slotById.get(p.getId());
+        if (slot != null) {
+            unindexFacets(slot);
+        } else {
+            slot = allocateSlot();
+            slotById.put(p.getId(), slot);
+        }
+        int i = slot;
+        ids[i] = p.getId();
+        price[i] = p.getPrice() != null ? p.getPrice() : Double.NaN;
+        area[i] = p.getArea() != null ? p.getArea() : Double.NaN;
+        bhk[i] = p.getBhk() != null ? p.getBhk() : 0;
+        listedAt[i] = ListingSort.epochMicros(p.getListedDate());
+        views[i] = p.getViews() != null ? p.getViews() : 0;
+        cityId[i] = cities.intern(p.getCity() != null ? ListingFilter.lower(p.getCity()) : null);
+        typeId[i] = internLabelled(types, typeLabels, p.getType());
+        purposeId[i] = internLabelled(purposes, purposeLabels, p.getPurpose() != null ? p.getPurpose() : "Sale");
+        pincodeId[i] = pincodes.intern(p.getPinCode());
+        List<String> names = parseAmenities(p.getAmenities());
+        int[] amenityList = names.isEmpty() ? NO_AMENITIES : new int[names.size()];
+        for (int a = 0; a < amenityList.length; a++) amenityList[a] = internLabelled(amenityNames, amenityLabels, names.get(a));
+        amenityIds[i] = amenityList;
+        indexFacets(i);
+    }
+
+    /** Intern the lower-cased value, remembering the original spelling for new entries. */
+    private static int internLabelled(StringDictionary dict, List<String> labels, String value) {
+        if (value == null) return StringDictionary.NONE;
+        int id = dict.intern(ListingFilter.lower(value));
+        if (id == labels.size()) labels.add(value.trim());
+        return id;
+    }
+
+    private void drop(Long propertyId) {
+        if (propertyId == null) return;
+        Integer slot = slotById.remove(propertyId);
+        if (slot == null) return;
+        unindexFacets(slot);
+        amenityIds[slot] = null;
+        if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        freeSlots[freeCount++] = slot;
+    }
+
+    private void indexFacets(int slot) {
+        live.add(slot);
+        addTo(cityBits, cityId[slot], slot);
+        addTo(typeBits, typeId[slot], slot);
+        addTo(purposeBits, purposeId[slot], slot);
+        addTo(pincodeBits, pincodeId[slot], slot);
+        bhkBits.computeIfAbsent(bhk[slot], k -> new CompressedBitmap()).add(slot);
+        for (int a : amenityIds[slot]) addTo(amenityBits, a, slot);
+    }
+
+    private void unindexFacets(int slot) {
+        live.remove(slot);
+        removeFrom(cityBits, cityId[slot], slot);
+        removeFrom(typeBits, typeId[slot], slot);
+        removeFrom(purposeBits, purposeId[slot], slot);
+        removeFrom(pincodeBits, pincodeId[slot], slot);
+        CompressedBitmap b = bhkBits.get(bhk[slot]);
+        if (b != null) b.remove(slot);
+        for (int a : amenityIds[slot]) removeFrom(amenityBits, a, slot);
+    }
+
+    private static void addTo(List<CompressedBitmap> bitmaps, int id, int slot) {
+        if (id == StringDictionary.NONE) return;
+        while (bitmaps.size() <= id) bitmaps.add(new CompressedBitmap());
+        bitmaps.get(id).add(slot);
+    }
+
+    private static void removeFrom(List<CompressedBitmap> bitmaps, int id, int slot) {
+        if (id != StringDictionary.NONE && id < bitmaps.size()) bitmaps.get(id).remove(slot);
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) return freeSlots[--freeCount];
+        ensureCapacity(slotCount + 1);
+        return slotCount++;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= ids.length) return;
+        int capacity = Math.max(needed, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        price = Arrays.copyOf(price, capacity);
+        area = Arrays.copyOf(area, capacity);
+        bhk = Arrays.copyOf(bhk, capacity);
+        listedAt = Arrays.copyOf(listedAt, capacity);
+        views = Arrays.copyOf(views, capacity);
+        cityId = Arrays.copyOf(cityId, capacity);
+        typeId = Arrays.copyOf(typeId, capacity);
+        purposeId = Arrays.copyOf(purposeId, capacity);
+        pincodeId = Arrays.copyOf(pincodeId, capacity);
+        amenityIds = Arrays.copyOf(amenityIds, capacity);
+    }
+}
@@ -0,0 +1,270 @@
+package com.realestate.backend.service;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.realestate.backend.dto.ListingFacetsDTO;
+import com.realestate.backend.dto.PropertyListDTO;
+import com.realestate.backend.entity.Property;
+import com.realestate.backend.repository.PropertyRepository;
+import com.realestate.backend.util.JsonBytes;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Answers GET /api/properties from the resident indexes: structured filters from
+ * ListingIndexService, free text from SearchIndexService, then ordering and
+ * keyset paging. Setting {@code listing.query.engine=database} pushes the same
+ * filters into the database instead.
+ */
+@Service
+public class ListingQueryService {
+
+    static final String ENGINE_DATABASE = "database";
+
+    @Value("${listing.query.engine:index}")
+    private String engine;
+
+    @Autowired
+    private ListingIndexService listingIndexService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private GeoIndexService geoIndexService;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private PropertyJsonCache propertyJsonCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Matching listing ids for one page. With no sort or cursor and an unlimited page
+     * (see {@link KeysetPager#resolveLimit}) the result is every match in natural order
+     * (relevance when searching).
+     */
+    public KeysetPager.Page find(ListingFilter filter, ListingSort sort, ListingCursor after, int limit) {
+        if (filter.getSearch() != null) {
+            SearchIndexService.Hits hits = searchIndexService.search(filter.getSearch(), allowedIds(filter));
+            ListingSort order = sort != null ? sort : ListingSort.RELEVANCE;
+            double[] keys = order == ListingSort.RELEVANCE ? null : listingIndexService.keysOf(hits.ids(), order);
+            KeysetPager pager = new KeysetPager(order, after, limit);
+            for (int i = 0; i < hits.size(); i++) {
+                // Relevance is keyed on (score, id), so a cursor holds when other listings re-rank
+                pager.offer(hits.idAt(i), keys != null ? keys[i] : hits.scoreAt(i));
+            }
+            return pager.page();
+        }
+
+        if (sort == null && after == null && limit == KeysetPager.UNLIMITED) {
+            return new KeysetPager.Page(listingIndexService.match(filter), null);
+        }
+        ListingSort order = sort != null ? sort : ListingSort.NEWEST;
+        if (order == ListingSort.RELEVANCE) {
+            throw new IllegalArgumentException("Sort 'relevance' requires a search term");
+        }
+        return listingIndexService.page(filter, order, after, limit);
+    }
+
+    /**
+     * List cards for GET /api/properties. The index engine answers from the resident
+     * indexes; the database engine compiles the filter into one Criteria query that
+     * returns only the matching page.
+     */
+    public CardPage<?> findCards(ListingFilter filter, ListingSort sort, ListingCursor after, int limit) {
+        if (ENGINE_DATABASE.equalsIgnoreCase(engine)) {
+            ListingSort order = sort != null ? sort : ListingSort.NEWEST;
+            if (order == ListingSort.RELEVANCE) {
+                throw new IllegalArgumentException("Sort 'relevance' is not available with the database engine");
+            }
+            return cardPage(propertyRepository.streamCards(null, true, false, filter, order, after, limit), order, limit);
+        }
+        KeysetPager.Page page = find(filter, sort, after, limit);
+        return new CardPage<>(cachedCards(page.getIds()), page.getNext());
+    }
+
+    /**
+     * List cards for GET /api/properties/nearby and /within: listings in the area that
+     * also match the filter. Ordered nearest first by default (by relevance when
+     * searching). Always answered from the resident indexes.
+     */
+    public CardPage<?> findInArea(ListingFilter filter, GeoArea area, ListingSort sort, ListingCursor after, int limit) {
+        GeoIndexService.Hits hits = geoIndexService.within(area);
+        long[] ids = new long[hits.size()];
+        double[] distances = new double[hits.size()];
+        for (int i = 0; i < hits.size(); i++) {
+            ids[i] = hits.idAt(i);
+            distances[i] = hits.distanceAt(i);
+        }
+        // The area is the selective part: check its listings against the filter one by one
+        int n = hits.size();
+        if (filter.hasStructuredFilters()) {
+            BitSet matching = listingIndexService.matching(filter, ids);
+            n = 0;
+            for (int i = matching.nextSetBit(0); i >= 0; i = matching.nextSetBit(i + 1)) {
+                ids[n] = ids[i];
+                distances[n++] = distances[i];
+            }
+        }
+        ids = Arrays.copyOf(ids, n);
+        distances = Arrays.copyOf(distances, n);
+
+        ListingSort order = sort != null ? sort : ListingSort.DISTANCE;
+        double[] scores = null;
+        if (filter.getSearch() != null) {
+            Map<Long, Double> distanceOf = new HashMap<>(n * 2);
+            for (int i = 0; i < n; i++) distanceOf.put(ids[i], distances[i]);
+            SearchIndexService.Hits ranked = searchIndexService.search(filter.getSearch(), distanceOf.keySet());
+            ids = ranked.ids();
+            distances = new double[ids.length];
+            scores = new double[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                distances[i] = distanceOf.get(ids[i]);
+                scores[i] = ranked.scoreAt(i);
+            }
+            if (sort == null) order = ListingSort.RELEVANCE;
+        } else if (order == ListingSort.RELEVANCE) {
+            throw new IllegalArgumentException("Sort 'relevance' requires a search term");
+        }
+
+        double[] keys = switch (order) {
+            case DISTANCE -> distances;
+            case RELEVANCE -> scores;
+            default -> listingIndexService.keysOf(ids, order);
+        };
+        KeysetPager pager = new KeysetPager(order, after, limit);
+        for (int i = 0; i < ids.length; i++) {
+            pager.offer(ids[i], keys[i]);
+        }
+        KeysetPager.Page page = pager.page();
+        return new CardPage<>(cachedCards(page.getIds()), page.getNext());
+    }
+
+    /** Card JSON for a short, already-ranked id list (e.g. from PincodeTopIndex). */
+    public List<RawValue> cards(long[] ids) {
+        return cardBatch(ids, propertyJsonCache.snapshot());
+    }
+
+    /**
+     * Card JSON for the ids in order, spliced from PropertyJsonCache. Only cache misses
+     * are loaded, one batch at a time as the stream is consumed; loaded entities are
+     * detached so the persistence context stays small.
+     */
+    private Stream<RawValue> cachedCards(long[] ids) {
+        long snapshot = propertyJsonCache.snapshot();
+        int batch = ListingIndexService.LOAD_BATCH;
+        return IntStream.range(0, (ids.length + batch - 1) / batch).boxed().flatMap(b -> cardBatch(
+                Arrays.copyOfRange(ids, b * batch, Math.min((b + 1) * batch, ids.length)), snapshot).stream());
+    }
+
+    private List<RawValue> cardBatch(long[] ids, long snapshot) {
+        JsonBytes[] cards = new JsonBytes[ids.length];
+        int misses = 0;
+        for (int i = 0; i < ids.length; i++) {
+            cards[i] = propertyJsonCache.cachedCard(ids[i]);
+            if (cards[i] == null) misses++;
+        }
+        if (misses > 0) {
+            long[] missing = new long[misses];
+            for (int i = 0, m = 0; i < ids.length; i++) {
+                if (cards[i] == null) missing[m++] = ids[i];
+            }
+            Map<Long, JsonBytes> loaded = new HashMap<>(misses * 2);
+            for (Property p : listingIndexService.load(missing)) {
+                loaded.put(p.getId(), propertyJsonCache.card(p, snapshot));
+                entityManager.detach(p);
+            }
+            for (int i = 0; i < ids.length; i++) {
+                if (cards[i] == null) cards[i] = loaded.get(ids[i]);
+            }
+        }
+        List<RawValue> out = new ArrayList<>(ids.length);
+        for (JsonBytes card : cards) {
+            if (card != null) out.add(new RawValue(card));
+        }
+        return out;
+    }
+
+    /** Sidebar facet counts over the same result set {@link #find} pages through. */
+    public ListingFacetsDTO facets(ListingFilter filter) {
+        if (filter.getSearch() != null) {
+            return listingIndexService.facetsOf(
+                    searchIndexService.search(filter.getSearch(), allowedIds(filter)).ids());
+        }
+        return listingIndexService.facets(filter);
+    }
+
+    /**
+     * Keyset page read straight from the database, for listing endpoints that are not
+     * limited to visible listings (agent dashboard, admin) or need no filtering.
+     * Defaults to newest first, one page of {@link KeysetPager#resolveLimit} rows.
+     */
+    public CardPage<PropertyListDTO> findInDatabase(Long agentId, boolean visibleOnly, boolean featuredOnly,
+                                   String sort, String cursor, Integer limit, boolean all) {
+        ListingSort order = ListingSort.from(sort);
+        ListingCursor after = ListingCursor.decode(cursor, order);
+        if (after != null) order = after.getSort();
+        if (order == null) order = ListingSort.NEWEST;
+        int pageSize = KeysetPager.resolveLimit(limit, all);
+
+        return cardPage(propertyRepository.streamCards(agentId, visibleOnly, featuredOnly, null, order, after, pageSize),
+                order, pageSize);
+    }
+
+    /**
+     * Unpaged results stay a live stream. A page is read eagerly (it is at most
+     * limit + 1 rows) because its last row decides the next cursor.
+     */
+    private static CardPage<PropertyListDTO> cardPage(Stream<PropertyListDTO> rows, ListingSort order, int limit) {
+        if (limit == KeysetPager.UNLIMITED) return new CardPage<>(rows, null);
+        List<PropertyListDTO> page;
+        try (rows) {
+            page = rows.toList();
+        }
+        ListingCursor next = ListingCursor.nextAfter(page, order, limit);
+        return new CardPage<>((next != null ? page.subList(0, limit) : page).stream(), next);
+    }
+
+    /**
+     * One page of list cards (DTOs or their pre-serialised JSON) plus the cursor for
+     * the next page if any. Cards may be read lazily from the database, so consume
+     * them within the caller's transaction.
+     */
+    public static class CardPage<T> {
+        private final Stream<T> cards;
+        private final ListingCursor next;
+
+        public CardPage(Stream<T> cards, ListingCursor next) {
+            this.cards = cards;
+            this.next = next;
+        }
+
+        public Stream<T> getCards() { return cards; }
+        public ListingCursor getNext() { return next; }
+    }
+
+    private Set<Long> allowedIds(ListingFilter filter) {
+        if (!filter.hasStructuredFilters()) return null;
+        long[] matching = listingIndexService.match(filter);
+        Set<Long> allowed = new HashSet<>(matching.length * 2);
+        for (long id : matching) allowed.add(id);
+        return allowed;
+    }
+}
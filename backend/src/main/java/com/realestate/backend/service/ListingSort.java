@@ -0,0 +1,99 @@
+package com.realestate.backend.service;
+
+import com.realestate.backend.dto.PropertyListDTO;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Server-side sort orders for listing endpoints, selected with {@code ?sort=}.
+ *
+ * Every order is total: equal keys fall back to ascending id, which is what makes
+ * keyset cursors stable. Keys are doubles; listing dates are epoch microseconds
+ * (the database's own precision) and missing prices sort last in either direction.
+ */
+public enum ListingSort {
+
+    PRICE_ASC("price_asc", false),
+    PRICE_DESC("price_desc", true),
+    PRICE_PER_SQFT_ASC("price_per_sqft_asc", false),
+    PRICE_PER_SQFT_DESC("price_per_sqft_desc", true),
+    NEWEST("newest", true),
+    VIEWS("views", true),
+    /** Distance from the query point; only valid on /nearby and /within. */
+    DISTANCE("distance", false),
+    /** Search score, best first; only valid together with a search term. */
+    RELEVANCE("relevance", true);
+
+    private final String param;
+    private final boolean descending;
+
+    ListingSort(String param, boolean descending) {
+        this.param = param;
+        this.descending = descending;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /** Parse the {@code sort} request parameter; blank means "no explicit order". */
+    public static ListingSort from(String value) {
+        if (value == null || value.isBlank()) return null;
+        for (ListingSort s : values()) {
+            if (s.param.equalsIgnoreCase(value.trim())) return s;
+        }
+        throw new IllegalArgumentException("Unknown sort '" + value + "'. Expected one of: "
+                + Arrays.stream(values()).map(ListingSort::getParam).collect(Collectors.joining(", ")));
+    }
+
+    /** Value substituted for a missing key so it sorts after every real one. */
+    public double missingKey() {
+        return descending ? -Double.MAX_VALUE : Double.MAX_VALUE;
+    }
+
+    /** Sort key of a listing card under this order. */
+    public double keyOf(PropertyListDTO p) {
+        return switch (this) {
+            case PRICE_ASC, PRICE_DESC -> p.getPrice() != null ? p.getPrice() : missingKey();
+            case PRICE_PER_SQFT_ASC, PRICE_PER_SQFT_DESC -> keyOf(p.getPrice(), p.getArea());
+            case NEWEST -> epochMicros(p.getListedDate());
+            case VIEWS -> p.getViews() != null ? p.getViews() : 0;
+            case DISTANCE, RELEVANCE -> throw new IllegalStateException(this + " has no per-entity key");
+        };
+    }
+
+    /** Price-per-sqft key from raw columns; NaN inputs count as missing. */
+    public double keyOf(double price, double area) {
+        return !Double.isNaN(price) && area > 0 ? price / area : missingKey();
+    }
+
+    private double keyOf(Double price, Double area) {
+        return keyOf(price != null ? price : Double.NaN, area != null ? area : Double.NaN);
+    }
+
+    /** True if (key1, id1) comes before (key2, id2) under this order. */
+    public boolean before(double key1, long id1, double key2, long id2) {
+        int c = Double.compare(key1, key2);
+        if (c != 0) return descending ? c > 0 : c < 0;
+        return id1 < id2;
+    }
+
+    /** Listing date as epoch microseconds; a missing date counts as the epoch. */
+    public static double epochMicros(LocalDateTime time) {
+        if (time == null) return 0;
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    public static LocalDateTime fromEpochMicros(double micros) {
+        long value = (long) micros;
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(value, 1_000_000L),
+                (int) Math.floorMod(value, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
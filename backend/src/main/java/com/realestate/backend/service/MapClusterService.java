@@ -0,0 +1,221 @@
+package com.realestate.backend.service;
+
+import com.realestate.backend.dto.MapClusterDTO;
+import com.realestate.backend.entity.Property;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Marker clusters of visible listings for every zoom level, kept current per write.
+ *
+ * At zoom z the Web Mercator world is cut into square cells of {@link #CELL_PIXELS}
+ * screen pixels (4 * 2^z per side); all listings in a cell form one cluster placed
+ * at their centroid. Cells at z + 1 split each cell at z in four, so the levels form
+ * a quadtree, and a listing write touches one cell per level instead of
+ * re-clustering. A request reads only the cells on screen, so the response is
+ * bounded by the viewport, not by the number of listings.
+ */
+@Service
+public class MapClusterService implements PropertyIndex {
+
+    public static final int MAX_ZOOM = 16;
+    static final int CELL_PIXELS = 64;
+    // log2(256 / CELL_PIXELS): cells per tile side at zoom 0
+    private static final int CELL_SHIFT = 2;
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    /** Refuse viewports that would list more markers than any screen can show. */
+    static final int MAX_MARKERS = 5_000;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // levels.get(z): cell key -> cluster; the finest level also keeps its members for zoom > MAX_ZOOM
+    private final List<Map<Long, Cluster>> levels = new ArrayList<>(MAX_ZOOM + 1);
+    private final Map<Long, Point> points = new HashMap<>();
+
+    public MapClusterService() {
+        for (int z = 0; z <= MAX_ZOOM; z++) levels.add(new HashMap<>());
+    }
+
+    /**
+     * Markers for the viewport at {@code zoom}. Beyond MAX_ZOOM every listing is its
+     * own marker.
+     */
+    public List<MapClusterDTO> clusters(GeoArea bbox, int zoom) {
+        if (zoom < 0) throw new IllegalArgumentException("zoom must not be negative");
+        int z = Math.min(zoom, MAX_ZOOM);
+        int bits = z + CELL_SHIFT;
+        long minX = cell(x(bbox.getMinLng()), bits);
+        long maxX = cell(x(bbox.getMaxLng()), bits);
+        // Mercator y grows southwards
+        long minY = cell(y(bbox.getMaxLat()), bits);
+        long maxY = cell(y(bbox.getMinLat()), bits);
+
+        List<MapClusterDTO> out = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<Long, Cluster> level = levels.get(z);
+            if ((maxX - minX + 1) * (maxY - minY + 1) > level.size()) {
+                for (Map.Entry<Long, Cluster> e : level.entrySet()) {
+                    long cx = e.getKey() >>> 32;
+                    long cy = e.getKey() & 0xFFFFFFFFL;
+                    if (cx >= minX && cx <= maxX && cy >= minY && cy <= maxY) emit(e.getValue(), zoom > MAX_ZOOM, out);
+                }
+            } else {
+                for (long cy = minY; cy <= maxY; cy++) {
+                    for (long cx = minX; cx <= maxX; cx++) {
+                        Cluster c = level.get(key(cx, cy));
+                        if (c != null) emit(c, zoom > MAX_ZOOM, out);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return out;
+    }
+
+    private static void emit(Cluster c, boolean expand, List<MapClusterDTO> out) {
+        if (expand) {
+            for (Point p : c.members) out.add(new MapClusterDTO(p.lat, p.lng, 1, p.id));
+        } else {
+            // With one member left, the XOR of member ids is that member's id
+            out.add(new MapClusterDTO(lat(c.sumY / c.count), lng(c.sumX / c.count), c.count,
+                    c.count == 1 ? c.idXor : null));
+        }
+        if (out.size() > MAX_MARKERS) {
+            throw new IllegalArgumentException("Too many markers for this viewport; zoom in or shrink the bbox");
+        }
+    }
+
+    @Override
+    public void rebuild(List<Property> visible) {
+        lock.writeLock().lock();
+        try {
+            for (Map<Long, Cluster> level : levels) level.clear();
+            points.clear();
+            for (Property p : visible) {
+                if (p.getId() != null && PropertyIndex.isVisible(p)) put(p);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Property property) {
+        if (property.getId() == null) return;
+        lock.writeLock().lock();
+        try {
+            drop(property.getId());
+            if (PropertyIndex.isVisible(property)) put(property);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long propertyId) {
+        lock.writeLock().lock();
+        try {
+            drop(propertyId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(Property p) {
+        Double lat = p.getLatitude();
+        Double lng = p.getLongitude();
+        if (lat == null || lng == null || !(Math.abs(lat) <= 90) || !(Math.abs(lng) <= 180)) return;
+        Point point = new Point(p.getId(), lat, lng, x(lng), y(lat));
+        points.put(point.id, point);
+        for (int z = 0; z <= MAX_ZOOM; z++) {
+            Cluster c = levels.get(z).computeIfAbsent(cellKey(point, z), k -> new Cluster());
+            c.count++;
+            c.sumX += point.x;
+            c.sumY += point.y;
+            c.idXor ^= point.id;
+            if (z == MAX_ZOOM) {
+                if (c.members == null) c.members = new ArrayList<>(2);
+                c.members.add(point);
+            }
+        }
+    }
+
+    private void drop(Long propertyId) {
+        Point point = points.remove(propertyId);
+        if (point == null) return;
+        for (int z = 0; z <= MAX_ZOOM; z++) {
+            long key = cellKey(point, z);
+            Cluster c = levels.get(z).get(key);
+            if (--c.count == 0) {
+                levels.get(z).remove(key);
+                continue;
+            }
+            c.sumX -= point.x;
+            c.sumY -= point.y;
+            c.idXor ^= point.id;
+            if (z == MAX_ZOOM) c.members.remove(point);
+        }
+    }
+
+    private static long cellKey(Point p, int z) {
+        int bits = z + CELL_SHIFT;
+        return key(cell(p.x, bits), cell(p.y, bits));
+    }
+
+    private static long key(long cx, long cy) {
+        return (cx << 32) | cy;
+    }
+
+    private static long cell(double unit, int bits) {
+        long cells = 1L << bits;
+        return Math.min(cells - 1, Math.max(0, (long) Math.floor(unit * cells)));
+    }
+
+    // Web Mercator in unit square coordinates
+
+    private static double x(double lng) {
+        return (lng + 180) / 360;
+    }
+
+    private static double y(double lat) {
+        double sin = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, lat))));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+
+    private static double lng(double x) {
+        return x * 360 - 180;
+    }
+
+    private static double lat(double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+    }
+
+    private static final class Point {
+        private final long id;
+        private final double lat;
+        private final double lng;
+        private final double x;
+        private final double y;
+
+        Point(long id, double lat, double lng, double x, double y) {
+            this.id = id;
+            this.lat = lat;
+            this.lng = lng;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private static final class Cluster {
+        private int count;
+        private double sumX;
+        private double sumY;
+        private long idXor;
+        // Finest level only
+        private List<Point> members;
+    }
+}
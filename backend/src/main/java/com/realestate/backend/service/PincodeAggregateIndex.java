@@ -0,0 +1,84 @@
+package com.realestate.backend.service;
+
+import com.realestate.backend.entity.PincodeScore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Per-pincode metrics behind the city heatmap, read from the pincode rollups of
+ * {@link HeatmapCubeIndex} over every type and purpose: listing counts, price per
+ * sqft (average, and a median within the sketch's 1% accuracy), listing dates,
+ * views, favorites, inquiries and agents. Holds no state of its own.
+ */
+@Service
+public class PincodeAggregateIndex {
+
+    @Autowired
+    private HeatmapCubeIndex heatmapCubeIndex;
+
+    /**
+     * Raw metrics of every pincode in the city (priceScore, inventory and the other
+     * derived scores are left for the caller), with the city-wide figures they are
+     * scored against.
+     */
+    public CityMetrics metrics(String city) {
+        long nowSeconds = Instant.now().getEpochSecond();
+        Map<String, HeatmapCubeIndex.Rollup> rollups = heatmapCubeIndex.cityRollup(city);
+        if (rollups.isEmpty()) return new CityMetrics(List.of(), 1, 1);
+        List<PincodeScore> out = new ArrayList<>(rollups.size());
+        int maxListings = 1;
+        long listings = 0;
+        for (Map.Entry<String, HeatmapCubeIndex.Rollup> e : rollups.entrySet()) {
+            HeatmapCubeIndex.Rollup r = e.getValue();
+            maxListings = Math.max(maxListings, (int) r.getCount());
+            listings += r.getCount();
+            if (e.getKey().equals(HeatmapCubeIndex.UNASSIGNED)) continue; // counted in the city figures only
+            out.add(toScore(city, e.getKey(), r, nowSeconds));
+        }
+        return new CityMetrics(out, maxListings, listings / (double) rollups.size());
+    }
+
+    /** Lower-cased names of the cities with at least one visible listing. */
+    public Set<String> cities() {
+        return heatmapCubeIndex.cities();
+    }
+
+    private static PincodeScore toScore(String city, String pincode, HeatmapCubeIndex.Rollup r, long nowSeconds) {
+        PincodeScore score = new PincodeScore(city, pincode);
+        score.setActiveListings((int) r.getCount());
+        double[] q = r.quantiles();
+        if (q != null) {
+            score.setMedianPricePerSqft(q[1]);
+            score.setAvgPricePerSqft(r.getAvgPricePerSqft());
+        }
+        Double listedSeconds = r.getAvgListedSeconds();
+        if (listedSeconds != null) {
+            score.setAvgDaysOnMarket((nowSeconds - listedSeconds) / 86_400.0);
+        }
+        score.setTotalViews((int) r.getViews());
+        score.setTotalFavorites((int) r.getFavorites());
+        score.setTotalInquiries((int) r.getInquiries());
+        score.setAgentCount(r.getAgentCount());
+        return score;
+    }
+
+    /** A city's pincode metrics with the figures each pincode is compared against. */
+    public static class CityMetrics {
+        private final List<PincodeScore> pincodes;
+        private final int maxListings;
+        private final double cityAvgListings;
+
+        CityMetrics(List<PincodeScore> pincodes, int maxListings, double cityAvgListings) {
+            this.pincodes = pincodes;
+            this.maxListings = maxListings;
+            this.cityAvgListings = cityAvgListings;
+        }
+
+        public List<PincodeScore> getPincodes() { return pincodes; }
+        public int getMaxListings() { return maxListings; }
+        public double getCityAvgListings() { return cityAvgListings; }
+    }
+}
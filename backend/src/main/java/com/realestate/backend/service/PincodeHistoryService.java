@@ -0,0 +1,331 @@
+package com.realestate.backend.service;
+
+import com.realestate.backend.entity.PincodeHistory;
+import com.realestate.backend.entity.PincodeScore;
+import com.realestate.backend.repository.PincodeHistoryRepository;
+import com.realestate.backend.repository.PropertyRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Daily per-pincode market history (median price per sqft, listings, sales and
+ * engagement) and the growth and conversion scores read from it.
+ *
+ * Each day's figures are appended once, the next day, from the in-memory pincode
+ * aggregates, with the sales since the previous day from one grouped query on
+ * sold_at. Daily rows older than {@code analytics.history.daily-days} are folded into
+ * weekly rows, and weekly rows older than {@code analytics.history.weekly-days} into
+ * monthly ones, so the table only grows by a few rows per pincode a month.
+ *
+ * The recent daily points are also held in memory, a fixed ring per pincode with
+ * gaps forward-filled and a running total of sales, so either score is a couple of
+ * slot lookups however long the history is.
+ */
+@Service
+public class PincodeHistoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(PincodeHistoryService.class);
+
+    /** Days of daily points held in memory per pincode. */
+    static final int RING_DAYS = 128;
+    /** Growth compares the current median with the one this many days back, or the oldest held. */
+    static final int GROWTH_DAYS = 90;
+    /** Conversion counts the sales of this many days. */
+    static final int CONVERSION_DAYS = 30;
+    /** With less history than this both scores stay neutral (50). */
+    static final int MIN_HISTORY_DAYS = 7;
+    /** A median this fraction up (or down) on the baseline scores 100 (or 0) for growth. */
+    static final double GROWTH_RANGE = 0.20;
+    /** Sell-through, sold / (sold + active), over the conversion window that scores 100. */
+    static final double FULL_CONVERSION = 0.5;
+
+    @Value("${analytics.history.daily-days:120}")
+    private int dailyDays;
+
+    @Value("${analytics.history.weekly-days:730}")
+    private int weeklyDays;
+
+    @Autowired
+    private PincodeHistoryRepository pincodeHistoryRepository;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private PincodeAggregateIndex pincodeAggregateIndex;
+
+    // Lazy: the scheduler reaches this service through HeatmapSnapshotService and AnalyticsService
+    @Autowired
+    private ObjectProvider<HeatmapRecomputeScheduler> heatmapRecomputeScheduler;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // lower-cased city -> pincode -> recent daily points
+    private final Map<String, Map<String, Series>> series = new HashMap<>();
+    // Latest day appended, null before the first
+    private volatile LocalDate lastRecorded;
+
+    @PostConstruct
+    public void load() {
+        try {
+            List<PincodeHistory> rows = pincodeHistoryRepository
+                    .findByResolutionAndPeriodStartGreaterThanEqualOrderByPeriodStartAsc(
+                            PincodeHistory.DAY, LocalDate.now().minusDays(RING_DAYS));
+            lock.writeLock().lock();
+            try {
+                series.clear();
+                for (PincodeHistory row : rows) append(row);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            lastRecorded = pincodeHistoryRepository.findLatestPeriodStart(PincodeHistory.DAY);
+            log.info("[PincodeHistory] Loaded {} daily points, last day {}", rows.size(), lastRecorded);
+        } catch (Exception e) {
+            log.error("[PincodeHistory] Failed to load history on startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 0-100 from the change in median price per sqft against about GROWTH_DAYS ago;
+     * 50 for no change, or when there is no median or not enough history.
+     */
+    public double growthScore(String city, String pincode, Double medianPricePerSqft) {
+        if (medianPricePerSqft == null || !(medianPricePerSqft > 0)) return 50.0;
+        long today = LocalDate.now().toEpochDay();
+        lock.readLock().lock();
+        try {
+            Series s = find(city, pincode);
+            if (s == null) return 50.0;
+            long day = Math.max(s.first, Math.min(s.last, today - GROWTH_DAYS));
+            if (today - day < MIN_HISTORY_DAYS) return 50.0;
+            double then = s.median(day);
+            if (!(then > 0)) return 50.0;
+            double change = medianPricePerSqft / then - 1.0;
+            return Math.max(0.0, Math.min(100.0, 50.0 + 50.0 * change / GROWTH_RANGE));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 0-100 from the pincode's sell-through over the last CONVERSION_DAYS; 50 when
+     * there is not enough history or nothing listed or sold.
+     */
+    public double conversionScore(String city, String pincode, int activeListings) {
+        long today = LocalDate.now().toEpochDay();
+        lock.readLock().lock();
+        try {
+            Series s = find(city, pincode);
+            if (s == null || today - s.first < MIN_HISTORY_DAYS) return 50.0;
+            long sold = s.soldThrough(today) - s.soldThrough(today - CONVERSION_DAYS);
+            if (sold + activeListings <= 0) return 50.0;
+            double rate = sold / (double) (sold + activeListings);
+            return Math.min(rate / FULL_CONVERSION, 1.0) * 100.0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Appends yesterday's row for every pincode with listings or sales, then folds
+     * aged rows, and has the heatmap of every city recorded rebuilt. Runs hourly so a
+     * day missed while the app was down is caught up; its sales land in the next row
+     * appended.
+     */
+    @Scheduled(cron = "${analytics.history.cron:0 15 * * * *}")
+    @Transactional
+    public void recordDay() {
+        LocalDate day = LocalDate.now().minusDays(1);
+        LocalDate previous = lastRecorded;
+        if (previous != null && !previous.isBefore(day)) return;
+
+        // lower-cased city -> pincode -> row
+        Map<String, Map<String, PincodeHistory>> rows = new HashMap<>();
+        for (String city : pincodeAggregateIndex.cities()) {
+            for (PincodeScore s : pincodeAggregateIndex.metrics(city).getPincodes()) {
+                PincodeHistory row = row(rows, city, s.getPincode(), day);
+                row.setMedianPricePerSqft(s.getMedianPricePerSqft());
+                row.setListings(s.getActiveListings());
+                row.setViews(s.getTotalViews());
+                row.setFavorites(s.getTotalFavorites());
+                row.setInquiries(s.getTotalInquiries());
+            }
+        }
+        LocalDate soldFrom = previous != null ? previous.plusDays(1) : day;
+        for (Object[] r : propertyRepository.countSoldByCityAndPinCode(soldFrom.atStartOfDay(),
+                day.plusDays(1).atStartOfDay())) {
+            if (r[0] == null || r[1] == null || ((String) r[1]).trim().isEmpty()) continue;
+            row(rows, (String) r[0], (String) r[1], day).setSoldCount(((Long) r[2]).intValue());
+        }
+
+        List<PincodeHistory> appended = new ArrayList<>();
+        for (Map<String, PincodeHistory> pincodes : rows.values()) appended.addAll(pincodes.values());
+        pincodeHistoryRepository.saveAll(appended);
+        downsample(day);
+
+        PropertyIndexRegistry.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                for (PincodeHistory row : appended) append(row);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            lastRecorded = day;
+            log.info("[PincodeHistory] Recorded {} pincodes for {}", appended.size(), day);
+            for (String city : rows.keySet()) heatmapRecomputeScheduler.getObject().request(city);
+        });
+    }
+
+    private static PincodeHistory row(Map<String, Map<String, PincodeHistory>> rows, String city, String pincode,
+            LocalDate day) {
+        return rows.computeIfAbsent(city, k -> new HashMap<>())
+                .computeIfAbsent(pincode, k -> new PincodeHistory(city, pincode, PincodeHistory.DAY, day));
+    }
+
+    /** Folds daily rows of whole weeks past the daily window, and weekly rows of whole months past the weekly one. */
+    private void downsample(LocalDate today) {
+        LocalDate dailyCutoff = today.minusDays(dailyDays).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        fold(PincodeHistory.DAY, PincodeHistory.WEEK, dailyCutoff,
+                d -> d.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)));
+        LocalDate weeklyCutoff = today.minusDays(weeklyDays).withDayOfMonth(1);
+        fold(PincodeHistory.WEEK, PincodeHistory.MONTH, weeklyCutoff, d -> d.withDayOfMonth(1));
+    }
+
+    /** Replaces the rows of one resolution before the cutoff with one row per pincode and coarser period. */
+    private void fold(String from, String to, LocalDate before, UnaryOperator<LocalDate> period) {
+        List<PincodeHistory> old = pincodeHistoryRepository.findByResolutionAndPeriodStartBefore(from, before);
+        if (old.isEmpty()) return;
+        Map<List<Object>, Folded> folded = new HashMap<>();
+        for (PincodeHistory row : old) {
+            LocalDate start = period.apply(row.getPeriodStart());
+            folded.computeIfAbsent(List.of(row.getCity(), row.getPincode(), start),
+                    k -> new Folded(new PincodeHistory(row.getCity(), row.getPincode(), to, start))).add(row);
+        }
+        List<PincodeHistory> merged = new ArrayList<>(folded.size());
+        for (Folded f : folded.values()) merged.add(f.toRow());
+        pincodeHistoryRepository.saveAll(merged);
+        pincodeHistoryRepository.deleteAll(old);
+        log.info("[PincodeHistory] Folded {} {} rows into {} {} rows", old.size(), from, merged.size(), to);
+    }
+
+    private void append(PincodeHistory row) {
+        double median = row.getMedianPricePerSqft() != null ? row.getMedianPricePerSqft() : Double.NaN;
+        int sold = row.getSoldCount() != null ? row.getSoldCount() : 0;
+        series.computeIfAbsent(row.getCity(), k -> new HashMap<>())
+                .computeIfAbsent(row.getPincode(), k -> new Series())
+                .add(row.getPeriodStart().toEpochDay(), median, sold);
+    }
+
+    private Series find(String city, String pincode) {
+        if (city == null || pincode == null) return null;
+        Map<String, Series> pincodes = series.get(city.trim().toLowerCase(Locale.ROOT));
+        return pincodes != null ? pincodes.get(pincode) : null;
+    }
+
+    /**
+     * The last RING_DAYS daily points of one pincode, indexed by epoch day modulo the
+     * ring. Every day from first to last has a slot: days without a row repeat the
+     * day before, and a day without a median keeps the last known one.
+     */
+    private static final class Series {
+        private final double[] median = new double[RING_DAYS];
+        // Sales from the first day held through this one
+        private final long[] soldTotal = new long[RING_DAYS];
+        private long first = Long.MIN_VALUE;
+        private long last = Long.MIN_VALUE;
+
+        void add(long day, double dayMedian, int sold) {
+            if (last == Long.MIN_VALUE) {
+                first = last = day;
+                median[slot(day)] = dayMedian;
+                soldTotal[slot(day)] = sold;
+                return;
+            }
+            if (day <= last) return; // already held
+            double carried = median[slot(last)];
+            long total = soldTotal[slot(last)];
+            for (long d = Math.max(last + 1, day - RING_DAYS + 1); d < day; d++) {
+                median[slot(d)] = carried;
+                soldTotal[slot(d)] = total;
+            }
+            median[slot(day)] = Double.isNaN(dayMedian) ? carried : dayMedian;
+            soldTotal[slot(day)] = total + sold;
+            last = day;
+            first = Math.max(first, last - RING_DAYS + 1);
+        }
+
+        /** Median on a day in [first, last]. */
+        double median(long day) {
+            return median[slot(day)];
+        }
+
+        /** Sales from the first day held through the given day. */
+        long soldThrough(long day) {
+            if (day < first) return 0;
+            return soldTotal[slot(Math.min(day, last))];
+        }
+
+        private static int slot(long day) {
+            return (int) Math.floorMod(day, (long) RING_DAYS);
+        }
+    }
+
+    /** Running totals of rows being folded into one; levels are averaged by day, sales summed. */
+    private static final class Folded {
+        private final PincodeHistory target;
+        private int samples;
+        private int pricedSamples;
+        private double medianSum;
+        private double listings;
+        private double views;
+        private double favorites;
+        private double inquiries;
+        private long sold;
+
+        Folded(PincodeHistory target) {
+            this.target = target;
+        }
+
+        void add(PincodeHistory row) {
+            int n = row.getSamples() != null ? row.getSamples() : 1;
+            samples += n;
+            if (row.getMedianPricePerSqft() != null) {
+                pricedSamples += n;
+                medianSum += row.getMedianPricePerSqft() * n;
+            }
+            listings += valueOf(row.getListings()) * (double) n;
+            views += valueOf(row.getViews()) * (double) n;
+            favorites += valueOf(row.getFavorites()) * (double) n;
+            inquiries += valueOf(row.getInquiries()) * (double) n;
+            sold += valueOf(row.getSoldCount());
+        }
+
+        PincodeHistory toRow() {
+            target.setSamples(samples);
+            target.setMedianPricePerSqft(pricedSamples > 0 ? medianSum / pricedSamples : null);
+            target.setListings((int) Math.round(listings / samples));
+            target.setViews((int) Math.round(views / samples));
+            target.setFavorites((int) Math.round(favorites / samples));
+            target.setInquiries((int) Math.round(inquiries / samples));
+            target.setSoldCount((int) sold);
+            return target;
+        }
+
+        private static int valueOf(Integer value) {
+            return value != null ? value : 0;
+        }
+    }
+}
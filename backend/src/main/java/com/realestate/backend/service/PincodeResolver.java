@@ -0,0 +1,286 @@
+package com.realestate.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.realestate.backend.entity.Property;
+import com.realestate.backend.repository.PropertyRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * Resolves a listing's pincode from its coordinates.
+ *
+ * Pincode polygons come from the city GeoJSON layers (GeoJsonLayerService) and are
+ * bucketed by bounding box into a grid of {@link #CELL_DEGREES} cells, so a lookup
+ * runs point-in-polygon only against the few polygons near the point. Cities with
+ * no polygon layer fall back to the nearest pincode centroid in geo_data.json
+ * within {@link #MAX_CENTROID_KM}.
+ *
+ * A polygon hit is authoritative and overwrites whatever pincode was typed; a
+ * centroid match only fills in a missing one.
+ */
+@Service
+public class PincodeResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(PincodeResolver.class);
+
+    static final double CELL_DEGREES = 0.05;
+    static final double MAX_CENTROID_KM = 3;
+    private static final int BACKFILL_BATCH = 500;
+
+    @Value("${geo.centroids.locations:classpath:geo/geo_data.json}")
+    private List<String> centroidLocations;
+
+    @Autowired
+    private GeoJsonLayerService geoJsonLayerService;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    private final Map<Long, List<Area>> grid = new HashMap<>();
+    private final List<Centroid> centroids = new ArrayList<>();
+
+    @PostConstruct
+    public void load() {
+        int polygons = 0;
+        for (String city : GeoJsonLayerService.CITIES) {
+            byte[] source = geoJsonLayerService.source(city);
+            if (source == null) continue;
+            try {
+                for (JsonNode feature : objectMapper.readTree(source).path("features")) {
+                    Area area = Area.of(city, feature);
+                    if (area == null) continue;
+                    addToGrid(area);
+                    polygons++;
+                }
+            } catch (IOException e) {
+                log.error("[PincodeResolver] Failed to parse {} polygons: {}", city, e.getMessage());
+            }
+        }
+        loadCentroids();
+        log.info("[PincodeResolver] Indexed {} pincode polygons and {} centroids", polygons, centroids.size());
+    }
+
+    private void loadCentroids() {
+        for (String location : centroidLocations) {
+            Resource resource = resourceLoader.getResource(location.trim());
+            if (!resource.exists()) continue;
+            try (InputStream in = resource.getInputStream()) {
+                Iterator<Map.Entry<String, JsonNode>> cities = objectMapper.readTree(in).fields();
+                while (cities.hasNext()) {
+                    Map.Entry<String, JsonNode> city = cities.next();
+                    for (JsonNode c : city.getValue()) {
+                        if (!c.hasNonNull("pin") || !c.hasNonNull("lat") || !c.hasNonNull("lng")) continue;
+                        centroids.add(new Centroid(city.getKey(), c.get("pin").asText(),
+                                c.get("lat").asDouble(), c.get("lng").asDouble()));
+                    }
+                }
+                return;
+            } catch (IOException e) {
+                log.error("[PincodeResolver] Failed to read centroids from {}: {}", location, e.getMessage());
+            }
+        }
+    }
+
+    /** The pincode containing the point, or the nearest centroid's within range; null if neither. */
+    public Resolution resolve(Double lat, Double lng) {
+        if (lat == null || lng == null) return null;
+        List<Area> candidates = grid.get(cellOf(lat, lng));
+        if (candidates != null) {
+            for (Area area : candidates) {
+                if (area.contains(lng, lat)) return new Resolution(area.pincode, area.city, true);
+            }
+        }
+        GeoArea around = GeoArea.circle(lat, lng, MAX_CENTROID_KM);
+        Centroid best = null;
+        double bestKm = Double.MAX_VALUE;
+        for (Centroid c : centroids) {
+            if (!around.contains(c.lat, c.lng)) continue;
+            double km = around.distanceKm(c.lat, c.lng);
+            if (km < bestKm) {
+                bestKm = km;
+                best = c;
+            }
+        }
+        return best != null ? new Resolution(best.pincode, best.city, false) : null;
+    }
+
+    /**
+     * Set or correct the listing's pincode from its coordinates before it is saved.
+     * Returns true if the pincode changed.
+     */
+    public boolean apply(Property property) {
+        Resolution r;
+        try {
+            r = resolve(property.getLatitude(), property.getLongitude());
+        } catch (IllegalArgumentException e) {
+            return false; // coordinates out of range; leave the typed pincode alone
+        }
+        if (r == null) return false;
+        String current = property.getPinCode() != null ? property.getPinCode().trim() : "";
+        if (current.equals(r.getPincode())) return false;
+        if (!r.isExact() && !current.isEmpty()) return false;
+        if (!current.isEmpty()) {
+            log.info("[PincodeResolver] Listing {} pincode {} -> {} from coordinates", property.getId(), current, r.getPincode());
+        }
+        property.setPinCode(r.getPincode());
+        return true;
+    }
+
+    /** Re-resolve every stored listing in id order; returns how many pincodes changed. */
+    public int backfill() {
+        int changed = 0;
+        Page<Property> page;
+        int n = 0;
+        do {
+            page = propertyRepository.findAll(PageRequest.of(n++, BACKFILL_BATCH, Sort.by("id")));
+            List<Property> dirty = new ArrayList<>();
+            for (Property p : page) {
+                if (apply(p)) dirty.add(p);
+            }
+            if (!dirty.isEmpty()) propertyRepository.saveAll(dirty);
+            changed += dirty.size();
+        } while (page.hasNext());
+        log.info("[PincodeResolver] Backfill corrected {} listing pincodes", changed);
+        return changed;
+    }
+
+    private void addToGrid(Area area) {
+        for (long r = row(area.minLat); r <= row(area.maxLat); r++) {
+            for (long c = col(area.minLng); c <= col(area.maxLng); c++) {
+                grid.computeIfAbsent(key(r, c), k -> new ArrayList<>(2)).add(area);
+            }
+        }
+    }
+
+    private static long cellOf(double lat, double lng) {
+        return key(row(lat), col(lng));
+    }
+
+    private static long key(long row, long col) {
+        return row * 100_000 + col;
+    }
+
+    private static long row(double lat) {
+        return (long) Math.floor((lat + 90) / CELL_DEGREES);
+    }
+
+    private static long col(double lng) {
+        return (long) Math.floor((lng + 180) / CELL_DEGREES);
+    }
+
+    /** A resolved pincode; exact when the point fell inside its polygon. */
+    public static class Resolution {
+        private final String pincode;
+        private final String city;
+        private final boolean exact;
+
+        Resolution(String pincode, String city, boolean exact) {
+            this.pincode = pincode;
+            this.city = city;
+            this.exact = exact;
+        }
+
+        public String getPincode() { return pincode; }
+        public String getCity() { return city; }
+        public boolean isExact() { return exact; }
+    }
+
+    /** One pincode's polygon(s) as rings of [lng, lat]; odd crossings mean inside. */
+    private static final class Area {
+        private final String city;
+        private final String pincode;
+        private final List<double[][]> rings;
+        private final double minLat, minLng, maxLat, maxLng;
+
+        private Area(String city, String pincode, List<double[][]> rings) {
+            this.city = city;
+            this.pincode = pincode;
+            this.rings = rings;
+            double a = Double.MAX_VALUE, b = Double.MAX_VALUE, c = -Double.MAX_VALUE, d = -Double.MAX_VALUE;
+            for (double[][] ring : rings) {
+                for (double[] p : ring) {
+                    a = Math.min(a, p[1]);
+                    b = Math.min(b, p[0]);
+                    c = Math.max(c, p[1]);
+                    d = Math.max(d, p[0]);
+                }
+            }
+            this.minLat = a;
+            this.minLng = b;
+            this.maxLat = c;
+            this.maxLng = d;
+        }
+
+        static Area of(String city, JsonNode feature) {
+            JsonNode pin = feature.path("properties").path("pin_code");
+            JsonNode geometry = feature.path("geometry");
+            if (pin.isMissingNode() || pin.isNull()) return null;
+            List<double[][]> rings = new ArrayList<>();
+            switch (geometry.path("type").asText()) {
+                case "Polygon" -> addRings(geometry.path("coordinates"), rings);
+                case "MultiPolygon" -> {
+                    for (JsonNode polygon : geometry.path("coordinates")) addRings(polygon, rings);
+                }
+                default -> { }
+            }
+            return rings.isEmpty() ? null : new Area(city, pin.asText().trim(), rings);
+        }
+
+        private static void addRings(JsonNode polygon, List<double[][]> rings) {
+            for (JsonNode ring : polygon) {
+                double[][] points = new double[ring.size()][];
+                for (int i = 0; i < points.length; i++) {
+                    points[i] = new double[]{ring.get(i).get(0).asDouble(), ring.get(i).get(1).asDouble()};
+                }
+                rings.add(points);
+            }
+        }
+
+        /** Even-odd rule over all rings, so holes (and multipolygon parts) just work. */
+        boolean contains(double x, double y) {
+            if (y < minLat || y > maxLat || x < minLng || x > maxLng) return false;
+            boolean inside = false;
+            for (double[][] ring : rings) {
+                for (int i = 0, j = ring.length - 1; i < ring.length; j = i++) {
+                    double xi = ring[i][0], yi = ring[i][1], xj = ring[j][0], yj = ring[j][1];
+                    if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi) inside = !inside;
+                }
+            }
+            return inside;
+        }
+    }
+
+    private static final class Centroid {
+        private final String city;
+        private final String pincode;
+        private final double lat;
+        private final double lng;
+
+        Centroid(String city, String pincode, double lat, double lng) {
+            this.city = city;
+            this.pincode = pincode;
+            this.lat = lat;
+            this.lng = lng;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.realestate.backend.service;
+
+import java.util.Arrays;
+
+/**
+ * Primitive rank helper behind the percentile normalization of the pincode scores.
+ */
+final class PincodeScoringKernel {
+
+    private PincodeScoringKernel() {
+    }
+
+
+    /**
+     * Rank of each of values[0, n) in ascending order; equal values are ranked in
+     * input order, as a stable sort would.
+     */
+    static int[] ranks(double[] values, int n) {
+        double[] sorted = Arrays.copyOf(values, n);
+        Arrays.sort(sorted);
+        int[] taken = new int[n];
+        int[] ranks = new int[n];
+        for (int i = 0; i < n; i++) {
+            int first = lowerBound(sorted, values[i]);
+            ranks[i] = first + taken[first]++;
+        }
+        return ranks;
+    }
+
+    private static int lowerBound(double[] sorted, double value) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Double.compare(sorted[mid], value) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
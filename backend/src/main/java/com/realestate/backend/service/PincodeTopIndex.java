@@ -0,0 +1,192 @@
+package com.realestate.backend.service;
+
+import com.realestate.backend.entity.Property;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Visible listings grouped by pincode and purpose, each group held pre-sorted by
+ * views, price (both directions) and recency, for the map sidebar.
+ *
+ * A map click reads the first N entries of one tree per matching purpose and
+ * merges them, so its cost depends on N and not on how many listings exist.
+ */
+@Service
+public class PincodeTopIndex implements PropertyIndex {
+
+    public static final int DEFAULT_LIMIT = 10;
+
+    /** Orders the sidebar can ask for; the first is the default. */
+    static final ListingSort[] ORDERS = {ListingSort.VIEWS, ListingSort.PRICE_ASC, ListingSort.PRICE_DESC, ListingSort.NEWEST};
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Map<String, Group>> byPincode = new HashMap<>();
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    /**
+     * Ids of the top {@code limit} visible listings in {@code pincode} under {@code order}.
+     * A purpose matches every purpose containing it (case-insensitive); null or "All" matches any.
+     */
+    public long[] top(String pincode, String purpose, ListingSort order, int limit) {
+        if (order == null) order = ORDERS[0];
+        int tree = treeOf(order);
+        String pu = purpose == null || purpose.isBlank() || purpose.equalsIgnoreCase("All")
+                ? null : purpose.trim().toLowerCase(Locale.ROOT);
+
+        List<Entry> picked = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<String, Group> groups = byPincode.get(pincode);
+            if (groups == null) return new long[0];
+            for (Map.Entry<String, Group> g : groups.entrySet()) {
+                if (pu != null && !g.getKey().contains(pu)) continue;
+                Iterator<Entry> it = g.getValue().trees.get(tree).iterator();
+                for (int n = 0; n < limit && it.hasNext(); n++) picked.add(it.next());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // More than one group only when several purposes match; each contributes at most limit
+        picked.sort(comparator(order, tree));
+        long[] ids = new long[Math.min(limit, picked.size())];
+        for (int i = 0; i < ids.length; i++) ids[i] = picked.get(i).id;
+        return ids;
+    }
+
+    @Override
+    public void rebuild(List<Property> visible) {
+        lock.writeLock().lock();
+        try {
+            byPincode.clear();
+            entries.clear();
+            for (Property p : visible) {
+                if (p.getId() != null && PropertyIndex.isVisible(p)) put(p);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Property property) {
+        if (property.getId() == null) return;
+        lock.writeLock().lock();
+        try {
+            drop(property.getId());
+            if (PropertyIndex.isVisible(property)) put(property);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long propertyId) {
+        lock.writeLock().lock();
+        try {
+            drop(propertyId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Only the views tree of the listing's group is re-sorted. */
+    @Override
+    public void countersChanged(Long propertyId, int views, int inquiries) {
+        if (views == 0) return;
+        int tree = treeOf(ListingSort.VIEWS);
+        lock.writeLock().lock();
+        try {
+            Entry e = entries.get(propertyId);
+            if (e == null) return;
+            TreeSet<Entry> byViews = byPincode.get(e.pincode).get(e.purpose).trees.get(tree);
+            byViews.remove(e);
+            e.keys[tree] += views; // the other trees do not order on this key
+            byViews.add(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(Property p) {
+        if (p.getPinCode() == null) return;
+        String purpose = (p.getPurpose() != null ? p.getPurpose() : "Sale").toLowerCase(Locale.ROOT);
+        double[] k = new double[ORDERS.length];
+        for (int i = 0; i < ORDERS.length; i++) k[i] = keyOf(p, ORDERS[i]);
+        Entry e = new Entry(p.getId(), p.getPinCode(), purpose, k);
+        entries.put(e.id, e);
+        byPincode.computeIfAbsent(e.pincode, x -> new HashMap<>())
+                .computeIfAbsent(purpose, x -> new Group())
+                .add(e);
+    }
+
+    private void drop(Long propertyId) {
+        Entry e = entries.remove(propertyId);
+        if (e == null) return;
+        Map<String, Group> groups = byPincode.get(e.pincode);
+        Group g = groups.get(e.purpose);
+        g.remove(e);
+        if (g.isEmpty()) groups.remove(e.purpose);
+        if (groups.isEmpty()) byPincode.remove(e.pincode);
+    }
+
+    private static double keyOf(Property p, ListingSort order) {
+        return switch (order) {
+            case PRICE_ASC, PRICE_DESC -> p.getPrice() != null ? p.getPrice() : order.missingKey();
+            case NEWEST -> ListingSort.epochMicros(p.getListedDate());
+            case VIEWS -> p.getViews() != null ? p.getViews() : 0;
+            default -> throw new IllegalStateException("Not indexed: " + order);
+        };
+    }
+
+    private static int treeOf(ListingSort order) {
+        for (int i = 0; i < ORDERS.length; i++) {
+            if (ORDERS[i] == order) return i;
+        }
+        throw new IllegalArgumentException("Sort '" + order.getParam() + "' is not available here. Expected one of: "
+                + Arrays.stream(ORDERS).map(ListingSort::getParam).collect(Collectors.joining(", ")));
+    }
+
+    private static Comparator<Entry> comparator(ListingSort order, int tree) {
+        return (a, b) -> a.id == b.id ? 0
+                : order.before(a.keys[tree], a.id, b.keys[tree], b.id) ? -1 : 1;
+    }
+
+    /** One pincode × purpose group with a tree per supported order. */
+    private static final class Group {
+        private final List<TreeSet<Entry>> trees = new ArrayList<>(ORDERS.length);
+
+        Group() {
+            for (int i = 0; i < ORDERS.length; i++) trees.add(new TreeSet<>(comparator(ORDERS[i], i)));
+        }
+
+        void add(Entry e) {
+            for (TreeSet<Entry> t : trees) t.add(e);
+        }
+
+        void remove(Entry e) {
+            for (TreeSet<Entry> t : trees) t.remove(e);
+        }
+
+        boolean isEmpty() {
+            return trees.get(0).isEmpty();
+        }
+    }
+
+    private static final class Entry {
+        private final long id;
+        private final String pincode;
+        private final String purpose;
+        private final double[] keys;
+
+        Entry(long id, String pincode, String purpose, double[] keys) {
+            this.id = id;
+            this.pincode = pincode;
+            this.purpose = purpose;
+            this.keys = keys;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.realestate.backend.service;
+
+import java.util.Arrays;
+
+/**
+ * Quantile sketch of positive values with {@link #RELATIVE_ACCURACY} relative error,
+ * in the style of DDSketch: values fall into logarithmic buckets whose bounds grow
+ * by a factor gamma, and a quantile is read off the bucket counts.
+ *
+ * Unlike t-digest or KLL, a bucket count can be decremented, so a listing that
+ * changes price or is unlisted is taken out exactly. Two sketches merge by adding
+ * their counts, which is how pincode-level "All" figures are built from the
+ * per type and purpose sketches. Not thread-safe; callers lock.
+ */
+public class PriceSketch {
+
+    static final double RELATIVE_ACCURACY = 0.01;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    // counts[i] is bucket offset + i
+    private int[] counts = new int[0];
+    private int offset;
+    private long total;
+
+    public void add(double value) {
+        if (!(value > 0) || Double.isInfinite(value)) return;
+        int bucket = bucketOf(value);
+        ensure(bucket);
+        counts[bucket - offset]++;
+        total++;
+    }
+
+    /** Take out a value added earlier. */
+    public void remove(double value) {
+        if (!(value > 0) || Double.isInfinite(value)) return;
+        int i = bucketOf(value) - offset;
+        if (i < 0 || i >= counts.length || counts[i] == 0) return;
+        counts[i]--;
+        total--;
+    }
+
+    public void merge(PriceSketch other) {
+        if (other.total == 0) return;
+        int first = -1, last = -1;
+        for (int i = 0; i < other.counts.length; i++) {
+            if (other.counts[i] == 0) continue;
+            if (first < 0) first = i;
+            last = i;
+        }
+        ensure(other.offset + first);
+        ensure(other.offset + last);
+        for (int i = first; i <= last; i++) counts[other.offset + i - offset] += other.counts[i];
+        total += other.total;
+    }
+
+    public long count() {
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return total == 0;
+    }
+
+    /** The q-quantile (0..1) within the relative accuracy, or NaN when empty. */
+    public double quantile(double q) {
+        if (total == 0) return Double.NaN;
+        long rank = (long) Math.floor(Math.max(0, Math.min(1, q)) * (total - 1));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank) return valueOf(i + offset);
+        }
+        return valueOf(counts.length - 1 + offset);
+    }
+
+    private static int bucketOf(double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+
+    /** Bucket (gamma^(i-1), gamma^i] is represented by the point with equal relative error to both ends. */
+    private static double valueOf(int bucket) {
+        return 2 * Math.pow(GAMMA, bucket) / (GAMMA + 1);
+    }
+
+    private void ensure(int bucket) {
+        if (counts.length == 0) {
+            counts = new int[8];
+            offset = bucket - 4;
+            return;
+        }
+        if (bucket < offset) {
+            int grow = Math.max(offset - bucket, counts.length / 2);
+            int[] grown = new int[counts.length + grow];
+            System.arraycopy(counts, 0, grown, grow, counts.length);
+            counts = grown;
+            offset -= grow;
+        } else if (bucket >= offset + counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(bucket - offset + 1, counts.length + counts.length / 2));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.realestate.backend.service;
+
+import com.realestate.backend.entity.Property;
+
+import java.util.List;
+
+/**
+ * A resident, in-memory structure over visible (active, unsold) listings.
+ * Implementations are kept current by {@link PropertyIndexRegistry}, which is
+ * fed by the Property entity listener after each committed write.
+ */
+public interface PropertyIndex {
+
+    /** Replace the whole index with the given visible listings. */
+    void rebuild(List<Property> visible);
+
+    /** Insert or refresh a listing; listings that are no longer visible must be dropped. */
+    void index(Property property);
+
+    /** Drop a listing that was permanently deleted. */
+    void remove(Long propertyId);
+
+    /** An agent's profile changed; only indexes that copy agent fields (name, agency, contact) care. */
+    default void agentUpdated(Long agentId, String name, String agencyName) {
+    }
+
+    /** A listing was favorited (+1) or unfavorited (-1); only indexes that aggregate engagement care. */
+    default void favoritesChanged(Long propertyId, int delta) {
+    }
+
+    /**
+     * Only a listing's view and inquiry counters moved, by these deltas; nothing else
+     * about it changed, so only indexes that order or aggregate by them care.
+     */
+    default void countersChanged(Long propertyId, int views, int inquiries) {
+    }
+
+    static boolean isVisible(Property p) {
+        return p.isActive() && !p.isSold();
+    }
+}
@@ -0,0 +1,119 @@
+package com.realestate.backend.service;
+
+import com.realestate.backend.entity.Property;
+import com.realestate.backend.repository.PropertyRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * Fans property changes out to every {@link PropertyIndex} bean and performs the
+ * single full load that seeds them on startup.
+ */
+@Service
+public class PropertyIndexRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(PropertyIndexRegistry.class);
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private List<PropertyIndex> indexes;
+
+    @PostConstruct
+    public void rebuildAll() {
+        try {
+            List<Property> visible = propertyRepository.findVisibleProperties();
+            for (PropertyIndex index : indexes) {
+                index.rebuild(visible);
+            }
+            logger.info("[PropertyIndex] Loaded {} visible listings into {} indexes", visible.size(), indexes.size());
+        } catch (Exception e) {
+            logger.error("[PropertyIndex] Failed to build indexes on startup: {}", e.getMessage());
+        }
+    }
+
+    public void index(Property property) {
+        if (property == null || property.getId() == null) return;
+        for (PropertyIndex index : indexes) {
+            try {
+                index.index(property);
+            } catch (Exception e) {
+                logger.error("[PropertyIndex] {} failed to index property {}: {}",
+                        index.getClass().getSimpleName(), property.getId(), e.getMessage());
+            }
+        }
+    }
+
+    public void remove(Long propertyId) {
+        if (propertyId == null) return;
+        for (PropertyIndex index : indexes) {
+            try {
+                index.remove(propertyId);
+            } catch (Exception e) {
+                logger.error("[PropertyIndex] {} failed to remove property {}: {}",
+                        index.getClass().getSimpleName(), propertyId, e.getMessage());
+            }
+        }
+    }
+
+    public void agentUpdated(Long agentId, String name, String agencyName) {
+        if (agentId == null) return;
+        for (PropertyIndex index : indexes) {
+            try {
+                index.agentUpdated(agentId, name, agencyName);
+            } catch (Exception e) {
+                logger.error("[PropertyIndex] {} failed to refresh agent {}: {}",
+                        index.getClass().getSimpleName(), agentId, e.getMessage());
+            }
+        }
+    }
+
+    public void favoritesChanged(Long propertyId, int delta) {
+        if (propertyId == null) return;
+        for (PropertyIndex index : indexes) {
+            try {
+                index.favoritesChanged(propertyId, delta);
+            } catch (Exception e) {
+                logger.error("[PropertyIndex] {} failed to count favorite on property {}: {}",
+                        index.getClass().getSimpleName(), propertyId, e.getMessage());
+            }
+        }
+    }
+
+    public void countersChanged(Long propertyId, int views, int inquiries) {
+        if (propertyId == null) return;
+        for (PropertyIndex index : indexes) {
+            try {
+                index.countersChanged(propertyId, views, inquiries);
+            } catch (Exception e) {
+                logger.error("[PropertyIndex] {} failed to count engagement on property {}: {}",
+                        index.getClass().getSimpleName(), propertyId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Run an index update once the surrounding transaction commits, or immediately
+     * when there is none, so rolled-back writes never reach an index.
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.realestate.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.realestate.backend.dto.PropertyDetailDTO;
+import com.realestate.backend.dto.PropertyListDTO;
+import com.realestate.backend.entity.Property;
+import com.realestate.backend.util.JsonBytes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Bounded LRU caches of each listing's list-card and detail JSON, pre-serialised
+ * to UTF-8 so responses can splice the bytes instead of mapping and serialising
+ * the entity again.
+ *
+ * Entries are dropped after every committed write to the listing or its agent
+ * (via {@link PropertyIndexRegistry}). A reader that loaded an entity before such a
+ * write must not cache what it built from it. So callers take a {@link #snapshot()}
+ * before loading, and a put is ignored when the listing or its agent was invalidated
+ * after it. View and inquiry counts only age an entry: a card (which shows views)
+ * or detail is dropped once {@link #COUNTER_SLACK} of the counts it shows have been
+ * counted since it was built.
+ */
+@Service
+public class PropertyJsonCache implements PropertyIndex {
+
+    static final int MAX_CARDS = 20_000;
+    static final int MAX_DETAILS = 2_000;
+    static final int COUNTER_SLACK = 16;
+    private static final int STRIPES = 1024;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Lru cards = new Lru(MAX_CARDS);
+    private final Lru details = new Lru(MAX_DETAILS);
+
+    // Sequence number of the latest invalidation per listing id stripe and per agent id stripe
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLongArray invalidatedAt = new AtomicLongArray(STRIPES);
+    private final AtomicLongArray agentInvalidatedAt = new AtomicLongArray(STRIPES);
+
+    /** Take before loading the entities whose JSON may be cached. */
+    public long snapshot() {
+        return sequence.get();
+    }
+
+    public JsonBytes cachedCard(Long propertyId) {
+        return cards.get(propertyId);
+    }
+
+    /** Serialise a listing's card without touching the cache. */
+    public JsonBytes serializeCard(Property p) {
+        return serialize(PropertyListDTO.from(p));
+    }
+
+    /** Card JSON for a loaded listing, cached unless it changed since {@code snapshot}. */
+    public JsonBytes card(Property p, long snapshot) {
+        JsonBytes json = cards.get(p.getId());
+        if (json != null) return json;
+        json = serialize(PropertyListDTO.from(p));
+        cards.putIfFresh(p.getId(), p.getAgentId(), json, () -> isFresh(p.getId(), p.getAgentId(), snapshot));
+        return json;
+    }
+
+    /** Detail JSON for a loaded listing, cached unless it changed since {@code snapshot}. */
+    public JsonBytes detail(Property p, long snapshot) {
+        JsonBytes json = details.get(p.getId());
+        if (json != null) return json;
+        json = serialize(PropertyDetailDTO.from(p));
+        details.putIfFresh(p.getId(), p.getAgentId(), json, () -> isFresh(p.getId(), p.getAgentId(), snapshot));
+        return json;
+    }
+
+    @Override
+    public void rebuild(List<Property> visible) {
+        invalidateAll();
+    }
+
+    @Override
+    public void index(Property property) {
+        invalidate(property.getId());
+    }
+
+    @Override
+    public void remove(Long propertyId) {
+        invalidate(propertyId);
+    }
+
+    /** Cards and details embed agent name, email, phone and photo. */
+    @Override
+    public void agentUpdated(Long agentId, String name, String agencyName) {
+        if (agentId == null) return;
+        agentInvalidatedAt.set(stripe(agentId), sequence.incrementAndGet());
+        cards.removeAgent(agentId);
+        details.removeAgent(agentId);
+    }
+
+    /** Cards show views, details views and inquiries; both serve slightly stale counts up to the slack. */
+    @Override
+    public void countersChanged(Long propertyId, int views, int inquiries) {
+        if (views > 0) cards.age(propertyId, views, COUNTER_SLACK);
+        details.age(propertyId, views + inquiries, COUNTER_SLACK);
+    }
+
+    private void invalidate(Long propertyId) {
+        if (propertyId == null) return;
+        invalidatedAt.set(stripe(propertyId), sequence.incrementAndGet());
+        cards.remove(propertyId);
+        details.remove(propertyId);
+    }
+
+    private void invalidateAll() {
+        bumpAll();
+        cards.clear();
+        details.clear();
+    }
+
+    private void bumpAll() {
+        long seq = sequence.incrementAndGet();
+        for (int i = 0; i < STRIPES; i++) invalidatedAt.set(i, seq);
+    }
+
+    private boolean isFresh(Long propertyId, Long agentId, long snapshot) {
+        return invalidatedAt.get(stripe(propertyId)) <= snapshot
+                && (agentId == null || agentInvalidatedAt.get(stripe(agentId)) <= snapshot);
+    }
+
+    private static int stripe(Long id) {
+        return (int) (id & (STRIPES - 1));
+    }
+
+    private JsonBytes serialize(Object dto) {
+        try {
+            return new JsonBytes(objectMapper.writeValueAsBytes(dto));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialise property JSON", e);
+        }
+    }
+
+    /** Access-ordered map evicting the least recently used entry beyond its bound. */
+    private static final class Lru {
+        private final LinkedHashMap<Long, Entry> map;
+
+        Lru(int maxEntries) {
+            this.map = new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        synchronized JsonBytes get(Long id) {
+            Entry e = map.get(id);
+            return e != null ? e.json : null;
+        }
+
+        /**
+         * Checked under the map lock: an invalidation either removes the entry after
+         * this put, or has already bumped its stripe so the check fails.
+         */
+        synchronized void putIfFresh(Long id, Long agentId, JsonBytes json, BooleanSupplier fresh) {
+            if (fresh.getAsBoolean()) map.put(id, new Entry(agentId, json));
+        }
+
+        synchronized void remove(Long id) {
+            map.remove(id);
+        }
+
+        /** Drop the entry once it has missed {@code slack} counter updates. */
+        synchronized void age(Long id, int updates, int slack) {
+            Entry e = map.get(id);
+            if (e != null && (e.missed += updates) >= slack) map.remove(id);
+        }
+
+        synchronized void removeAgent(Long agentId) {
+            Iterator<Entry> it = map.values().iterator();
+            while (it.hasNext()) {
+                if (agentId.equals(it.next().agentId)) it.remove();
+            }
+        }
+
+        synchronized void clear() {
+            map.clear();
+        }
+    }
+
+    private static final class Entry {
+        private final Long agentId;
+        private final JsonBytes json;
+        private int missed;
+
+        Entry(Long agentId, JsonBytes json) {
+            this.agentId = agentId;
+            this.json = json;
+        }
+    }
+}
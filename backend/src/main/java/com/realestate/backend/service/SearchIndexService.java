@@ -0,0 +1,330 @@
+package com.realestate.backend.service;
+
+import com.realestate.backend.entity.Property;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over listing title, location, description, agent name
+ * and agency name, ranked with BM25.
+ *
+ * Every query token must match (AND); each token also matches indexed terms it is
+ * a prefix of (the most common ones, when there are many), so results keep up with
+ * keystroke-driven search. Every match is returned with its score and callers page
+ * through them with KeysetPager. Agent fields are
+ * tokenised once per agent and shared by all of that agent's listings, so a rename
+ * only touches those listings' postings.
+ */
+@Service
+public class SearchIndexService implements PropertyIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double PREFIX_WEIGHT = 0.6;
+    private static final int MAX_PREFIX_EXPANSIONS = 100;
+
+    private static final float TITLE_WEIGHT = 3f;
+    private static final float LOCATION_WEIGHT = 2f;
+    private static final float AGENT_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** term -> (property id -> weighted term frequency); sorted for prefix range scans */
+    private final TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final Map<Long, Doc> docs = new HashMap<>();
+    private final Map<Long, AgentTerms> agents = new HashMap<>();
+    private double totalLength;
+
+    private static final class Doc {
+        final Map<String, Float> ownTerms;
+        final float ownLength;
+        final Long agentId;
+
+        Doc(Map<String, Float> ownTerms, float ownLength, Long agentId) {
+            this.ownTerms = ownTerms;
+            this.ownLength = ownLength;
+            this.agentId = agentId;
+        }
+    }
+
+    private static final class AgentTerms {
+        final String name;
+        final String agencyName;
+        final Map<String, Float> terms = new HashMap<>();
+        final float length;
+        final Set<Long> propertyIds = new HashSet<>();
+
+        AgentTerms(String name, String agencyName) {
+            this.name = name;
+            this.agencyName = agencyName;
+            this.length = addTerms(terms, name, AGENT_WEIGHT) + addTerms(terms, agencyName, AGENT_WEIGHT);
+        }
+    }
+
+    @Override
+    public void rebuild(List<Property> visible) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            docs.clear();
+            agents.clear();
+            totalLength = 0;
+            for (Property p : visible) {
+                if (p.getId() != null && PropertyIndex.isVisible(p)) add(p);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Property property) {
+        lock.writeLock().lock();
+        try {
+            delete(property.getId());
+            if (PropertyIndex.isVisible(property)) add(property);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long propertyId) {
+        lock.writeLock().lock();
+        try {
+            delete(propertyId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void agentUpdated(Long agentId, String name, String agencyName) {
+        lock.writeLock().lock();
+        try {
+            AgentTerms current = agents.get(agentId);
+            if (current == null) return;
+            if (Objects.equals(current.name, name) && Objects.equals(current.agencyName, agencyName)) return;
+
+            Set<Long> ids = new HashSet<>(current.propertyIds);
+            for (Long id : ids) unpost(id, docs.get(id));
+            AgentTerms renamed = new AgentTerms(name, agencyName);
+            renamed.propertyIds.addAll(ids);
+            agents.put(agentId, renamed);
+            for (Long id : ids) post(id, docs.get(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Score every listing matching a free-text query with BM25, in no particular
+     * order. When {@code allowed} is non-null only those ids are considered.
+     */
+    public Hits search(String query, Set<Long> allowed) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) return Hits.EMPTY;
+
+        lock.readLock().lock();
+        try {
+            int n = docs.size();
+            if (n == 0) return Hits.EMPTY;
+            double avgLength = totalLength / n;
+
+            Map<Long, Double> scores = null;
+            for (String token : tokens) {
+                Map<Long, Double> tokenScores = scoreToken(token, n, avgLength, allowed, scores);
+                if (tokenScores.isEmpty()) return Hits.EMPTY;
+                if (scores != null) {
+                    for (Map.Entry<Long, Double> e : tokenScores.entrySet()) {
+                        e.setValue(e.getValue() + scores.get(e.getKey()));
+                    }
+                }
+                scores = tokenScores;
+            }
+            long[] ids = new long[scores.size()];
+            double[] values = new double[ids.length];
+            int i = 0;
+            for (Map.Entry<Long, Double> e : scores.entrySet()) {
+                ids[i] = e.getKey();
+                values[i++] = e.getValue();
+            }
+            return new Hits(ids, values);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Best BM25 contribution of one query token per document, over the exact term
+     * and its prefix expansions. Restricted to {@code previous} once earlier tokens
+     * have narrowed the result set.
+     */
+    private Map<Long, Double> scoreToken(String token, int n, double avgLength,
+                                         Set<Long> allowed, Map<Long, Double> previous) {
+        Map<Long, Double> best = new HashMap<>();
+        for (Map.Entry<String, Map<Long, Float>> term : expansions(token)) {
+            boolean exact = term.getKey().equals(token);
+            Map<Long, Float> docsForTerm = term.getValue();
+            double df = docsForTerm.size();
+            double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+            double weight = exact ? 1.0 : PREFIX_WEIGHT;
+            for (Map.Entry<Long, Float> posting : docsForTerm.entrySet()) {
+                Long id = posting.getKey();
+                if (previous != null && !previous.containsKey(id)) continue;
+                if (allowed != null && !allowed.contains(id)) continue;
+                double tf = posting.getValue();
+                double s = weight * idf * (tf * (K1 + 1)) / (tf + K1 * (1 - B + B * docLength(id) / avgLength));
+                best.merge(id, s, Math::max);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The token itself plus at most {@link #MAX_PREFIX_EXPANSIONS} longer terms it is a
+     * prefix of, the ones in most documents first. Only term keys and posting sizes are
+     * read for the terms left out.
+     */
+    private List<Map.Entry<String, Map<Long, Float>>> expansions(String token) {
+        Comparator<Map.Entry<String, Map<Long, Float>>> rarestFirst =
+                Comparator.comparingInt((Map.Entry<String, Map<Long, Float>> e) -> e.getValue().size())
+                        .thenComparing(Map.Entry::getKey, Comparator.reverseOrder());
+        PriorityQueue<Map.Entry<String, Map<Long, Float>>> common = new PriorityQueue<>(rarestFirst);
+        List<Map.Entry<String, Map<Long, Float>>> out = new ArrayList<>();
+        for (Map.Entry<String, Map<Long, Float>> term
+                : postings.subMap(token, true, token + Character.MAX_VALUE, false).entrySet()) {
+            if (term.getKey().equals(token)) {
+                out.add(term);
+                continue;
+            }
+            common.offer(term);
+            if (common.size() > MAX_PREFIX_EXPANSIONS) common.poll();
+        }
+        out.addAll(common);
+        return out;
+    }
+
+    // ── Maintenance (caller holds the write lock) ──
+
+    private void add(Property p) {
+        Map<String, Float> own = new HashMap<>();
+        float length = addTerms(own, p.getTitle(), TITLE_WEIGHT)
+                + addTerms(own, p.getLocation(), LOCATION_WEIGHT)
+                + addTerms(own, p.getDescription(), DESCRIPTION_WEIGHT);
+        Long agentId = p.getAgent() != null ? p.getAgent().getId() : null;
+        Doc doc = new Doc(own, length, agentId);
+        docs.put(p.getId(), doc);
+        if (agentId != null) {
+            AgentTerms agent = agents.get(agentId);
+            String name = p.getAgent().getName();
+            String agencyName = p.getAgent().getAgencyName();
+            if (agent == null || !Objects.equals(agent.name, name) || !Objects.equals(agent.agencyName, agencyName)) {
+                // The listing carries fresher agent details; re-post the agent's other listings with them
+                Set<Long> others = agent != null ? new HashSet<>(agent.propertyIds) : Set.of();
+                for (Long id : others) unpost(id, docs.get(id));
+                agent = new AgentTerms(name, agencyName);
+                agent.propertyIds.addAll(others);
+                agents.put(agentId, agent);
+                for (Long id : others) post(id, docs.get(id));
+            }
+            agent.propertyIds.add(p.getId());
+        }
+        post(p.getId(), doc);
+    }
+
+    private void delete(Long propertyId) {
+        if (propertyId == null) return;
+        Doc doc = docs.get(propertyId);
+        if (doc == null) return;
+        unpost(propertyId, doc);
+        docs.remove(propertyId);
+        if (doc.agentId != null) {
+            AgentTerms agent = agents.get(doc.agentId);
+            if (agent != null) {
+                agent.propertyIds.remove(propertyId);
+                if (agent.propertyIds.isEmpty()) agents.remove(doc.agentId);
+            }
+        }
+    }
+
+    private void post(Long id, Doc doc) {
+        forEachTerm(doc, (term, tf) -> postings.computeIfAbsent(term, t -> new HashMap<>()).merge(id, tf, Float::sum));
+        totalLength += docLength(doc);
+    }
+
+    private void unpost(Long id, Doc doc) {
+        forEachTerm(doc, (term, tf) -> {
+            Map<Long, Float> list = postings.get(term);
+            if (list == null) return;
+            list.remove(id);
+            if (list.isEmpty()) postings.remove(term);
+        });
+        totalLength -= docLength(doc);
+    }
+
+    private void forEachTerm(Doc doc, java.util.function.BiConsumer<String, Float> action) {
+        doc.ownTerms.forEach(action);
+        AgentTerms agent = doc.agentId != null ? agents.get(doc.agentId) : null;
+        if (agent != null) agent.terms.forEach(action);
+    }
+
+    private float docLength(Doc doc) {
+        AgentTerms agent = doc.agentId != null ? agents.get(doc.agentId) : null;
+        return doc.ownLength + (agent != null ? agent.length : 0);
+    }
+
+    private double docLength(Long id) {
+        Doc doc = docs.get(id);
+        return doc != null ? docLength(doc) : 0;
+    }
+
+    /** Matching listing ids with their BM25 scores. */
+    public static class Hits {
+        static final Hits EMPTY = new Hits(new long[0], new double[0]);
+
+        private final long[] ids;
+        private final double[] scores;
+
+        Hits(long[] ids, double[] scores) {
+            this.ids = ids;
+            this.scores = scores;
+        }
+
+        public int size() { return ids.length; }
+        public long idAt(int i) { return ids[i]; }
+        public double scoreAt(int i) { return scores[i]; }
+        public long[] ids() { return ids; }
+    }
+
+    // ── Tokenisation ──
+
+    private static float addTerms(Map<String, Float> terms, String text, float weight) {
+        float length = 0;
+        for (String token : tokenize(text)) {
+            terms.merge(token, weight, Float::sum);
+            length += weight;
+        }
+        return length;
+    }
+
+    /** Lower-cased runs of letters and digits. */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) return List.of();
+        List<String> tokens = new ArrayList<>();
+        String lower = ListingFilter.lower(text);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean word = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (word && start < 0) start = i;
+            else if (!word && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,47 @@
+package com.realestate.backend.util;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes an ApiResponse success envelope whose data is a list, one element at a
+ * time, straight to the servlet output stream. Rows are pulled from the stream as
+ * they are written, so peak memory no longer grows with the size of the list.
+ *
+ * Uses the application's ObjectMapper, so each element serialises exactly as it
+ * would inside a regular ApiResponse body.
+ */
+@Component
+public class JsonStreamWriter {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /** {"success":true,"message":"Success","data":[...]}; closes {@code rows} when done. */
+    public void writeSuccess(HttpServletResponse response, Stream<?> rows) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        try (rows; JsonGenerator json = objectMapper.getFactory()
+                .createGenerator(response.getOutputStream(), JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            json.writeBooleanField("success", true);
+            json.writeStringField("message", "Success");
+            json.writeArrayFieldStart("data");
+            Iterator<?> it = rows.iterator();
+            while (it.hasNext()) {
+                json.writeObject(it.next());
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.realestate.backend.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dense string-to-int encoding used by the resident listing indexes.
+ * Ids are assigned in first-seen order and never reused, so an id stays valid
+ * for as long as the dictionary lives. Not thread-safe; callers hold their own lock.
+ */
+public class StringDictionary {
+
+    public static final int NONE = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /** Id for the value, assigning a new one if needed. Null maps to {@link #NONE}. */
+    public int intern(String value) {
+        if (value == null) return NONE;
+        Integer id = ids.get(value);
+        if (id != null) return id;
+        int next = values.size();
+        ids.put(value, next);
+        values.add(value);
+        return next;
+    }
+
+    /** Id for the value, or {@link #NONE} if it has never been seen. */
+    public int idOf(String value) {
+        if (value == null) return NONE;
+        Integer id = ids.get(value);
+        return id != null ? id : NONE;
+    }
+
+    public String valueOf(int id) {
+        return id >= 0 && id < values.size() ? values.get(id) : null;
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public void clear() {
+        ids.clear();
+        values.clear();
+    }
+}
@@ -0,0 +1,201 @@
+package com.realestate.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoJsonSimplifierTest {
+
+    private static final double TOLERANCE = 0.001;
+    private static final int DECIMALS = 6;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void sharedEdgeIsSimplifiedToTheSameVerticesOnBothSides() {
+        // The edge x = 1 wiggles below the tolerance except for one bump at y = 0.5
+        List<double[]> edge = new ArrayList<>();
+        for (int i = 0; i <= 10; i++) {
+            double y = i / 10.0;
+            double x = i == 5 ? 1.01 : 1 + (i % 2 == 0 ? 0 : 0.0002);
+            edge.add(new double[]{x, y});
+        }
+        List<double[]> a = new ArrayList<>(List.of(new double[]{0, 0}));
+        a.addAll(edge);
+        a.add(new double[]{0, 1});
+        // B runs along the edge the other way round, and starts away from the junctions
+        List<double[]> b = new ArrayList<>(List.of(new double[]{2, 0}, new double[]{2, 1}));
+        b.addAll(reversed(edge));
+        JsonNode out = simplify(polygon("A", a), polygon("B", b));
+
+        Set<String> sideA = near(ring(out, 0, 0, 0), 1);
+        assertTrue(sideA.containsAll(Set.of("1.0,0.0", "1.01,0.5", "1.0,1.0")), sideA.toString());
+        assertTrue(sideA.size() < edge.size());
+        assertEquals(sideA, near(ring(out, 1, 0, 0), 1));
+        assertTrue(contains(ring(out, 0, 0, 0), 0, 1));
+    }
+
+    @Test
+    void ringWhoseOnlyJunctionIsBothEndsOfOneArc() {
+        // Outer ring touches its hole at (0, 2); the hole is also pincode B's outline, listed from
+        // another vertex and the other way round, so both rings are one arc from (0, 2) back to it
+        List<double[]> hole = circle(1.5, 2, 1.5, 360);
+        List<double[]> outer = List.of(new double[]{0, 0}, new double[]{4, 0}, new double[]{4, 4},
+                new double[]{0, 4}, new double[]{0, 2});
+        List<double[]> island = rotate(reversed(hole), 7);
+
+        JsonNode out = simplify(polygon("A", outer, hole), polygon("B", island));
+
+        List<double[]> simplifiedHole = ring(out, 0, 0, 1);
+        List<double[]> simplifiedIsland = ring(out, 1, 0, 0);
+        assertTrue(simplifiedHole.size() < hole.size());
+        assertTrue(simplifiedHole.size() >= 4);
+        assertTrue(contains(simplifiedHole, 0, 2), "the junction stays");
+        assertClosed(simplifiedHole);
+        assertClosed(simplifiedIsland);
+        assertEquals(vertices(simplifiedHole), vertices(simplifiedIsland));
+        assertWithinTolerance(hole, simplifiedHole);
+    }
+
+    @Test
+    void freeStandingRingSharedByAHoleAndAnIsland() {
+        List<double[]> hole = circle(2, 2, 1, 360);
+        List<double[]> outer = List.of(new double[]{0, 0}, new double[]{4, 0}, new double[]{4, 4}, new double[]{0, 4});
+        List<double[]> island = rotate(reversed(hole), 11);
+
+        JsonNode out = simplify(polygon("A", outer, hole), polygon("B", island));
+
+        List<double[]> simplifiedHole = ring(out, 0, 0, 1);
+        assertTrue(simplifiedHole.size() < hole.size());
+        assertClosed(simplifiedHole);
+        assertEquals(vertices(simplifiedHole), vertices(ring(out, 1, 0, 0)));
+        assertWithinTolerance(hole, simplifiedHole);
+    }
+
+    @Test
+    void ringsTooSmallToSimplifyAreKeptAndPropertiesCopied() {
+        ObjectNode tiny = polygon("T", List.of(new double[]{0, 0}, new double[]{0.0001, 0}, new double[]{0, 0.0001}));
+        ObjectNode multi = polygon("M", List.of(new double[]{5, 5}, new double[]{6, 5}, new double[]{6, 6}, new double[]{5, 6}));
+        ObjectNode geometry = (ObjectNode) multi.get("geometry");
+        geometry.put("type", "MultiPolygon");
+        ArrayNode parts = objectMapper.createArrayNode();
+        parts.add(geometry.path("coordinates"));
+        geometry.set("coordinates", parts);
+
+        JsonNode out = simplify(tiny, multi);
+
+        assertEquals(4, ring(out, 0, 0, 0).size());
+        assertEquals("T", out.path("features").get(0).path("properties").path("pin_code").asText());
+        JsonNode multiOut = out.path("features").get(1).path("geometry");
+        assertEquals("MultiPolygon", multiOut.path("type").asText());
+        assertEquals(5, multiOut.path("coordinates").get(0).get(0).size());
+    }
+
+    // ── Helpers ──
+
+    private JsonNode simplify(ObjectNode... features) {
+        ObjectNode collection = objectMapper.createObjectNode().put("type", "FeatureCollection");
+        ArrayNode list = collection.putArray("features");
+        for (ObjectNode f : features) list.add(f);
+        return GeoJsonSimplifier.simplify(collection, TOLERANCE, DECIMALS);
+    }
+
+    @SafeVarargs
+    private ObjectNode polygon(String pincode, List<double[]>... rings) {
+        ObjectNode feature = objectMapper.createObjectNode().put("type", "Feature");
+        feature.putObject("properties").put("pin_code", pincode);
+        ObjectNode geometry = feature.putObject("geometry").put("type", "Polygon");
+        ArrayNode coordinates = geometry.putArray("coordinates");
+        for (List<double[]> ring : rings) {
+            ArrayNode r = coordinates.addArray();
+            for (double[] p : ring) r.addArray().add(p[0]).add(p[1]);
+            r.addArray().add(ring.get(0)[0]).add(ring.get(0)[1]);
+        }
+        return feature;
+    }
+
+    /** Ring r of polygon p of feature f; a Polygon is polygon 0. */
+    private static List<double[]> ring(JsonNode collection, int f, int p, int r) {
+        JsonNode geometry = collection.path("features").get(f).path("geometry");
+        JsonNode coordinates = geometry.path("coordinates");
+        JsonNode ring = geometry.path("type").asText().equals("MultiPolygon") ? coordinates.get(p).get(r) : coordinates.get(r);
+        List<double[]> out = new ArrayList<>();
+        for (JsonNode c : ring) out.add(new double[]{c.get(0).asDouble(), c.get(1).asDouble()});
+        return out;
+    }
+
+    /** n points of a circle, starting from its leftmost point (cx - radius, cy). */
+    private static List<double[]> circle(double cx, double cy, double radius, int n) {
+        List<double[]> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            double a = Math.PI + 2 * Math.PI * i / n;
+            out.add(new double[]{round(cx + radius * Math.cos(a)), round(cy + radius * Math.sin(a))});
+        }
+        return out;
+    }
+
+    private static List<double[]> reversed(List<double[]> points) {
+        List<double[]> out = new ArrayList<>(points);
+        Collections.reverse(out);
+        return out;
+    }
+
+    private static List<double[]> rotate(List<double[]> points, int by) {
+        List<double[]> out = new ArrayList<>(points);
+        Collections.rotate(out, by);
+        return out;
+    }
+
+    private static Set<String> near(List<double[]> ring, double x) {
+        Set<String> out = new HashSet<>();
+        for (double[] p : ring) {
+            if (Math.abs(p[0] - x) < 0.05) out.add(p[0] + "," + p[1]);
+        }
+        return out;
+    }
+
+    private static Set<String> vertices(List<double[]> ring) {
+        Set<String> out = new HashSet<>();
+        for (double[] p : ring) out.add(p[0] + "," + p[1]);
+        return out;
+    }
+
+    private static boolean contains(List<double[]> ring, double x, double y) {
+        for (double[] p : ring) {
+            if (p[0] == x && p[1] == y) return true;
+        }
+        return false;
+    }
+
+    private static void assertClosed(List<double[]> ring) {
+        assertArrayEquals(ring.get(0), ring.get(ring.size() - 1));
+    }
+
+    /** Every original vertex lies within the tolerance of the simplified outline. */
+    private static void assertWithinTolerance(List<double[]> original, List<double[]> simplified) {
+        for (double[] p : original) {
+            double best = Double.MAX_VALUE;
+            for (int i = 0; i + 1 < simplified.size(); i++) {
+                best = Math.min(best, distance(p, simplified.get(i), simplified.get(i + 1)));
+            }
+            assertTrue(best <= TOLERANCE + 1e-6, Arrays.toString(p) + " is " + best + " away");
+        }
+    }
+
+    private static double distance(double[] p, double[] a, double[] b) {
+        double dx = b[0] - a[0], dy = b[1] - a[1];
+        double len = dx * dx + dy * dy;
+        double t = len == 0 ? 0 : Math.max(0, Math.min(1, ((p[0] - a[0]) * dx + (p[1] - a[1]) * dy) / len));
+        return Math.hypot(p[0] - a[0] - t * dx, p[1] - a[1] - t * dy);
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 1e6) / 1e6;
+    }
+}
@@ -0,0 +1,163 @@
+package com.realestate.backend.service;
+
+import com.realestate.backend.entity.AppUser;
+import com.realestate.backend.entity.Property;
+import com.realestate.backend.repository.FavoriteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HeatmapCubeIndexTest {
+
+    private final FavoriteRepository favoriteRepository = mock(FavoriteRepository.class);
+    private final HeatmapCubeIndex cube = new HeatmapCubeIndex();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cube, "favoriteRepository", favoriteRepository);
+        when(favoriteRepository.countGroupedByProperty()).thenReturn(List.of());
+    }
+
+    @Test
+    void reindexMovesAListingBetweenCellsAndDropsEmptyOnes() {
+        Property a = listing(1L, "Pune", "411001", "Apartment", "Sale", 5_000_000.0);
+        a.setViews(3);
+        a.setAgent(agent(7L));
+        cube.rebuild(List.of(a, listing(2L, "Pune", "411001", "Villa", "Rent", 8_000_000.0)));
+
+        Map<String, HeatmapCubeIndex.Rollup> all = cube.rollup("Pune", null, null);
+        assertEquals(2, all.get("411001").getCount());
+        assertEquals(6_500.0, all.get("411001").getAvgPricePerSqft(), 1e-9);
+        assertEquals(1, all.get("411001").getAgentCount());
+
+        Property moved = listing(1L, "Pune", "411002", "Villa", "Sale", 6_000_000.0);
+        moved.setViews(3);
+        moved.setAgent(agent(7L));
+        cube.index(moved);
+
+        assertEquals(Set.of(), cube.rollup("Pune", "Apartment", null).keySet()); // its only cell went empty
+        all = cube.rollup("Pune", null, null);
+        HeatmapCubeIndex.Rollup left = all.get("411001");
+        assertEquals(1, left.getCount());
+        assertEquals(8_000.0, left.getAvgPricePerSqft(), 1e-9);
+        assertEquals(0, left.getViews());
+        assertEquals(0, left.getAgentCount());
+        HeatmapCubeIndex.Rollup arrived = all.get("411002");
+        assertEquals(1, arrived.getCount());
+        assertEquals(6_000.0, arrived.getAvgPricePerSqft(), 1e-9);
+        assertEquals(3, arrived.getViews());
+        assertEquals(1, arrived.getAgentCount());
+
+        cube.index(listing(1L, "Mumbai", "400001", "Villa", "Sale", 6_000_000.0));
+        cube.remove(2L);
+        assertEquals(Set.of("mumbai"), cube.cities());
+        assertTrue(cube.rollup("Pune", null, null).isEmpty());
+        assertEquals(Set.of("400001"), cube.rollup(null, null, null).keySet());
+    }
+
+    @Test
+    void countersMoveTheCellOfTheirListingOnly() {
+        cube.rebuild(List.of(listing(1L, "Pune", "411001", "Apartment", "Sale", 5_000_000.0)));
+
+        cube.countersChanged(1L, 4, 1);
+        cube.countersChanged(99L, 10, 10); // not visible: nothing to move
+
+        HeatmapCubeIndex.Rollup r = cube.rollup("Pune", null, null).get("411001");
+        assertEquals(4, r.getViews());
+        assertEquals(1, r.getInquiries());
+        assertEquals(Set.of("411001"), cube.rollup(null, null, null).keySet());
+    }
+
+    @Test
+    void favoritesOfAHiddenListingComeBackWhenItIsRelisted() {
+        when(favoriteRepository.countGroupedByProperty()).thenReturn(List.<Object[]>of(new Object[] {1L, 2L}));
+        Property p = listing(1L, "Pune", "411001", "Apartment", "Sale", 5_000_000.0);
+        cube.rebuild(List.of(p));
+        cube.favoritesChanged(1L, 1);
+        assertEquals(3, cube.rollup("Pune", null, null).get("411001").getFavorites());
+
+        p.setSold(true);
+        cube.index(p);
+        assertTrue(cube.rollup("Pune", null, null).isEmpty());
+        cube.favoritesChanged(1L, 1); // favorited while hidden
+
+        p.setSold(false);
+        cube.index(p);
+        assertEquals(4, cube.rollup("Pune", null, null).get("411001").getFavorites());
+
+        // A deleted listing forgets its favorites
+        cube.remove(1L);
+        cube.index(p);
+        assertEquals(0, cube.rollup("Pune", null, null).get("411001").getFavorites());
+    }
+
+    @Test
+    void typeMatchesExactlyPurposeAsASubstringAndAllMatchesAnything() {
+        cube.rebuild(List.of(
+                listing(1L, "Pune", "411001", "Apartment", "Sale", 5_000_000.0),
+                listing(2L, "Pune", "411001", "Apartment", "Rent", 40_000.0),
+                listing(3L, "Pune", "411002", "Villa", "Sale or Rent", 9_000_000.0),
+                listing(4L, "Pune", "411002", "Studio Apartment", "Sale", 3_000_000.0)));
+
+        assertEquals(2, count(cube.rollup("Pune", "apartment", null)));
+        assertEquals(Set.of("411001"), cube.rollup("Pune", " APARTMENT ", "All").keySet());
+        assertEquals(0, count(cube.rollup("Pune", "Apart", null)));
+        assertEquals(2, count(cube.rollup("Pune", null, "rent")));
+        assertEquals(3, count(cube.rollup("Pune", "All", "Sale")));
+        assertEquals(1, count(cube.rollup("Pune", "Villa", "Rent")));
+        assertEquals(4, count(cube.rollup("pune", "all", " ")));
+        assertEquals(4, count(cube.rollup("Pune", null, null)));
+    }
+
+    @Test
+    void listingsWithoutAPincodeCountForTheCityButNotInRollups() {
+        cube.rebuild(List.of(
+                listing(1L, "Pune", "411001", "Apartment", "Sale", 5_000_000.0),
+                listing(2L, "Pune", " ", "Apartment", "Sale", 4_000_000.0),
+                listing(3L, "Pune", null, "Villa", "Rent", 9_000_000.0)));
+
+        assertEquals(Set.of("411001"), cube.rollup("Pune", null, null).keySet());
+        assertFalse(cube.priceQuantiles("Pune", null, null).containsKey(HeatmapCubeIndex.UNASSIGNED));
+
+        Map<String, HeatmapCubeIndex.Rollup> city = cube.cityRollup("Pune");
+        assertEquals(Set.of("411001", HeatmapCubeIndex.UNASSIGNED), city.keySet());
+        assertEquals(2, city.get(HeatmapCubeIndex.UNASSIGNED).getCount());
+        assertTrue(cube.cityRollup(" ").isEmpty());
+
+        cube.remove(1L);
+        assertTrue(cube.rollup("Pune", null, null).isEmpty());
+        assertEquals(Set.of("pune"), cube.cities());
+    }
+
+    private static long count(Map<String, HeatmapCubeIndex.Rollup> rollups) {
+        long n = 0;
+        for (HeatmapCubeIndex.Rollup r : rollups.values()) n += r.getCount();
+        return n;
+    }
+
+    private static AppUser agent(Long id) {
+        AppUser agent = new AppUser();
+        agent.setId(id);
+        return agent;
+    }
+
+    private static Property listing(Long id, String city, String pincode, String type, String purpose, Double price) {
+        Property p = new Property();
+        p.setId(id);
+        p.setCity(city);
+        p.setPinCode(pincode);
+        p.setPrice(price);
+        p.setArea(1_000.0);
+        p.setType(type);
+        p.setPurpose(purpose);
+        p.setActive(true);
+        p.setSold(false);
+        return p;
+    }
+}
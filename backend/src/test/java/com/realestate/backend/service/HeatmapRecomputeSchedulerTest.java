@@ -0,0 +1,173 @@
+package com.realestate.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.realestate.backend.entity.Property;
+import com.realestate.backend.repository.FavoriteRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class HeatmapRecomputeSchedulerTest {
+
+    private static final long WINDOW_MS = 200;
+
+    private final HeatmapSnapshotService snapshots = mock(HeatmapSnapshotService.class);
+    private final HeatmapRecomputeScheduler scheduler = new HeatmapRecomputeScheduler();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(scheduler, "windowMs", WINDOW_MS);
+        ReflectionTestUtils.setField(scheduler, "threads", 2);
+        ReflectionTestUtils.setField(scheduler, "heatmapSnapshotService", snapshots);
+        ReflectionTestUtils.setField(scheduler, "meterRegistry", new SimpleMeterRegistry());
+        when(snapshots.refresh(anyString())).thenReturn(true);
+        scheduler.start();
+        scheduler.rebuild(List.of(listing(1L, "Pune", "411001", 5_000_000.0), listing(2L, "Pune", "411002", 7_000_000.0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.stop();
+    }
+
+    @Test
+    void burstOfWritesInOneWindowCostsOneRecompute() throws InterruptedException {
+        scheduler.index(listing(3L, "Pune", "411001", 4_000_000.0));
+        scheduler.index(listing(1L, "Pune", "411001", 5_500_000.0));
+        scheduler.remove(2L);
+        scheduler.request(" pune ");
+
+        verify(snapshots, timeout(2_000)).refresh("Pune");
+        Thread.sleep(3 * WINDOW_MS);
+        verify(snapshots, times(1)).refresh(anyString());
+    }
+
+    @Test
+    void writesThatLeaveTheScoreInputsAloneRequestNothing() throws InterruptedException {
+        Property p = listing(1L, "Pune", "411001", 5_000_000.0);
+        p.setTitle("Renamed");
+        scheduler.index(p);
+        scheduler.favoritesChanged(99L, 1);
+        scheduler.countersChanged(99L, 10, 2);
+        scheduler.remove(99L);
+
+        Thread.sleep(3 * WINDOW_MS);
+        verifyNoInteractions(snapshots);
+    }
+
+    @Test
+    void engagementRidesTheSameWindow() throws InterruptedException {
+        scheduler.favoritesChanged(1L, 1);
+        scheduler.countersChanged(2L, 3, 0);
+        scheduler.countersChanged(1L, 0, 1);
+
+        verify(snapshots, timeout(2_000)).refresh("Pune");
+        Thread.sleep(3 * WINDOW_MS);
+        verify(snapshots, times(1)).refresh(anyString());
+    }
+
+    @Test
+    void favoriteAndViewsChangeTheServedSnapshot() throws Exception {
+        FavoriteRepository favorites = mock(FavoriteRepository.class);
+        when(favorites.countGroupedByProperty()).thenReturn(List.of());
+        HeatmapCubeIndex cube = new HeatmapCubeIndex();
+        ReflectionTestUtils.setField(cube, "favoriteRepository", favorites);
+        PincodeAggregateIndex aggregates = new PincodeAggregateIndex();
+        ReflectionTestUtils.setField(aggregates, "heatmapCubeIndex", cube);
+        AnalyticsService analytics = new AnalyticsService();
+        ReflectionTestUtils.setField(analytics, "pincodeAggregateIndex", aggregates);
+        ReflectionTestUtils.setField(analytics, "pincodeHistoryService", mock(PincodeHistoryService.class));
+        HeatmapSnapshotService served = new HeatmapSnapshotService();
+        ReflectionTestUtils.setField(served, "analyticsService", analytics);
+        ReflectionTestUtils.setField(served, "heatmapCubeIndex", cube);
+        ReflectionTestUtils.setField(served, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(scheduler, "heatmapSnapshotService", served);
+
+        Property a = listing(1L, "Pune", "411001", 5_000_000.0);
+        Property b = listing(2L, "Pune", "411002", 7_000_000.0);
+        b.setViews(5);
+        cube.rebuild(List.of(a, b));
+        assertEquals(100.0, demand(served, "411002"));
+
+        // Registry order: the cube moves first, then the scheduler marks the city
+        cube.countersChanged(1L, 10, 0);
+        scheduler.countersChanged(1L, 10, 0);
+        awaitDemand(served, "411001", 100.0);
+        assertEquals(0.0, demand(served, "411002"));
+
+        cube.favoritesChanged(2L, 6);
+        scheduler.favoritesChanged(2L, 6);
+        awaitDemand(served, "411002", 100.0);
+    }
+
+    @Test
+    void movingAListingRecomputesBothCities() {
+        scheduler.index(listing(1L, "Mumbai", "400001", 5_000_000.0));
+
+        verify(snapshots, timeout(2_000)).refresh("Pune");
+        verify(snapshots, timeout(2_000)).refresh("Mumbai");
+    }
+
+    @Test
+    void hidingAListingRecomputesItsCity() {
+        Property p = listing(2L, "Pune", "411002", 7_000_000.0);
+        p.setSold(true);
+        scheduler.index(p);
+
+        verify(snapshots, timeout(2_000)).refresh("Pune");
+    }
+
+    @Test
+    void failedRebuildCountsAsFailed() throws InterruptedException {
+        when(snapshots.refresh("Pune")).thenReturn(false);
+
+        HeatmapRecomputeScheduler.FullRecompute run = scheduler.recomputeAll(List.of("Pune", "Mumbai"));
+
+        await(run);
+        assertEquals(1, run.getFailed());
+        assertEquals(1, run.getCompleted());
+        assertEquals(0, run.getRemaining());
+        assertEquals(1L, scheduler.stats().get("failed"));
+    }
+
+    private void awaitDemand(HeatmapSnapshotService served, String pincode, double expected) throws Exception {
+        for (int i = 0; i < 200 && demand(served, pincode) != expected; i++) Thread.sleep(10);
+        assertEquals(expected, demand(served, pincode));
+    }
+
+    private double demand(HeatmapSnapshotService served, String pincode) throws Exception {
+        JsonNode entries = objectMapper.readTree(objectMapper.writeValueAsString(served.snapshot("Pune").data("demand")));
+        for (JsonNode e : entries) {
+            if (e.get("pincode").asText().equals(pincode)) return e.get("score").asDouble();
+        }
+        throw new AssertionError("no entry for " + pincode);
+    }
+
+    private static void await(HeatmapRecomputeScheduler.FullRecompute run) throws InterruptedException {
+        for (int i = 0; i < 200 && !run.isDone(); i++) Thread.sleep(10);
+    }
+
+    private static Property listing(Long id, String city, String pincode, Double price) {
+        Property p = new Property();
+        p.setId(id);
+        p.setCity(city);
+        p.setPinCode(pincode);
+        p.setPrice(price);
+        p.setArea(1_000.0);
+        p.setType("Apartment");
+        p.setPurpose("Sale");
+        p.setActive(true);
+        p.setSold(false);
+        return p;
+    }
+}
@@ -0,0 +1,128 @@
+package com.realestate.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.realestate.backend.entity.PincodeScore;
+import com.realestate.backend.service.HeatmapSnapshotService.HeatmapDelta;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HeatmapSnapshotServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<PincodeScore> live = new ArrayList<>();
+    private long bootMillis;
+    private HeatmapSnapshotService service;
+
+    @BeforeEach
+    void setUp() {
+        AnalyticsService analytics = mock(AnalyticsService.class);
+        when(analytics.liveScores("Pune")).thenAnswer(i -> new ArrayList<>(live));
+        HeatmapCubeIndex cube = mock(HeatmapCubeIndex.class);
+        when(cube.priceQuantiles(any(), any(), any())).thenReturn(Map.of());
+
+        bootMillis = System.currentTimeMillis();
+        service = new HeatmapSnapshotService();
+        ReflectionTestUtils.setField(service, "analyticsService", analytics);
+        ReflectionTestUtils.setField(service, "heatmapCubeIndex", cube);
+        ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+    }
+
+    @Test
+    void versionsStartAfterAnyVersionFromAnEarlierBoot() {
+        live.add(score("411001", 10, 40.0));
+        long version = service.snapshot("Pune").getVersion();
+
+        assertTrue(version > bootMillis << HeatmapSnapshotService.VERSION_SHIFT);
+        assertTrue(version < 1L << 53);
+        // A version handed out before the restart is below this snapshot's history: full map
+        assertTrue(service.changes("Pune", "price", (bootMillis - 60_000) << HeatmapSnapshotService.VERSION_SHIFT).isFull());
+    }
+
+    @Test
+    void deltaHoldsChangedAndAddedEntriesAndRemovedPincodes() throws Exception {
+        live.add(score("411001", 10, 40.0));
+        live.add(score("411002", 5, 60.0));
+        live.add(score("411003", 7, 80.0));
+        long v1 = service.snapshot("Pune").getVersion();
+
+        live.set(0, score("411001", 11, 40.0)); // listings changed: every mode
+        live.set(1, score("411002", 5, 65.0));  // only the price score changed
+        live.remove(2);
+        live.add(score("411004", 3, 20.0));
+        service.refresh("Pune");
+
+        HeatmapDelta price = service.changes("Pune", "price", v1);
+        assertFalse(price.isFull());
+        assertEquals(Set.of("411001", "411002", "411004"), pincodes(price));
+        assertEquals(List.of("411003"), price.getRemoved());
+
+        HeatmapDelta demand = service.changes("Pune", "demand", v1);
+        assertEquals(Set.of("411001", "411004"), pincodes(demand));
+        assertEquals(List.of("411003"), demand.getRemoved());
+
+        HeatmapDelta none = service.changes("Pune", "price", price.getVersion());
+        assertFalse(none.isFull());
+        assertEquals(Set.of(), pincodes(none));
+        assertEquals(List.of(), none.getRemoved());
+    }
+
+    @Test
+    void pincodeThatComesBackIsNoLongerRemoved() throws Exception {
+        live.add(score("411001", 10, 40.0));
+        live.add(score("411002", 5, 60.0));
+        long v1 = service.snapshot("Pune").getVersion();
+
+        live.remove(1);
+        service.refresh("Pune");
+        long v2 = service.snapshot("Pune").getVersion();
+        assertEquals(List.of("411002"), service.changes("Pune", "price", v1).getRemoved());
+
+        live.add(score("411002", 5, 60.0));
+        service.refresh("Pune");
+        HeatmapDelta delta = service.changes("Pune", "price", v2);
+        assertEquals(Set.of("411002"), pincodes(delta));
+        assertEquals(List.of(), delta.getRemoved());
+    }
+
+    @Test
+    void forgettingRemovedPincodesSendsOlderClientsTheFullMap() {
+        for (int i = 0; i <= HeatmapSnapshotService.MAX_REMOVED; i++) live.add(score("P" + i, 1, 1.0));
+        long v1 = service.snapshot("Pune").getVersion();
+        live.subList(1, live.size()).clear();
+        service.refresh("Pune");
+        long v2 = service.snapshot("Pune").getVersion();
+        live.clear();
+        live.add(score("Q", 1, 1.0));
+        service.refresh("Pune");
+
+        // P1..P1024 dropped at v2, P0 at v3: one more than is kept, so the oldest goes
+        assertTrue(service.changes("Pune", "price", v1).isFull());
+        HeatmapDelta delta = service.changes("Pune", "price", v2);
+        assertFalse(delta.isFull());
+        assertEquals(List.of("P0"), delta.getRemoved());
+    }
+
+    private Set<String> pincodes(HeatmapDelta delta) throws Exception {
+        JsonNode entries = objectMapper.readTree(objectMapper.writeValueAsString(delta.getData()));
+        Set<String> out = new HashSet<>();
+        for (JsonNode e : entries) out.add(e.get("pincode").asText());
+        return out;
+    }
+
+    private static PincodeScore score(String pincode, int listings, double price) {
+        PincodeScore s = new PincodeScore("Pune", pincode);
+        s.setActiveListings(listings);
+        s.setPriceScore(price);
+        s.setDemandScore(50.0);
+        return s;
+    }
+}
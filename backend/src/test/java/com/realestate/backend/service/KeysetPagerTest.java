@@ -0,0 +1,92 @@
+package com.realestate.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetPagerTest {
+
+    @Test
+    void cursorSurvivesEncodeAndDecode() {
+        double score = 7.123456789012345;
+        ListingCursor cursor = new ListingCursor(ListingSort.RELEVANCE, score, 42L);
+
+        ListingCursor decoded = ListingCursor.decode(cursor.encode(), null);
+
+        assertEquals(ListingSort.RELEVANCE, decoded.getSort());
+        assertEquals(score, decoded.getKey());
+        assertEquals(42L, decoded.getId());
+        assertEquals(decoded.getKey(), ListingCursor.decode(cursor.encode(), ListingSort.RELEVANCE).getKey());
+    }
+
+    @Test
+    void cursorRejectsOtherSortAndGarbage() {
+        String token = new ListingCursor(ListingSort.PRICE_ASC, 100, 1).encode();
+        assertThrows(IllegalArgumentException.class, () -> ListingCursor.decode(token, ListingSort.NEWEST));
+        assertThrows(IllegalArgumentException.class, () -> ListingCursor.decode("not a cursor", null));
+        assertNull(ListingCursor.decode(" ", null));
+    }
+
+    @Test
+    void pagesThroughEveryOrderWithoutGapsOrRepeats() {
+        Random random = new Random(3);
+        List<long[]> rows = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            // Few distinct keys, so ties on the key are common
+            rows.add(new long[] { id, random.nextInt(40) });
+        }
+        for (ListingSort sort : new ListingSort[] { ListingSort.PRICE_ASC, ListingSort.NEWEST, ListingSort.RELEVANCE }) {
+            List<Long> expected = rows.stream()
+                    .sorted(Comparator.<long[]>comparingDouble(r -> sort.isDescending() ? -r[1] : r[1])
+                            .thenComparingLong(r -> r[0]))
+                    .map(r -> r[0]).toList();
+
+            List<Long> walked = new ArrayList<>();
+            ListingCursor after = null;
+            do {
+                KeysetPager pager = new KeysetPager(sort, after, 37);
+                for (long[] r : rows) pager.offer(r[0], r[1]);
+                KeysetPager.Page page = pager.page();
+                for (long id : page.getIds()) walked.add(id);
+                after = page.getNext() != null ? ListingCursor.decode(page.getNext().encode(), sort) : null;
+            } while (after != null);
+
+            assertEquals(expected, walked, sort.getParam());
+        }
+    }
+
+    @Test
+    void relevanceCursorHoldsWhenAHigherScoreArrives() {
+        KeysetPager first = new KeysetPager(ListingSort.RELEVANCE, null, 2);
+        first.offer(1, 9.0);
+        first.offer(2, 8.0);
+        first.offer(3, 7.0);
+        first.offer(4, 6.0);
+        KeysetPager.Page page = first.page();
+        assertArrayEquals(new long[] { 1, 2 }, page.getIds());
+
+        // A new best match between requests must not shift listing 2 onto the next page
+        KeysetPager second = new KeysetPager(ListingSort.RELEVANCE, page.getNext(), 2);
+        second.offer(5, 10.0);
+        second.offer(1, 9.0);
+        second.offer(2, 8.0);
+        second.offer(3, 7.0);
+        second.offer(4, 6.0);
+        KeysetPager.Page next = second.page();
+        assertArrayEquals(new long[] { 3, 4 }, next.getIds());
+        assertNull(next.getNext());
+    }
+
+    @Test
+    void limitDefaultsAndIsClamped() {
+        assertEquals(KeysetPager.DEFAULT_PAGE_SIZE, KeysetPager.resolveLimit(null, false));
+        assertEquals(KeysetPager.UNLIMITED, KeysetPager.resolveLimit(null, true));
+        assertEquals(KeysetPager.MAX_PAGE_SIZE, KeysetPager.resolveLimit(10_000, true));
+        assertEquals(1, KeysetPager.resolveLimit(0, false));
+    }
+}
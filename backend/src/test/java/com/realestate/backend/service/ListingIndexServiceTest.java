@@ -0,0 +1,83 @@
+package com.realestate.backend.service;
+
+import com.realestate.backend.entity.Property;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ListingIndexServiceTest {
+
+    private static final String[] CITIES = {"Mumbai", "Pune", "Delhi"};
+    private static final String[] TYPES = {"Apartment", "Villa", "Plot"};
+    private static final String[] PURPOSES = {"Sale", "For Sale", "Rent"};
+    private static final String[] PINCODES = {"400001", "400050", "411001"};
+    private static final String[] AMENITIES = {"Gym", "Swimming Pool", "Parking", "Lift"};
+
+    @Test
+    void perListingMatchAgreesWithBitmapMatch() {
+        Random random = new Random(11);
+        List<Property> listings = new ArrayList<>();
+        for (long id = 1; id <= 400; id++) {
+            Property p = new Property();
+            p.setId(id);
+            p.setCity(pick(random, CITIES));
+            p.setType(pick(random, TYPES));
+            p.setPurpose(pick(random, PURPOSES));
+            p.setPinCode(pick(random, PINCODES));
+            p.setBhk(1 + random.nextInt(4));
+            p.setPrice(random.nextInt(10) == 0 ? null : (double) random.nextInt(10_000_000));
+            p.setAmenities(pick(random, AMENITIES) + ", " + pick(random, AMENITIES));
+            p.setActive(random.nextInt(10) != 0);
+            listings.add(p);
+        }
+        ListingIndexService index = new ListingIndexService();
+        index.rebuild(listings);
+        long[] all = listings.stream().mapToLong(Property::getId).toArray();
+
+        for (int trial = 0; trial < 300; trial++) {
+            ListingFilter f = ListingFilter.of(
+                    maybe(random, CITIES), maybe(random, TYPES), maybe(random, new String[] {"sale", "rent"}),
+                    random.nextBoolean() ? String.valueOf(random.nextInt(5_000_000)) : null,
+                    random.nextBoolean() ? String.valueOf(random.nextInt(10_000_000)) : null,
+                    random.nextBoolean() ? String.valueOf(1 + random.nextInt(4)) : null,
+                    null, maybe(random, PINCODES),
+                    random.nextBoolean() ? List.of("pool") : List.of());
+
+            long[] expected = index.match(f);
+            BitSet matching = index.matching(f, all);
+            long[] actual = matching.stream().mapToLong(i -> all[i]).toArray();
+            Arrays.sort(expected);
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void unknownValuesAndUnindexedIdsMatchNothing() {
+        Property p = new Property();
+        p.setId(1L);
+        p.setCity("Pune");
+        ListingIndexService index = new ListingIndexService();
+        index.rebuild(List.of(p));
+
+        assertTrue(index.matching(ListingFilter.of("Goa", null, null, null, null, null, null, null, null),
+                new long[] {1}).isEmpty());
+        assertTrue(index.matching(ListingFilter.of("Pune", null, null, null, null, null, null, null, null),
+                new long[] {2}).isEmpty());
+        assertEquals(1, index.matching(ListingFilter.of("pune", null, null, null, null, null, null, null, null),
+                new long[] {2, 1}).nextSetBit(0));
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String maybe(Random random, String[] values) {
+        return random.nextBoolean() ? pick(random, values) : null;
+    }
+}
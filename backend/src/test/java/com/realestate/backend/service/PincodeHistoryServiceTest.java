@@ -0,0 +1,186 @@
+package com.realestate.backend.service;
+
+import com.realestate.backend.entity.PincodeHistory;
+import com.realestate.backend.entity.PincodeScore;
+import com.realestate.backend.repository.PincodeHistoryRepository;
+import com.realestate.backend.repository.PropertyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PincodeHistoryServiceTest {
+
+    private final PincodeHistoryRepository historyRepository = mock(PincodeHistoryRepository.class);
+    private final PropertyRepository propertyRepository = mock(PropertyRepository.class);
+    private final PincodeAggregateIndex aggregateIndex = mock(PincodeAggregateIndex.class);
+    private final HeatmapRecomputeScheduler scheduler = mock(HeatmapRecomputeScheduler.class);
+    private final PincodeHistoryService service = new PincodeHistoryService();
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "dailyDays", 120);
+        ReflectionTestUtils.setField(service, "weeklyDays", 730);
+        ReflectionTestUtils.setField(service, "pincodeHistoryRepository", historyRepository);
+        ReflectionTestUtils.setField(service, "propertyRepository", propertyRepository);
+        ReflectionTestUtils.setField(service, "pincodeAggregateIndex", aggregateIndex);
+        @SuppressWarnings("unchecked")
+        ObjectProvider<HeatmapRecomputeScheduler> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(scheduler);
+        ReflectionTestUtils.setField(service, "heatmapRecomputeScheduler", provider);
+    }
+
+    @Test
+    void growthComparesWithTheForwardFilledMedianOfNinetyDaysAgo() {
+        load(day(100, 5_000.0, 0), day(60, null, 0), day(10, 6_000.0, 0));
+
+        // Day 90 has no row: it repeats day 100's median, which day 60's missing one keeps
+        assertEquals(100.0, service.growthScore("Pune", "411001", 6_000.0), 1e-9);
+        assertEquals(50.0, service.growthScore("Pune", "411001", 5_000.0), 1e-9);
+        assertEquals(25.0, service.growthScore("pune", "411001", 4_500.0), 1e-9);
+        assertEquals(50.0, service.growthScore("Pune", "411001", null));
+        assertEquals(50.0, service.growthScore("Pune", "999999", 6_000.0));
+    }
+
+    @Test
+    void scoresStayNeutralWithoutAWeekOfHistory() {
+        load(day(3, 5_000.0, 4), day(1, 9_000.0, 4));
+
+        assertEquals(50.0, service.growthScore("Pune", "411001", 9_000.0));
+        assertEquals(50.0, service.conversionScore("Pune", "411001", 2));
+    }
+
+    @Test
+    void conversionCountsOnlyTheSalesOfTheWindow() {
+        load(day(40, 5_000.0, 5), day(10, 5_000.0, 3), day(1, 5_000.0, 2));
+
+        // 5 sold in the last 30 days against 15 still listed: 25% of the 50% that scores 100
+        assertEquals(50.0, service.conversionScore("Pune", "411001", 15), 1e-9);
+        assertEquals(100.0, service.conversionScore("Pune", "411001", 0), 1e-9);
+    }
+
+    @Test
+    void ringKeepsTheLatestDaysOnceHistoryOutgrowsIt() {
+        PincodeHistory[] rows = new PincodeHistory[3 * PincodeHistoryService.RING_DAYS];
+        for (int i = 0; i < rows.length; i++) {
+            int ago = rows.length - i;
+            rows[i] = day(ago, 1_000.0 + ago, 1);
+        }
+        load(rows);
+
+        // One sale a day; yesterday is the latest row, so 29 fall in the last 30 days
+        assertEquals(50.0, service.conversionScore("Pune", "411001", 87), 1e-9);
+        // Baseline is day 90's median, 1,090
+        assertEquals(50.0, service.growthScore("Pune", "411001", 1_090.0), 1e-9);
+    }
+
+    @Test
+    void foldWeighsLevelsBySamplesAndSumsSales() {
+        LocalDate monday = LocalDate.of(2020, 1, 6);
+        List<PincodeHistory> daily = new ArrayList<>();
+        for (int d = 0; d < 7; d++) {
+            PincodeHistory row = new PincodeHistory("pune", "411001", PincodeHistory.DAY, monday.plusDays(d));
+            row.setMedianPricePerSqft(d == 6 ? null : 1_000.0 * (d + 1));
+            row.setListings(10 + d);
+            row.setViews(70);
+            row.setSoldCount(d % 2);
+            daily.add(row);
+        }
+        PincodeHistory nextWeek = new PincodeHistory("pune", "411001", PincodeHistory.DAY, monday.plusDays(7));
+        nextWeek.setListings(1);
+        daily.add(nextWeek);
+
+        List<PincodeHistory> weekly = new ArrayList<>();
+        weekly.add(weekRow(LocalDate.of(2019, 5, 6), 7, 2_000.0, 20, 4));
+        weekly.add(weekRow(LocalDate.of(2019, 5, 27), 3, null, 10, 1));
+        weekly.add(weekRow(LocalDate.of(2019, 5, 13), 7, 4_000.0, 30, 2));
+
+        when(aggregateIndex.cities()).thenReturn(Set.of());
+        when(propertyRepository.countSoldByCityAndPinCode(any(), any())).thenReturn(List.of());
+        when(historyRepository.findByResolutionAndPeriodStartBefore(eq(PincodeHistory.DAY), any())).thenReturn(daily);
+        when(historyRepository.findByResolutionAndPeriodStartBefore(eq(PincodeHistory.WEEK), any())).thenReturn(weekly);
+
+        service.recordDay();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PincodeHistory>> saved = ArgumentCaptor.forClass(List.class);
+        verify(historyRepository, times(3)).saveAll(saved.capture());
+        verify(historyRepository).deleteAll(daily);
+        verify(historyRepository).deleteAll(weekly);
+
+        Map<LocalDate, PincodeHistory> weeks = byStart(saved.getAllValues().get(1));
+        assertEquals(Set.of(monday, monday.plusDays(7)), weeks.keySet());
+        PincodeHistory week = weeks.get(monday);
+        assertEquals(PincodeHistory.WEEK, week.getResolution());
+        assertEquals(7, week.getSamples());
+        assertEquals(3_500.0, week.getMedianPricePerSqft(), 1e-9); // days without a median left out
+        assertEquals(13, week.getListings());
+        assertEquals(70, week.getViews());
+        assertEquals(0, week.getInquiries());
+        assertEquals(3, week.getSoldCount());
+        assertNull(weeks.get(monday.plusDays(7)).getMedianPricePerSqft());
+
+        Map<LocalDate, PincodeHistory> months = byStart(saved.getAllValues().get(2));
+        PincodeHistory month = months.get(LocalDate.of(2019, 5, 1));
+        assertEquals(1, months.size());
+        assertEquals(PincodeHistory.MONTH, month.getResolution());
+        assertEquals(17, month.getSamples());
+        assertEquals(3_000.0, month.getMedianPricePerSqft(), 1e-9);
+        assertEquals(Math.round((20 * 7 + 10 * 3 + 30 * 7) / 17.0), (long) month.getListings());
+        assertEquals(7, month.getSoldCount());
+    }
+
+    @Test
+    void recordedDayRebuildsTheHeatmapOfEveryCityInIt() {
+        PincodeScore listed = new PincodeScore("pune", "411001");
+        listed.setActiveListings(4);
+        when(aggregateIndex.cities()).thenReturn(Set.of("pune"));
+        when(aggregateIndex.metrics("pune")).thenReturn(new PincodeAggregateIndex.CityMetrics(List.of(listed), 4, 4));
+        when(propertyRepository.countSoldByCityAndPinCode(any(), any()))
+                .thenReturn(List.<Object[]>of(new Object[] {"mumbai", "400001", 2L}));
+
+        service.recordDay();
+
+        verify(scheduler).request("pune");
+        verify(scheduler).request("mumbai");
+        verifyNoMoreInteractions(scheduler);
+    }
+
+    private void load(PincodeHistory... rows) {
+        when(historyRepository.findByResolutionAndPeriodStartGreaterThanEqualOrderByPeriodStartAsc(
+                eq(PincodeHistory.DAY), any())).thenReturn(Arrays.asList(rows));
+        service.load();
+    }
+
+    private PincodeHistory day(int daysAgo, Double median, int sold) {
+        PincodeHistory row = new PincodeHistory("pune", "411001", PincodeHistory.DAY, today.minusDays(daysAgo));
+        row.setMedianPricePerSqft(median);
+        row.setSoldCount(sold);
+        return row;
+    }
+
+    private static PincodeHistory weekRow(LocalDate start, int samples, Double median, int listings, int sold) {
+        PincodeHistory row = new PincodeHistory("pune", "411001", PincodeHistory.WEEK, start);
+        row.setSamples(samples);
+        row.setMedianPricePerSqft(median);
+        row.setListings(listings);
+        row.setSoldCount(sold);
+        return row;
+    }
+
+    private static Map<LocalDate, PincodeHistory> byStart(List<PincodeHistory> rows) {
+        Map<LocalDate, PincodeHistory> out = new HashMap<>();
+        for (PincodeHistory row : rows) out.put(row.getPeriodStart(), row);
+        return out;
+    }
+}
@@ -0,0 +1,113 @@
+package com.realestate.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.realestate.backend.entity.Property;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PincodeResolverTest {
+
+    // 400001: a square with a square hole; 400002: two separate squares (MultiPolygon)
+    private static final String LAYER = """
+            {"type": "FeatureCollection", "features": [
+              {"properties": {"pin_code": "400001"}, "geometry": {"type": "Polygon", "coordinates": [
+                [[72.80, 18.90], [72.90, 18.90], [72.90, 19.00], [72.80, 19.00], [72.80, 18.90]],
+                [[72.84, 18.94], [72.86, 18.94], [72.86, 18.96], [72.84, 18.96], [72.84, 18.94]]]}},
+              {"properties": {"pin_code": " 400002 "}, "geometry": {"type": "MultiPolygon", "coordinates": [
+                [[[72.95, 18.90], [73.00, 18.90], [73.00, 18.95], [72.95, 18.95], [72.95, 18.90]]],
+                [[[73.10, 18.90], [73.15, 18.90], [73.15, 18.95], [73.10, 18.95], [73.10, 18.90]]]]}},
+              {"properties": {}, "geometry": {"type": "Polygon", "coordinates": [
+                [[72.00, 18.00], [72.10, 18.00], [72.10, 18.10], [72.00, 18.00]]]}}
+            ]}""";
+
+    private static final String CENTROIDS = """
+            {"pune": [{"pin": "411001", "lat": 18.52, "lng": 73.85}, {"pin": "411002", "lng": 73.90}]}""";
+
+    @TempDir
+    Path dir;
+
+    private PincodeResolver resolver;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path centroids = Files.writeString(dir.resolve("geo_data.json"), CENTROIDS);
+        GeoJsonLayerService layers = mock(GeoJsonLayerService.class);
+        when(layers.source(anyString())).thenReturn(null);
+        when(layers.source("mumbai")).thenReturn(LAYER.getBytes(StandardCharsets.UTF_8));
+
+        resolver = new PincodeResolver();
+        ReflectionTestUtils.setField(resolver, "geoJsonLayerService", layers);
+        ReflectionTestUtils.setField(resolver, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(resolver, "resourceLoader", new DefaultResourceLoader());
+        ReflectionTestUtils.setField(resolver, "centroidLocations",
+                List.of("file:" + dir.resolve("missing.json"), "file:" + centroids));
+        resolver.load();
+    }
+
+    @Test
+    void pointInsidePolygonIsExact() {
+        PincodeResolver.Resolution r = resolver.resolve(18.91, 72.81);
+        assertEquals("400001", r.getPincode());
+        assertEquals("mumbai", r.getCity());
+        assertTrue(r.isExact());
+    }
+
+    @Test
+    void holeIsOutside() {
+        assertNull(resolver.resolve(18.95, 72.85));
+    }
+
+    @Test
+    void everyMultiPolygonPartCounts() {
+        assertEquals("400002", resolver.resolve(18.92, 72.97).getPincode());
+        assertEquals("400002", resolver.resolve(18.92, 73.12).getPincode());
+        assertNull(resolver.resolve(18.92, 73.05));
+    }
+
+    @Test
+    void nearestCentroidWithinRangeIsNotExact() {
+        PincodeResolver.Resolution near = resolver.resolve(18.53, 73.85);
+        assertEquals("411001", near.getPincode());
+        assertFalse(near.isExact());
+        assertNull(resolver.resolve(18.70, 73.85));
+    }
+
+    @Test
+    void polygonOverwritesTypedPincodeButCentroidOnlyFillsAMissingOne() {
+        Property inPolygon = at(18.91, 72.81, "400099");
+        assertTrue(resolver.apply(inPolygon));
+        assertEquals("400001", inPolygon.getPinCode());
+
+        Property nearCentroid = at(18.53, 73.85, "411099");
+        assertFalse(resolver.apply(nearCentroid));
+        assertEquals("411099", nearCentroid.getPinCode());
+
+        Property untyped = at(18.53, 73.85, null);
+        assertTrue(resolver.apply(untyped));
+        assertEquals("411001", untyped.getPinCode());
+
+        assertFalse(resolver.apply(at(95.0, 72.81, "400099")));
+    }
+
+    private static Property at(double lat, double lng, String pincode) {
+        Property p = new Property();
+        p.setLatitude(lat);
+        p.setLongitude(lng);
+        p.setPinCode(pincode);
+        return p;
+    }
+}
@@ -0,0 +1,28 @@
+package com.realestate.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PincodeScoringKernelTest {
+
+    @Test
+    void ranksFollowAStableAscendingSort() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            int n = random.nextInt(30);
+            double[] values = new double[n + 3]; // only the first n are ranked
+            for (int i = 0; i < values.length; i++) values[i] = random.nextInt(8) - 3.5;
+
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) order[i] = i;
+            Arrays.sort(order, Comparator.comparingDouble(i -> values[i]));
+            int[] expected = new int[n];
+            for (int r = 0; r < n; r++) expected[order[r]] = r;
+
+            assertArrayEquals(expected, PincodeScoringKernel.ranks(values, n), "round " + round);
+        }
+    }
+}
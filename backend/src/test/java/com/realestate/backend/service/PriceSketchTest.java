@@ -0,0 +1,102 @@
+package com.realestate.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceSketchTest {
+
+    private static final double[] QS = {0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 1};
+
+    @Test
+    void quantilesAreWithinTheRelativeAccuracy() {
+        Random random = new Random(3);
+        for (int round = 0; round < 50; round++) {
+            int n = 1 + random.nextInt(2_000);
+            double[] values = new double[n];
+            PriceSketch sketch = new PriceSketch();
+            for (int i = 0; i < n; i++) {
+                // Price per sqft spread over a few orders of magnitude
+                values[i] = Math.exp(6 + 2.5 * random.nextGaussian());
+                sketch.add(values[i]);
+            }
+            assertEquals(n, sketch.count());
+            assertQuantiles(values, sketch);
+        }
+    }
+
+    @Test
+    void removingValuesLeavesTheSketchOfTheRest() {
+        Random random = new Random(5);
+        List<Double> kept = new ArrayList<>();
+        PriceSketch sketch = new PriceSketch();
+        for (int i = 0; i < 1_000; i++) {
+            double v = 1_000 + random.nextInt(20_000);
+            sketch.add(v);
+            if (i % 3 == 0) sketch.remove(v);
+            else kept.add(v);
+        }
+        sketch.remove(123_456_789.0); // never added: ignored
+
+        assertEquals(kept.size(), sketch.count());
+        assertQuantiles(kept.stream().mapToDouble(Double::doubleValue).toArray(), sketch);
+
+        for (double v : kept) sketch.remove(v);
+        assertTrue(sketch.isEmpty());
+        assertTrue(Double.isNaN(sketch.quantile(0.5)));
+    }
+
+    @Test
+    void mergeEqualsOneSketchOfBoth() {
+        Random random = new Random(9);
+        PriceSketch low = new PriceSketch();
+        PriceSketch high = new PriceSketch();
+        PriceSketch both = new PriceSketch();
+        double[] values = new double[600];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 2 == 0 ? 1 + random.nextDouble() * 10 : 1e5 + random.nextDouble() * 1e6;
+            (i % 2 == 0 ? low : high).add(values[i]);
+            both.add(values[i]);
+        }
+
+        PriceSketch merged = new PriceSketch();
+        merged.merge(high);
+        merged.merge(new PriceSketch());
+        merged.merge(low);
+
+        assertEquals(both.count(), merged.count());
+        for (double q : QS) assertEquals(both.quantile(q), merged.quantile(q), "q=" + q);
+        assertQuantiles(values, merged);
+    }
+
+    @Test
+    void nonPositiveAndInfiniteValuesAreIgnored() {
+        PriceSketch sketch = new PriceSketch();
+        sketch.add(0);
+        sketch.add(-5);
+        sketch.add(Double.NaN);
+        sketch.add(Double.POSITIVE_INFINITY);
+        assertTrue(sketch.isEmpty());
+
+        sketch.add(4_200);
+        assertEquals(4_200, sketch.quantile(0), 4_200 * PriceSketch.RELATIVE_ACCURACY);
+        assertEquals(sketch.quantile(0), sketch.quantile(1));
+    }
+
+    /** Each quantile is within the accuracy of the nearest-rank value of the sorted input. */
+    private static void assertQuantiles(double[] values, PriceSketch sketch) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : QS) {
+            double exact = sorted[(int) Math.floor(q * (sorted.length - 1))];
+            double estimate = sketch.quantile(q);
+            assertTrue(Math.abs(estimate - exact) <= exact * PriceSketch.RELATIVE_ACCURACY * (1 + 1e-9),
+                    "q=" + q + " exact=" + exact + " estimate=" + estimate);
+        }
+    }
+}
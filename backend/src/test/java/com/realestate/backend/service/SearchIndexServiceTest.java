@@ -0,0 +1,123 @@
+package com.realestate.backend.service;
+
+import com.realestate.backend.entity.AppUser;
+import com.realestate.backend.entity.Property;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexServiceTest {
+
+    private SearchIndexService index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SearchIndexService();
+    }
+
+    @Test
+    void titleMatchOutranksDescriptionMatch() {
+        index.rebuild(List.of(
+                listing(1, "Family home", "Quiet street", "Close to the lake"),
+                listing(2, "Lake view villa", "Quiet street", "Spacious rooms")));
+
+        Map<Long, Double> scores = scores(index.search("lake", null));
+
+        assertEquals(Set.of(1L, 2L), scores.keySet());
+        assertTrue(scores.get(2L) > scores.get(1L));
+    }
+
+    @Test
+    void everyTokenMustMatch() {
+        index.rebuild(List.of(
+                listing(1, "Garden flat", "Andheri", null),
+                listing(2, "Garden villa", "Bandra", null)));
+
+        assertEquals(Set.of(2L), scores(index.search("garden bandra", null)).keySet());
+        assertEquals(0, index.search("garden juhu", null).size());
+    }
+
+    @Test
+    void prefixMatchesLongerTermsButScoresBelowExact() {
+        index.rebuild(List.of(
+                listing(1, "Bandra flat", "West", null),
+                listing(2, "Band stand flat", "West", null)));
+
+        Map<Long, Double> scores = scores(index.search("band", null));
+
+        assertEquals(Set.of(1L, 2L), scores.keySet());
+        assertTrue(scores.get(2L) > scores.get(1L));
+    }
+
+    @Test
+    void manyExpansionsKeepTheMostCommonTerms() {
+        List<Property> listings = new ArrayList<>();
+        long id = 1;
+        // 150 rare "zq..." terms, each in one listing, sorting before the common one
+        for (int i = 0; i < 150; i++) listings.add(listing(id++, "zqa" + i, "Pune", null));
+        for (int i = 0; i < 5; i++) listings.add(listing(id++, "zqzcommon", "Pune", null));
+        index.rebuild(listings);
+
+        Map<Long, Double> scores = scores(index.search("zq", null));
+
+        for (long common = 151; common <= 155; common++) assertTrue(scores.containsKey(common));
+        // The common term plus 99 of the rare ones
+        assertEquals(99 + 5, scores.size());
+    }
+
+    @Test
+    void allowedRestrictsAndAgentRenameIsSearchable() {
+        Property a = listing(1, "Penthouse", "Worli", null);
+        Property b = listing(2, "Penthouse", "Worli", null);
+        b.setAgent(agent(7, "Asha Mehta"));
+        index.rebuild(List.of(a, b));
+
+        assertEquals(Set.of(1L), scores(index.search("penthouse", Set.of(1L))).keySet());
+        assertEquals(Set.of(2L), scores(index.search("asha", null)).keySet());
+
+        index.agentUpdated(7L, "Ravi Shah", null);
+        assertEquals(0, index.search("asha", null).size());
+        assertEquals(Set.of(2L), scores(index.search("ravi", null)).keySet());
+    }
+
+    @Test
+    void removedAndHiddenListingsDropOut() {
+        Property p = listing(1, "Studio", "Powai", null);
+        index.rebuild(List.of(p, listing(2, "Studio", "Powai", null)));
+
+        p.setActive(false);
+        index.index(p);
+        index.remove(2L);
+
+        assertEquals(0, index.search("studio", null).size());
+    }
+
+    private static Map<Long, Double> scores(SearchIndexService.Hits hits) {
+        Map<Long, Double> out = new HashMap<>();
+        for (int i = 0; i < hits.size(); i++) out.put(hits.idAt(i), hits.scoreAt(i));
+        return out;
+    }
+
+    private static Property listing(long id, String title, String location, String description) {
+        Property p = new Property();
+        p.setId(id);
+        p.setTitle(title);
+        p.setLocation(location);
+        p.setDescription(description);
+        return p;
+    }
+
+    private static AppUser agent(long id, String name) {
+        AppUser u = new AppUser();
+        u.setId(id);
+        u.setName(name);
+        return u;
+    }
+}
@@ -0,0 +1,130 @@
+package com.realestate.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedBitmapTest {
+
+    @Test
+    void chunkBecomesBitArrayPastFourThousandValues() {
+        CompressedBitmap b = new CompressedBitmap();
+        for (int i = 0; i < 4096; i++) b.add(i * 2);
+        assertEquals(0, b.bitmapChunks());
+
+        b.add(1);
+        assertEquals(1, b.bitmapChunks());
+        assertEquals(4097, b.cardinality());
+        assertTrue(b.contains(1));
+        assertTrue(b.contains(8190));
+        assertFalse(b.contains(3));
+    }
+
+    @Test
+    void bitArrayShrinksBackOnlyBelowLowerWatermark() {
+        CompressedBitmap b = new CompressedBitmap();
+        for (int i = 0; i <= 4096; i++) b.add(i);
+        assertEquals(1, b.bitmapChunks());
+
+        // Hovering around the upper limit must not flip the representation
+        for (int round = 0; round < 10; round++) {
+            b.remove(4096);
+            assertEquals(1, b.bitmapChunks());
+            b.add(4096);
+            assertEquals(1, b.bitmapChunks());
+        }
+
+        for (int i = 4096; i >= 2048; i--) b.remove(i);
+        assertEquals(2048, b.cardinality());
+        assertEquals(1, b.bitmapChunks());
+
+        b.remove(2047);
+        assertEquals(0, b.bitmapChunks());
+        assertEquals(2047, b.cardinality());
+        assertEquals(values(0, 2047), toList(b));
+    }
+
+    @Test
+    void emptiedChunkIsDropped() {
+        CompressedBitmap b = new CompressedBitmap();
+        b.add(70_000);
+        b.add(5);
+        b.remove(70_000);
+        assertEquals(List.of(5), toList(b));
+        b.remove(5);
+        assertTrue(b.isEmpty());
+    }
+
+    @Test
+    void andAndOrMatchSetSemanticsAcrossRepresentations() {
+        Random random = new Random(42);
+        for (int trial = 0; trial < 20; trial++) {
+            TreeSet<Integer> x = new TreeSet<>();
+            TreeSet<Integer> y = new TreeSet<>();
+            // Dense and sparse chunks on both sides
+            fill(x, random, 0, 10_000, random.nextInt(8000));
+            fill(x, random, 1 << 16, 200, random.nextInt(100));
+            fill(y, random, 0, 10_000, random.nextInt(8000));
+            fill(y, random, 2 << 16, 200, random.nextInt(100));
+            CompressedBitmap a = of(x);
+            CompressedBitmap b = of(y);
+
+            TreeSet<Integer> both = new TreeSet<>(x);
+            both.retainAll(y);
+            TreeSet<Integer> either = new TreeSet<>(x);
+            either.addAll(y);
+
+            assertEquals(new ArrayList<>(both), toList(CompressedBitmap.and(a, b)));
+            assertEquals(new ArrayList<>(either), toList(CompressedBitmap.or(a, b)));
+            // Inputs are left alone
+            assertEquals(new ArrayList<>(x), toList(a));
+            assertEquals(new ArrayList<>(y), toList(b));
+        }
+    }
+
+    @Test
+    void randomAddsAndRemovesMatchTreeSet() {
+        Random random = new Random(7);
+        CompressedBitmap b = new CompressedBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 60_000; i++) {
+            int v = random.nextInt(3 << 16);
+            if (random.nextInt(3) == 0) {
+                b.remove(v);
+                expected.remove(v);
+            } else {
+                b.add(v);
+                expected.add(v);
+            }
+        }
+        assertEquals(expected.size(), b.cardinality());
+        assertEquals(new ArrayList<>(expected), toList(b));
+    }
+
+    private static void fill(TreeSet<Integer> set, Random random, int base, int range, int n) {
+        for (int i = 0; i < n; i++) set.add(base + random.nextInt(range));
+    }
+
+    private static CompressedBitmap of(TreeSet<Integer> values) {
+        CompressedBitmap b = new CompressedBitmap();
+        values.forEach(b::add);
+        return b;
+    }
+
+    private static List<Integer> toList(CompressedBitmap b) {
+        List<Integer> out = new ArrayList<>();
+        b.forEach(out::add);
+        return out;
+    }
+
+    private static List<Integer> values(int from, int to) {
+        List<Integer> out = new ArrayList<>();
+        for (int i = from; i < to; i++) out.add(i);
+        return out;
+    }
+}
@@ -223,7 +223,7 @@ function MapModal({ isOpen, onClose, initialProperty }) {
     useEffect(() => {
         if (!showPins || !isOpen) { setAllProperties([]); return; }
         setLoadingPins(true);
-        const params = { city: selectedCity, type: selectedType };
+        const params = { city: selectedCity, type: selectedType, all: true };
         if (selectedPurpose !== PURPOSES.ALL) params.purpose = selectedPurpose;
 
         propertyApi.get(``, { params })
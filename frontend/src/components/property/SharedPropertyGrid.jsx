@@ -105,7 +105,8 @@ export default function SharedPropertyGrid({
       setLoading(true);
       setError("");
       try {
-        const params = {};
+        // Paged client-side, so ask for every match
+        const params = { all: true };
         if (filters.city) params.city = filters.city;
         if (filters.type) params.type = filters.type;
         if (filters.purpose) params.purpose = filters.purpose;
@@ -87,7 +87,7 @@ function AdminDashboard() {
         try {
             setLoading(true);
 
-            const propsRes = await adminApi.get("/properties");
+            const propsRes = await adminApi.get("/properties", { params: { all: true } });
             const allProperties = propsRes.data;
 
             const chatsRes = await adminApi.get("/chats").catch(() => ({ data: [] }));
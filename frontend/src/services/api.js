@@ -75,7 +75,7 @@ export const propertyApi = createApi("/properties", { timeout: 60000 }); // 60s
 propertyApi.getFeatured = () => propertyApi.get("/featured");
 propertyApi.getTrending = () => propertyApi.get("/trending");
 propertyApi.toggleFeature = (id) => propertyApi.put(`/${id}/feature`);
-propertyApi.getMyProperties = () => propertyApi.get("/agent/me");
+propertyApi.getMyProperties = () => propertyApi.get("/agent/me", { params: { all: true } });
 propertyApi.relist = (id) => propertyApi.put(`/${id}/relist`);
 propertyApi.markSold = (id) => propertyApi.put(`/${id}/sold`);
 propertyApi.hardDelete = (id) => propertyApi.delete(`/${id}/permanent`);